@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
  * DTO for security price information
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PriceDto {
@@ -0,0 +1,52 @@
+package com.vyshali.common.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Current best price per product per date.
+ *
+ * Maintained on every price write (see BestPriceRepository#upsertIfBetter):
+ * a row is replaced only by a price with a lower source priority, or the
+ * same priority and a later price time. Reads are a single-row lookup on
+ * (product_id, price_date) instead of sorting the whole hierarchy.
+ */
+@Entity
+@Table(name = "best_prices",
+       uniqueConstraints = @UniqueConstraint(name = "uq_best_prices_product_date",
+                                             columnNames = {"product_id", "price_date"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BestPrice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "best_price_id")
+    private Long bestPriceId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "price_date", nullable = false)
+    private LocalDate priceDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "price_id", nullable = false)
+    private Price price;
+
+    @Column(name = "source_priority", nullable = false)
+    private Integer sourcePriority;
+
+    @Column(name = "price_time")
+    private LocalDateTime priceTime;
+
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
+}
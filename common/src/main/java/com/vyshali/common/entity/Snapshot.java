@@ -38,6 +38,10 @@ public class Snapshot {
     @Column(name = "snapshot_time", nullable = false)
     private LocalDateTime snapshotTime;
 
+    // Time of the newest position update applied on top of the snapshot
+    @Column(name = "last_update_time")
+    private LocalDateTime lastUpdateTime;
+
     @Column(name = "status", length = 20)
     @Builder.Default
     private String status = "ACTIVE";
@@ -101,6 +105,25 @@ public class Snapshot {
             .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
+    /**
+     * Time the snapshot's contents reflect: its own time or that of the newest update applied to it
+     */
+    public LocalDateTime getEffectiveTime() {
+        if (lastUpdateTime != null && (snapshotTime == null || lastUpdateTime.isAfter(snapshotTime))) {
+            return lastUpdateTime;
+        }
+        return snapshotTime;
+    }
+
+    /**
+     * Record that an update sent at updateTime was applied; the time never moves back
+     */
+    public void recordUpdate(LocalDateTime updateTime) {
+        if (updateTime != null && (lastUpdateTime == null || updateTime.isAfter(lastUpdateTime))) {
+            this.lastUpdateTime = updateTime;
+        }
+    }
+
     /**
      * Mark snapshot as superseded (when new snapshot arrives)
      */
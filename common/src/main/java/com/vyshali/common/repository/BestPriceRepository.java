@@ -0,0 +1,61 @@
+package com.vyshali.common.repository;
+
+import com.vyshali.fxanalyzer.common.entity.BestPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BestPriceRepository extends JpaRepository<BestPrice, Long> {
+
+    /**
+     * Single-row best price lookup, with the price and its product fetched.
+     */
+    @Query("SELECT b FROM BestPrice b JOIN FETCH b.price p JOIN FETCH p.product " +
+           "WHERE b.product.productId = :productId AND b.priceDate = :priceDate")
+    Optional<BestPrice> findBestPrice(
+            @Param("productId") Long productId,
+            @Param("priceDate") LocalDate priceDate);
+
+    /**
+     * Best price for a batch of products - at most one row per product.
+     */
+    @Query("SELECT b FROM BestPrice b JOIN FETCH b.price p JOIN FETCH p.product " +
+           "WHERE b.product.productId IN :productIds AND b.priceDate = :priceDate")
+    List<BestPrice> findBestPrices(
+            @Param("productIds") List<Long> productIds,
+            @Param("priceDate") LocalDate priceDate);
+
+    /**
+     * Record a newly written price as the best price if it beats the current one.
+     * Priority-aware replace: lower source priority wins, equal priority keeps the
+     * later price time. Atomic per (product, date), so concurrent writers cannot
+     * leave a worse price in place.
+     *
+     * @return 1 if the price is now the best price, 0 if a better one was kept
+     */
+    @Modifying
+    @Query(value = "INSERT INTO best_prices (product_id, price_date, price_id, source_priority, price_time) " +
+                   "VALUES (:productId, :priceDate, :priceId, :sourcePriority, :priceTime) " +
+                   "ON CONFLICT (product_id, price_date) DO UPDATE SET " +
+                   "price_id = EXCLUDED.price_id, " +
+                   "source_priority = EXCLUDED.source_priority, " +
+                   "price_time = EXCLUDED.price_time " +
+                   "WHERE EXCLUDED.source_priority < best_prices.source_priority " +
+                   "OR (EXCLUDED.source_priority = best_prices.source_priority " +
+                   "AND (best_prices.price_time IS NULL OR EXCLUDED.price_time >= best_prices.price_time))",
+           nativeQuery = true)
+    int upsertIfBetter(
+            @Param("productId") Long productId,
+            @Param("priceDate") LocalDate priceDate,
+            @Param("priceId") Long priceId,
+            @Param("sourcePriority") Integer sourcePriority,
+            @Param("priceTime") LocalDateTime priceTime);
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +26,12 @@ public interface PositionRepository extends JpaRepository<Position, Long> {
            "WHERE p.snapshot.snapshotId = :snapshotId")
     List<Position> findBySnapshotIdWithProductAndExposures(@Param("snapshotId") Long snapshotId);
     
+    @Query("SELECT DISTINCT p FROM Position p LEFT JOIN FETCH p.exposures " +
+           "WHERE p.snapshot.snapshotId = :snapshotId AND p.product.productId IN :productIds")
+    List<Position> findBySnapshotAndProductsWithExposures(
+            @Param("snapshotId") Long snapshotId,
+            @Param("productIds") Collection<Long> productIds);
+    
     @Query("SELECT p FROM Position p JOIN p.snapshot s " +
            "WHERE s.account.accountId = :accountId AND s.snapshotDate = :date AND s.status = 'ACTIVE'")
     List<Position> findActivePositionsByAccountAndDate(
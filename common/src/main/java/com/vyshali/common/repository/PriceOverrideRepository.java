@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +32,16 @@ public interface PriceOverrideRepository extends JpaRepository<PriceOverride, Lo
            "AND (o.expiryDate IS NULL OR o.expiryDate >= :date)")
     List<PriceOverride> findAllActiveOverrides(@Param("date") LocalDate date);
     
+    @Query("SELECT o FROM PriceOverride o WHERE o.isActive = true " +
+           "AND (o.expiryDate IS NULL OR o.expiryDate >= :date)")
+    List<PriceOverride> findCurrentAndFutureOverrides(@Param("date") LocalDate date);
+    
+    @Query("SELECT o FROM PriceOverride o WHERE o.updatedAt >= :since")
+    List<PriceOverride> findChangedSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT MAX(o.updatedAt) FROM PriceOverride o")
+    Optional<LocalDateTime> findLatestUpdatedAt();
+    
     List<PriceOverride> findByAccountAccountId(Long accountId);
     
     @Query("SELECT o FROM PriceOverride o WHERE o.createdBy = :username AND o.isActive = true")
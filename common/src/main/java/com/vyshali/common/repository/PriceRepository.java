@@ -38,7 +38,11 @@ public interface PriceRepository extends JpaRepository<Price, Long> {
     @Query("SELECT p FROM Price p WHERE p.priceDate = :priceDate AND p.isStale = true")
     List<Price> findStalePrices(@Param("priceDate") LocalDate priceDate);
     
-    @Query("SELECT p FROM Price p WHERE p.product.productId IN :productIds AND p.priceDate = :priceDate " +
+    /**
+     * Best price per product for a batch of products in one query.
+     * Fetches the product eagerly so callers can map to DTOs without N+1 loads.
+     */
+    @Query("SELECT p FROM Price p JOIN FETCH p.product WHERE p.product.productId IN :productIds AND p.priceDate = :priceDate " +
            "AND p.sourcePriority = (SELECT MIN(p2.sourcePriority) FROM Price p2 " +
            "WHERE p2.product.productId = p.product.productId AND p2.priceDate = :priceDate)")
     List<Price> findBestPricesForProducts(
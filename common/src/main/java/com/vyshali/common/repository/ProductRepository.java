@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,11 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Optional<Product> findByTicker(String ticker);
     
+    /**
+     * Bulk identifier lookup; callers match identifier type themselves.
+     */
+    List<Product> findByIdentifierIn(Collection<String> identifiers);
+    
     List<Product> findByAssetClass(String assetClass);
     
     List<Product> findByIssueCurrency(String issueCurrency);
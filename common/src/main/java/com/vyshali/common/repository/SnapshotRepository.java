@@ -1,7 +1,9 @@
 package com.vyshali.common.repository;
 
 import com.vyshali.fxanalyzer.common.entity.Snapshot;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -21,6 +23,18 @@ public interface SnapshotRepository extends JpaRepository<Snapshot, Long> {
             @Param("snapshotType") String snapshotType,
             @Param("snapshotDate") LocalDate snapshotDate);
 
+    /**
+     * Active snapshot with its row locked until the transaction ends, so
+     * incremental updates to one snapshot apply one at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Snapshot s WHERE s.account.accountId = :accountId AND s.snapshotType = :snapshotType " +
+           "AND s.snapshotDate = :snapshotDate AND s.status = 'ACTIVE'")
+    Optional<Snapshot> findActiveSnapshotForUpdate(
+            @Param("accountId") Long accountId,
+            @Param("snapshotType") String snapshotType,
+            @Param("snapshotDate") LocalDate snapshotDate);
+
     List<Snapshot> findBySnapshotDateAndStatus(LocalDate snapshotDate, String status);
     
     List<Snapshot> findByAccountAccountIdAndStatus(Long accountId, String status);
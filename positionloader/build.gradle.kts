@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.2.1"
     id("io.spring.dependency-management") version "1.1.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 dependencies {
@@ -29,6 +30,7 @@ dependencies {
     // Caching
     implementation("org.springframework.boot:spring-boot-starter-cache")
     implementation("org.springframework.boot:spring-boot-starter-data-redis")
+    implementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
     
     // Monitoring
     implementation("io.micrometer:micrometer-registry-prometheus")
@@ -45,6 +47,13 @@ dependencies {
     testImplementation("org.testcontainers:kafka:1.19.3")
 }
 
+// Benchmarks (src/jmh/java) - run with ./gradlew :positionloader:jmh against the docker-compose database
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+}
+
 springBoot {
     mainClass.set("com.vyshali.fxanalyzer.positionloader.PositionLoaderApplication")
 }
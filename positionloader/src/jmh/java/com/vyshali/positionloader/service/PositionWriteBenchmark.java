@@ -0,0 +1,106 @@
+package com.vyshali.positionloader.service;
+
+import com.vyshali.fxanalyzer.common.entity.Account;
+import com.vyshali.fxanalyzer.common.entity.Snapshot;
+import com.vyshali.fxanalyzer.common.repository.AccountRepository;
+import com.vyshali.fxanalyzer.positionloader.PositionLoaderApplication;
+import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one large snapshot: JPA saveAll vs multi-row INSERT vs COPY.
+ *
+ * Needs the docker-compose Postgres with the schema applied and at least one
+ * account. The products are created once per trial; every invocation writes
+ * a fresh snapshot and rolls it back, so the database does not grow. Run with
+ * ./gradlew :positionloader:jmh -Pjmh.includes=PositionWriteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PositionWriteBenchmark {
+
+    @Param({"50000"})
+    private int positions;
+
+    @Param({"JPA", "MULTI_ROW", "COPY"})
+    private PositionWriteMode mode;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private SnapshotService snapshotService;
+    private PositionPersistenceService persistenceService;
+    private String accountNumber;
+    private List<MspmPositionMessage.PositionData> data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PositionLoaderApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("fxanalyzer.position.products.warm-on-startup=false")
+                .run();
+        context.getBean(KafkaListenerEndpointRegistry.class).stop();
+
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        snapshotService = context.getBean(SnapshotService.class);
+        persistenceService = context.getBean(PositionPersistenceService.class);
+        accountNumber = context.getBean(AccountRepository.class).findAll().stream()
+                .map(Account::getAccountNumber)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("The benchmark needs at least one account"));
+
+        data = new ArrayList<>(positions);
+        for (int i = 0; i < positions; i++) {
+            data.add(MspmPositionMessage.PositionData.builder()
+                    .identifierType("BENCH")
+                    .identifier(String.format("BENCH%07d", i))
+                    .ticker("B" + i)
+                    .securityDescription("Benchmark security " + i)
+                    .assetClass("EQUITY")
+                    .issueCurrency(i % 3 == 0 ? "EUR" : "USD")
+                    .settlementCurrency("USD")
+                    .quantity(BigDecimal.valueOf(100 + i % 1000))
+                    .price(BigDecimal.valueOf(25.5))
+                    .marketValueLocal(BigDecimal.valueOf(2550 + i))
+                    .marketValueBase(BigDecimal.valueOf(2800 + i))
+                    .costBasisLocal(BigDecimal.valueOf(2000))
+                    .costBasisBase(BigDecimal.valueOf(2200))
+                    .fxRate(new BigDecimal("1.098"))
+                    .positionType("LONG")
+                    .build());
+        }
+        // Create the products once, outside the measured writes
+        transactionTemplate.executeWithoutResult(status -> context.getBean(ProductResolver.class).resolve(data));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int writeSnapshot() {
+        return transactionTemplate.execute(status -> {
+            Snapshot snapshot = snapshotService.createSnapshot(accountNumber, "EOD",
+                    LocalDate.now(), LocalTime.now(), "BENCH");
+            int written = persistenceService.persistPositions(snapshot, data, mode);
+            status.setRollbackOnly();
+            return written;
+        });
+    }
+}
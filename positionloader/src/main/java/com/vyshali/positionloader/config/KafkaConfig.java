@@ -1,6 +1,7 @@
 package com.vyshali.positionloader.config;
 
 import com.vyshali.positionloader.dto.MspmPositionMessage;
+import com.vyshali.positionloader.dto.PositionLoadFailure;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
@@ -12,6 +13,7 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
@@ -33,13 +35,16 @@ public class KafkaConfig {
 
     // ==================== Consumer Configuration ====================
 
+    /**
+     * Position message consumers. A record that cannot be deserialized comes
+     * through as null and MspmPositionConsumer dead-letters it.
+     */
     @Bean
     public ConsumerFactory<String, MspmPositionMessage> positionConsumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
@@ -51,7 +56,8 @@ public class KafkaConfig {
         deserializer.addTrustedPackages("com.vyshali.fxanalyzer.*");
         deserializer.setUseTypeMapperForKey(true);
         
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer);
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(deserializer));
     }
 
     @Bean
@@ -66,6 +72,27 @@ public class KafkaConfig {
         return factory;
     }
 
+    /**
+     * Consumers for DeadLetterReplayService, created per replay run.
+     * Failure records are read as PositionLoadFailure regardless of type headers;
+     * one that cannot be read comes through as null and is skipped.
+     */
+    @Bean
+    public ConsumerFactory<String, PositionLoadFailure> deadLetterConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId + "-dlt-replay");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100);
+
+        JsonDeserializer<PositionLoadFailure> deserializer = new JsonDeserializer<>(PositionLoadFailure.class, false);
+        deserializer.addTrustedPackages("com.vyshali.fxanalyzer.*");
+
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(deserializer));
+    }
+
     // ==================== Producer Configuration ====================
 
     @Bean
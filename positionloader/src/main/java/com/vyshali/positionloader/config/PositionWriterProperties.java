@@ -0,0 +1,31 @@
+package com.vyshali.positionloader.config;
+
+import com.vyshali.fxanalyzer.positionloader.service.PositionWriteMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Position write path per load type (fxanalyzer.position.writer).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "fxanalyzer.position.writer")
+public class PositionWriterProperties {
+
+    /** Write mode for snapshot types without an entry in bySnapshotType. */
+    private PositionWriteMode defaultMode = PositionWriteMode.JPA;
+
+    /** Write mode per snapshot type, e.g. EOD: COPY. */
+    private Map<String, PositionWriteMode> bySnapshotType = new HashMap<>();
+
+    /** Rows per multi-row INSERT statement. */
+    private int insertChunkSize = 1000;
+
+    public PositionWriteMode modeFor(String snapshotType) {
+        return snapshotType != null ? bySnapshotType.getOrDefault(snapshotType, defaultMode) : defaultMode;
+    }
+}
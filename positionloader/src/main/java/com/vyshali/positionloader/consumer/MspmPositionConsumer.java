@@ -1,66 +1,347 @@
 package com.vyshali.positionloader.consumer;
 
+import com.vyshali.fxanalyzer.common.exception.EntityNotFoundException;
+import com.vyshali.fxanalyzer.common.exception.ValidationException;
 import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import com.vyshali.fxanalyzer.positionloader.dto.PositionLoadFailure;
+import com.vyshali.fxanalyzer.positionloader.service.DeadLetterPublisher;
 import com.vyshali.fxanalyzer.positionloader.service.PositionLoadService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Kafka consumer for MSPM position messages.
  * Listens to the mspm.positions topic and processes position snapshots.
+ *
+ * A batch is split by account: each account's messages are processed in
+ * order on one virtual thread, different accounts in parallel, with at most
+ * fxanalyzer.position.consumer.parallelism accounts in flight across all
+ * listener threads (keep it below the connection pool size).
+ *
+ * When every message succeeded the batch is acknowledged. Otherwise offsets
+ * are committed only up to the first unfinished message of each partition
+ * and those partitions are rewound and paused for retry-backoff-ms; the
+ * listener thread keeps serving its other partitions. Messages after the
+ * rewind point that already succeeded are remembered and skipped when polled
+ * again, so they are neither reloaded nor counted or published twice.
+ * Messages after a failure for the same account wait for that retry.
+ *
+ * A message that fails max-attempts times, or fails in a way a retry cannot
+ * fix (validation, unknown account), goes to the dead-letter topic with its
+ * partition and offset (see DeadLetterPublisher, DeadLetterReplayService).
+ * So does a record that could not be deserialized, which arrives as null.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class MspmPositionConsumer {
 
+    static final String LISTENER_ID = "mspm-positions";
+
     private final PositionLoadService positionLoadService;
+    private final DeadLetterPublisher deadLetterPublisher;
+    private final Semaphore permits;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService resumer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "position-retry-resume");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Attempts per "topic-partition@offset" for messages being retried
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    // Offsets past a partition's rewind point that already succeeded
+    private final Map<TopicPartition, Set<Long>> completed = new ConcurrentHashMap<>();
+
+    private final Timer batchTimer;
+    private final Counter retryCounter;
+
+    public MspmPositionConsumer(PositionLoadService positionLoadService,
+                                DeadLetterPublisher deadLetterPublisher,
+                                KafkaListenerEndpointRegistry listenerRegistry,
+                                MeterRegistry meterRegistry,
+                                @Value("${fxanalyzer.position.consumer.parallelism:8}") int parallelism,
+                                @Value("${fxanalyzer.position.consumer.max-attempts:3}") int maxAttempts,
+                                @Value("${fxanalyzer.position.consumer.retry-backoff-ms:1000}") long retryBackoffMs) {
+        this.positionLoadService = positionLoadService;
+        this.deadLetterPublisher = deadLetterPublisher;
+        this.listenerRegistry = listenerRegistry;
+        this.permits = new Semaphore(parallelism);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+
+        this.batchTimer = Timer.builder("position.loader.batch.time")
+                .description("Time to process a polled batch of position messages")
+                .register(meterRegistry);
+
+        this.retryCounter = Counter.builder("position.loader.retries")
+                .description("Position messages rewound for another attempt")
+                .register(meterRegistry);
+    }
 
     /**
      * Batch listener for position messages.
      * Processes messages in batches for better throughput.
      */
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${fxanalyzer.kafka.topics.positions:mspm.positions}",
             containerFactory = "positionKafkaListenerContainerFactory",
             groupId = "${spring.kafka.consumer.group-id}"
     )
     public void consumePositions(
             @Payload List<MspmPositionMessage> messages,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
             @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
             @Header(KafkaHeaders.OFFSET) List<Long> offsets,
-            Acknowledgment acknowledgment) {
-        
+            Acknowledgment acknowledgment,
+            Consumer<?, ?> consumer) {
+
         log.info("Received batch of {} position messages", messages.size());
-        
-        int successCount = 0;
-        int errorCount = 0;
-        
+        long start = System.nanoTime();
+
+        // Messages loaded before an earlier rewind are not processed again
+        Set<Integer> skipped = new HashSet<>();
+        for (int i = 0; i < offsets.size(); i++) {
+            Set<Long> done = completed.get(new TopicPartition(topics.get(i), partitions.get(i)));
+            if (done != null && done.contains(offsets.get(i))) {
+                skipped.add(i);
+            }
+        }
+
+        // Indexes of messages that failed or were held back behind a failure, and the failures
+        Set<Integer> unfinished = ConcurrentHashMap.newKeySet();
+        Map<Integer, Exception> failures = new ConcurrentHashMap<>();
+
+        // Messages per account, in batch order
+        Map<String, List<Integer>> byAccount = new LinkedHashMap<>();
         for (int i = 0; i < messages.size(); i++) {
-            MspmPositionMessage message = messages.get(i);
+            if (skipped.contains(i)) {
+                continue;
+            }
+            if (messages.get(i) == null) {
+                // Not deserializable: fails without a retry and is dead-lettered
+                log.error("Unreadable message at partition {} offset {}", partitions.get(i), offsets.get(i));
+                unfinished.add(i);
+                failures.put(i, new IllegalArgumentException("Message could not be deserialized"));
+                continue;
+            }
+            byAccount.computeIfAbsent(String.valueOf(messages.get(i).getAccountNumber()), k -> new ArrayList<>()).add(i);
+        }
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(byAccount.size());
+        for (List<Integer> indexes : byAccount.values()) {
+            tasks.add(CompletableFuture.runAsync(
+                    () -> processAccount(indexes, messages, partitions, offsets, unfinished, failures), executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        deadLetterPublisher.recordLoaded(messages.size() - unfinished.size() - skipped.size());
+
+        if (unfinished.isEmpty()) {
+            acknowledgment.acknowledge();
+            for (int i = 0; i < offsets.size(); i++) {
+                TopicPartition partition = new TopicPartition(topics.get(i), partitions.get(i));
+                clearAttempts(partition, null);
+                forgetCompleted(partition, offsets.get(i) + 1);
+            }
+        } else {
+            retryUnfinished(unfinished, failures, messages, topics, partitions, offsets, consumer);
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        log.info("Batch processing complete: {} accounts, {} success, {} already loaded, {} to retry",
+                byAccount.size(), messages.size() - unfinished.size() - skipped.size(), skipped.size(),
+                unfinished.size());
+    }
+
+    /**
+     * Process one account's messages in order, stopping at the first failure.
+     */
+    private void processAccount(List<Integer> indexes, List<MspmPositionMessage> messages,
+                                List<Integer> partitions, List<Long> offsets, Set<Integer> unfinished,
+                                Map<Integer, Exception> failures) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unfinished.addAll(indexes);
+            return;
+        }
+        try {
+            for (int n = 0; n < indexes.size(); n++) {
+                int i = indexes.get(n);
+                try {
+                    processMessage(messages.get(i), partitions.get(i), offsets.get(i));
+                } catch (Exception e) {
+                    log.error("Failed to process message at partition {} offset {}: {}",
+                            partitions.get(i), offsets.get(i), e.getMessage());
+                    failures.put(i, e);
+                    unfinished.addAll(indexes.subList(n, indexes.size()));
+                    return;
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Commit each partition up to its first unfinished message, rewind it there and
+     * pause it for the retry backoff. Messages past that point that succeeded are
+     * remembered so the retry skips them. A failed message that cannot or may no
+     * longer be retried is dead-lettered and skipped.
+     */
+    private void retryUnfinished(Set<Integer> unfinished, Map<Integer, Exception> failures,
+                                 List<MspmPositionMessage> messages, List<String> topics,
+                                 List<Integer> partitions, List<Long> offsets, Consumer<?, ?> consumer) {
+        // Index of the first unfinished message per partition
+        Map<TopicPartition, Integer> firstUnfinished = new HashMap<>();
+        Map<TopicPartition, Long> next = new HashMap<>();
+        for (int i = 0; i < offsets.size(); i++) {
+            TopicPartition partition = new TopicPartition(topics.get(i), partitions.get(i));
+            next.merge(partition, offsets.get(i) + 1, Math::max);
+            if (unfinished.contains(i)) {
+                firstUnfinished.merge(partition, i, (a, b) -> offsets.get(a) <= offsets.get(b) ? a : b);
+            }
+        }
+
+        next.keySet().forEach(partition -> clearAttempts(partition,
+                firstUnfinished.containsKey(partition) ? offsets.get(firstUnfinished.get(partition)) : null));
+
+        Map<TopicPartition, Long> rewind = new HashMap<>();
+        firstUnfinished.forEach((partition, i) -> {
+            long offset = offsets.get(i);
+            Exception failure = failures.get(i);
+            if (failure == null) {
+                // Held back behind another partition's failure for the same account
+                rewind.put(partition, offset);
+                return;
+            }
+            String key = partition + "@" + offset;
+            int attempt = attempts.merge(key, 1, Integer::sum);
+            boolean retryable = isRetryable(failure);
+            if (retryable && attempt < maxAttempts) {
+                rewind.put(partition, offset);
+                return;
+            }
             try {
-                processMessage(message, partitions.get(i), offsets.get(i));
-                successCount++;
+                deadLetterPublisher.publish(partition.topic(), partition.partition(), offset, messages.get(i),
+                        failure, attempt, deadLetterReason(messages.get(i), retryable));
+                attempts.remove(key);
+                // Move past it; the rest of the partition is polled again
+                rewind.put(partition, offset + 1);
             } catch (Exception e) {
-                errorCount++;
-                log.error("Failed to process message at partition {} offset {}: {}", 
-                        partitions.get(i), offsets.get(i), e.getMessage());
-                // Continue processing other messages in batch
+                log.error("Could not dead-letter message at {} offset {}, will retry it: {}",
+                        partition, offset, e.getMessage());
+                rewind.put(partition, offset);
+            }
+        });
+
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+        next.forEach((partition, offset) -> commits.put(partition,
+                new OffsetAndMetadata(rewind.getOrDefault(partition, offset))));
+        consumer.commitSync(commits);
+        commits.forEach((partition, offset) -> forgetCompleted(partition, offset.offset()));
+
+        for (int i = 0; i < offsets.size(); i++) {
+            TopicPartition partition = new TopicPartition(topics.get(i), partitions.get(i));
+            Long from = rewind.get(partition);
+            if (from != null && offsets.get(i) >= from && !unfinished.contains(i)) {
+                completed.computeIfAbsent(partition, p -> ConcurrentHashMap.newKeySet()).add(offsets.get(i));
             }
         }
-        
-        // Acknowledge the batch
-        acknowledgment.acknowledge();
-        
-        log.info("Batch processing complete: {} success, {} errors", successCount, errorCount);
+
+        rewind.forEach(consumer::seek);
+        pauseForBackoff(rewind.keySet());
+        retryCounter.increment(unfinished.size());
+        log.warn("Rewound {} partition(s) to retry {} unfinished messages", rewind.size(), unfinished.size());
+    }
+
+    /**
+     * Pause rewound partitions; the container applies pause and resume on its own
+     * thread, so the listener thread is free to serve its other partitions meanwhile.
+     */
+    private void pauseForBackoff(Set<TopicPartition> partitions) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(LISTENER_ID);
+        if (retryBackoffMs <= 0 || container == null || partitions.isEmpty()) {
+            return;
+        }
+        partitions.forEach(container::pausePartition);
+        resumer.schedule(() -> partitions.forEach(container::resumePartition), retryBackoffMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop remembered offsets the partition's committed position has moved past.
+     */
+    private void forgetCompleted(TopicPartition partition, long committed) {
+        Set<Long> done = completed.get(partition);
+        if (done != null) {
+            done.removeIf(offset -> offset < committed);
+            if (done.isEmpty()) {
+                completed.remove(partition, done);
+            }
+        }
+    }
+
+    private static String deadLetterReason(MspmPositionMessage message, boolean retryable) {
+        if (message == null) {
+            return PositionLoadFailure.REASON_UNREADABLE;
+        }
+        return retryable ? PositionLoadFailure.REASON_RETRIES_EXHAUSTED : PositionLoadFailure.REASON_NON_RETRYABLE;
+    }
+
+    /**
+     * Failures that another attempt cannot fix.
+     */
+    private static boolean isRetryable(Exception e) {
+        return !(e instanceof IllegalArgumentException
+                || e instanceof ValidationException
+                || e instanceof EntityNotFoundException);
+    }
+
+    /**
+     * Forget attempts for a partition's messages other than the one about to be retried.
+     */
+    private void clearAttempts(TopicPartition partition, Long retryOffset) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+        String prefix = partition + "@";
+        String keep = retryOffset != null ? prefix + retryOffset : null;
+        attempts.keySet().removeIf(key -> key.startsWith(prefix) && !key.equals(keep));
     }
 
     /**
@@ -73,6 +354,12 @@ public class MspmPositionConsumer {
         positionLoadService.processPositionMessage(message);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        resumer.shutdownNow();
+        executor.shutdown();
+    }
+
     /**
      * Single message listener (alternative to batch processing).
      * Can be enabled by changing the configuration.
@@ -4,6 +4,7 @@ import com.vyshali.fxanalyzer.common.dto.ApiResponse;
 import com.vyshali.fxanalyzer.common.entity.Snapshot;
 import com.vyshali.fxanalyzer.common.repository.SnapshotRepository;
 import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import com.vyshali.fxanalyzer.positionloader.service.DeadLetterReplayService;
 import com.vyshali.fxanalyzer.positionloader.service.PositionLoadService;
 import com.vyshali.fxanalyzer.positionloader.service.SnapshotService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -33,6 +34,7 @@ public class PositionLoaderController {
     private final PositionLoadService positionLoadService;
     private final SnapshotService snapshotService;
     private final SnapshotRepository snapshotRepository;
+    private final DeadLetterReplayService deadLetterReplayService;
 
     /**
      * Health check endpoint.
@@ -100,6 +102,29 @@ public class PositionLoaderController {
         return ResponseEntity.ok(ApiResponse.success(result, "Positions loaded successfully"));
     }
 
+    /**
+     * Replay dead-lettered position messages in the background.
+     */
+    @PostMapping("/dlt/replay")
+    @Operation(summary = "Replay dead-lettered position messages")
+    public ResponseEntity<ApiResponse<DeadLetterReplayService.ReplayStatus>> replayDeadLetters(
+            @RequestParam(defaultValue = "1000") int maxMessages,
+            @RequestParam(required = false) Integer ratePerSecond) {
+        
+        log.info("DLT replay request: up to {} messages", maxMessages);
+        DeadLetterReplayService.ReplayStatus status = deadLetterReplayService.startReplay(maxMessages, ratePerSecond);
+        return ResponseEntity.accepted().body(ApiResponse.success(status, "Replay started"));
+    }
+
+    /**
+     * Progress of the current or last DLT replay.
+     */
+    @GetMapping("/dlt/replay")
+    @Operation(summary = "Get DLT replay status")
+    public ResponseEntity<ApiResponse<DeadLetterReplayService.ReplayStatus>> getReplayStatus() {
+        return ResponseEntity.ok(ApiResponse.success(deadLetterReplayService.getStatus()));
+    }
+
     /**
      * Deactivate a snapshot.
      */
@@ -1,5 +1,6 @@
 package com.vyshali.positionloader.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
@@ -8,8 +9,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.List;
 
 /**
@@ -23,6 +27,9 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class MspmPositionMessage {
 
+    public static final String TYPE_SNAPSHOT = "POSITION_SNAPSHOT";
+    public static final String TYPE_UPDATE = "POSITION_UPDATE";
+
     @JsonProperty("message_id")
     private String messageId;
     
@@ -50,6 +57,28 @@ public class MspmPositionMessage {
     @JsonProperty("timestamp")
     private Long timestamp;
 
+    /**
+     * An update carries only changed positions, to be applied to the active snapshot
+     */
+    @JsonIgnore
+    public boolean isUpdate() {
+        return TYPE_UPDATE.equals(messageType);
+    }
+
+    /**
+     * When the upstream system produced the message: the snapshot date and time,
+     * else the send timestamp; null when the message carries neither
+     */
+    public LocalDateTime messageTime() {
+        if (snapshotDate != null && snapshotTime != null) {
+            return snapshotDate.atTime(snapshotTime);
+        }
+        if (timestamp != null) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+        }
+        return null;
+    }
+
     /**
      * Individual position data within the message
      */
@@ -0,0 +1,40 @@
+package com.vyshali.positionloader.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dead-letter record for a position message that could not be loaded:
+ * where it came from, why it failed, and the message itself for replay.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionLoadFailure {
+
+    private String topic;
+    private int partition;
+    private long offset;
+    private String messageId;
+    private String accountNumber;
+    private String snapshotType;
+    private String errorClass;
+    private String errorMessage;
+    private int attempts;
+    private int replayCount;
+    private LocalDateTime failedAt;
+    private MspmPositionMessage message;
+
+    /**
+     * Reasons a message is dead-lettered
+     */
+    public static final String REASON_NON_RETRYABLE = "non_retryable";
+    public static final String REASON_RETRIES_EXHAUSTED = "retries_exhausted";
+    public static final String REASON_REPLAY_FAILED = "replay_failed";
+    public static final String REASON_UNREADABLE = "unreadable";
+}
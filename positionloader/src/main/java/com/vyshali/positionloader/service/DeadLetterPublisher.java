@@ -0,0 +1,120 @@
+package com.vyshali.positionloader.service;
+
+import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import com.vyshali.fxanalyzer.positionloader.dto.PositionLoadFailure;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes position messages that could not be loaded to the dead-letter
+ * topic, and tracks the share of finished messages that end up there
+ * (position.loader.failure.rate, loaded vs dead-lettered per minute).
+ *
+ * Sends are synchronous: the consumer only moves past a message once its
+ * failure record is on the DLT.
+ */
+@Slf4j
+@Service
+public class DeadLetterPublisher {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String deadLetterTopic;
+    private final long sendTimeoutMs;
+
+    // Messages loaded and dead-lettered since the last failure-rate tick
+    private final LongAdder loadedInWindow = new LongAdder();
+    private final LongAdder failedInWindow = new LongAdder();
+    private volatile double failureRate;
+
+    public DeadLetterPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${fxanalyzer.kafka.topics.positions-dlt:mspm.positions.DLT}") String deadLetterTopic,
+                               @Value("${fxanalyzer.position.dlt.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.deadLetterTopic = deadLetterTopic;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        Gauge.builder("position.loader.failure.rate", this, p -> p.failureRate)
+                .description("Share of position messages dead-lettered over the last minute")
+                .register(meterRegistry);
+    }
+
+    public String getDeadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    /**
+     * Count messages loaded successfully, for the failure rate.
+     */
+    public void recordLoaded(int count) {
+        loadedInWindow.add(count);
+    }
+
+    /**
+     * Put a failed message on the DLT; throws if the broker did not take it.
+     * The message is null when the record could not be deserialized.
+     */
+    public void publish(String topic, int partition, long offset, MspmPositionMessage message,
+                        Exception error, int attempts, String reason) {
+        PositionLoadFailure failure = PositionLoadFailure.builder()
+                .topic(topic)
+                .partition(partition)
+                .offset(offset)
+                .messageId(message != null ? message.getMessageId() : null)
+                .accountNumber(message != null ? message.getAccountNumber() : null)
+                .snapshotType(message != null ? message.getSnapshotType() : null)
+                .errorClass(error.getClass().getName())
+                .errorMessage(error.getMessage())
+                .attempts(attempts)
+                .failedAt(LocalDateTime.now())
+                .message(message)
+                .build();
+        publish(failure, reason);
+    }
+
+    /**
+     * Put a failure record back on the DLT, e.g. after a failed replay.
+     */
+    public void publish(PositionLoadFailure failure, String reason) {
+        try {
+            kafkaTemplate.send(deadLetterTopic, failure.getAccountNumber(), failure)
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted publishing to " + deadLetterTopic, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to publish to " + deadLetterTopic + ": " + e.getMessage(), e);
+        }
+
+        Counter.builder("position.loader.dlt.published")
+                .description("Position messages sent to the dead-letter topic")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        if (!PositionLoadFailure.REASON_REPLAY_FAILED.equals(reason)) {
+            failedInWindow.increment();
+        }
+        log.warn("Dead-lettered message {} for account {} from {}-{}@{} ({}): {}",
+                failure.getMessageId(), failure.getAccountNumber(), failure.getTopic(), failure.getPartition(),
+                failure.getOffset(), reason, failure.getErrorMessage());
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public void updateFailureRate() {
+        long loaded = loadedInWindow.sumThenReset();
+        long failed = failedInWindow.sumThenReset();
+        failureRate = loaded + failed > 0 ? (double) failed / (loaded + failed) : 0.0;
+    }
+}
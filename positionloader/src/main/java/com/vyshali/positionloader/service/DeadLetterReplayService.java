@@ -0,0 +1,267 @@
+package com.vyshali.positionloader.service;
+
+import com.vyshali.fxanalyzer.common.entity.Snapshot;
+import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import com.vyshali.fxanalyzer.positionloader.dto.PositionLoadFailure;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-drives dead-lettered position messages through PositionLoadService.
+ *
+ * A replay reads the DLT from the replay group's committed offsets up to the
+ * end offsets seen when it started, at most ratePerSecond messages a second,
+ * committing as it goes. A message that fails again is published back to the
+ * DLT with its replay count raised, after the run's end offset, so one run
+ * never loops on it. A message older than the account's active snapshot is
+ * skipped as superseded rather than rolling the account back. Only one replay
+ * runs at a time.
+ */
+@Slf4j
+@Service
+public class DeadLetterReplayService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, PositionLoadFailure> deadLetterConsumerFactory;
+    private final PositionLoadService positionLoadService;
+    private final SnapshotService snapshotService;
+    private final DeadLetterPublisher deadLetterPublisher;
+    private final int defaultRatePerSecond;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReplayStatus lastStatus;
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+
+    private final Counter replaySuccessCounter;
+    private final Counter replayFailureCounter;
+    private final Counter replaySupersededCounter;
+    private final Timer replayTimer;
+
+    public DeadLetterReplayService(ConsumerFactory<String, PositionLoadFailure> deadLetterConsumerFactory,
+                                   PositionLoadService positionLoadService,
+                                   SnapshotService snapshotService,
+                                   DeadLetterPublisher deadLetterPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${fxanalyzer.position.dlt.replay.rate-per-second:20}") int defaultRatePerSecond) {
+        this.deadLetterConsumerFactory = deadLetterConsumerFactory;
+        this.positionLoadService = positionLoadService;
+        this.snapshotService = snapshotService;
+        this.deadLetterPublisher = deadLetterPublisher;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+
+        this.replaySuccessCounter = Counter.builder("position.loader.dlt.replayed")
+                .description("Dead-lettered messages replayed")
+                .tag("result", "success")
+                .register(meterRegistry);
+
+        this.replayFailureCounter = Counter.builder("position.loader.dlt.replayed")
+                .description("Dead-lettered messages replayed")
+                .tag("result", "failed")
+                .register(meterRegistry);
+
+        this.replaySupersededCounter = Counter.builder("position.loader.dlt.replayed")
+                .description("Dead-lettered messages replayed")
+                .tag("result", "superseded")
+                .register(meterRegistry);
+
+        this.replayTimer = Timer.builder("position.loader.dlt.replay.time")
+                .description("Time to reload one dead-lettered message")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        Gauge.builder("position.loader.dlt.replay.running", running, r -> r.get() ? 1 : 0)
+                .description("1 while a DLT replay is in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start replaying up to maxMessages in the background.
+     *
+     * @throws IllegalStateException if a replay is already running
+     */
+    public ReplayStatus startReplay(int maxMessages, Integer ratePerSecond) {
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be positive");
+        }
+        int rate = ratePerSecond != null ? ratePerSecond : defaultRatePerSecond;
+        if (rate <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A DLT replay is already running");
+        }
+
+        replayed.set(0);
+        failed.set(0);
+        superseded.set(0);
+        LocalDateTime startedAt = LocalDateTime.now();
+        lastStatus = status(startedAt, null, maxMessages, rate);
+        Thread.ofVirtual().name("dlt-replay").start(() -> {
+            try {
+                replay(maxMessages, rate);
+            } catch (Exception e) {
+                log.error("DLT replay stopped: {}", e.getMessage(), e);
+            } finally {
+                lastStatus = status(startedAt, LocalDateTime.now(), maxMessages, rate);
+                running.set(false);
+            }
+        });
+        return lastStatus;
+    }
+
+    public ReplayStatus getStatus() {
+        ReplayStatus status = lastStatus;
+        if (status == null) {
+            return ReplayStatus.builder().running(false).build();
+        }
+        if (running.get()) {
+            return status(status.getStartedAt(), null, status.getMaxMessages(), status.getRatePerSecond());
+        }
+        return status;
+    }
+
+    private void replay(int maxMessages, int ratePerSecond) {
+        RateLimiter limiter = RateLimiter.of("dlt-replay", RateLimiterConfig.custom()
+                .limitForPeriod(ratePerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofMinutes(1))
+                .build());
+
+        try (Consumer<String, PositionLoadFailure> consumer = deadLetterConsumerFactory.createConsumer()) {
+            String topic = deadLetterPublisher.getDeadLetterTopic();
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> end = new HashMap<>(consumer.endOffsets(partitions));
+            end.entrySet().removeIf(e -> consumer.position(e.getKey()) >= e.getValue());
+            log.info("DLT replay started: up to {} messages at {}/s from {} partition(s)",
+                    maxMessages, ratePerSecond, end.size());
+
+            int processed = 0;
+            while (!end.isEmpty() && processed < maxMessages) {
+                ConsumerRecords<String, PositionLoadFailure> records = consumer.poll(POLL_TIMEOUT);
+                Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+                for (ConsumerRecord<String, PositionLoadFailure> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    Long endOffset = end.get(partition);
+                    if (endOffset == null || record.offset() >= endOffset || processed >= maxMessages) {
+                        continue;
+                    }
+                    limiter.acquirePermission();
+                    replayOne(record.value());
+                    processed++;
+                    commits.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                    if (record.offset() + 1 >= endOffset) {
+                        end.remove(partition);
+                    }
+                }
+                // Records polled but not replayed are left for the next run
+                if (!commits.isEmpty()) {
+                    consumer.commitSync(commits);
+                }
+            }
+            log.info("DLT replay finished: {} reloaded, {} failed again, {} superseded",
+                    replayed.get(), failed.get(), superseded.get());
+        }
+    }
+
+    private void replayOne(PositionLoadFailure failure) {
+        if (failure == null || failure.getMessage() == null) {
+            log.warn("Skipping DLT record without a message");
+            return;
+        }
+        if (isSuperseded(failure.getMessage())) {
+            superseded.incrementAndGet();
+            replaySupersededCounter.increment();
+            log.info("Skipping DLT message {} for account {}: the active snapshot is newer",
+                    failure.getMessage().getMessageId(), failure.getMessage().getAccountNumber());
+            return;
+        }
+        try {
+            replayTimer.record(() -> positionLoadService.processPositionMessage(failure.getMessage()));
+            replayed.incrementAndGet();
+            replaySuccessCounter.increment();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            replayFailureCounter.increment();
+            deadLetterPublisher.publish(failure.toBuilder()
+                    .errorClass(e.getClass().getName())
+                    .errorMessage(e.getMessage())
+                    .replayCount(failure.getReplayCount() + 1)
+                    .failedAt(LocalDateTime.now())
+                    .build(), PositionLoadFailure.REASON_REPLAY_FAILED);
+        }
+    }
+
+    /**
+     * True when the account's active snapshot for the message's date and type was
+     * taken, or last updated, after the message, so replaying it (snapshot or
+     * update) would move the account back in time.
+     */
+    private boolean isSuperseded(MspmPositionMessage message) {
+        LocalDateTime messageTime = message.messageTime();
+        if (messageTime == null || message.getAccountNumber() == null
+                || message.getSnapshotType() == null || message.getSnapshotDate() == null) {
+            return false;
+        }
+        return snapshotService.findActiveSnapshot(message.getAccountNumber(), message.getSnapshotType(),
+                        message.getSnapshotDate())
+                .map(Snapshot::getEffectiveTime)
+                .filter(loadedTime -> loadedTime.isAfter(messageTime))
+                .isPresent();
+    }
+
+    private ReplayStatus status(LocalDateTime startedAt, LocalDateTime finishedAt, int maxMessages, int rate) {
+        return ReplayStatus.builder()
+                .running(finishedAt == null)
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .maxMessages(maxMessages)
+                .ratePerSecond(rate)
+                .replayed(replayed.get())
+                .failed(failed.get())
+                .superseded(superseded.get())
+                .build();
+    }
+
+    /**
+     * Progress of the current or last replay
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class ReplayStatus {
+        private boolean running;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private int maxMessages;
+        private int ratePerSecond;
+        private long replayed;
+        private long failed;
+        private long superseded;
+    }
+}
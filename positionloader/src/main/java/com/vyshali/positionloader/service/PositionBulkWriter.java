@@ -0,0 +1,226 @@
+package com.vyshali.positionloader.service;
+
+import com.vyshali.fxanalyzer.common.entity.Exposure;
+import com.vyshali.fxanalyzer.common.entity.Position;
+import com.vyshali.fxanalyzer.positionloader.config.PositionWriterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes positions and their exposures without going through the ORM.
+ *
+ * Ids are taken from the tables' own sequences in one round trip per table,
+ * so exposures can reference their positions before anything is written, and
+ * nothing enters the persistence context. The rows then go out either as
+ * multi-row INSERTs or as one COPY per table. Must be called inside a
+ * transaction, after pending JPA changes (the snapshot) have been flushed.
+ */
+@Slf4j
+@Component
+public class PositionBulkWriter {
+
+    private static final String POSITION_COLUMNS =
+            "position_id, snapshot_id, account_id, product_id, quantity, cost_basis_local, cost_basis_base, " +
+            "market_value_local, market_value_base, unrealized_pnl_local, unrealized_pnl_base, price_used, " +
+            "fx_rate_used, position_type, source_system, is_excluded";
+    private static final String POSITION_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] POSITION_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
+            Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
+            Types.NUMERIC, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN};
+
+    private static final String EXPOSURE_COLUMNS =
+            "exposure_id, position_id, product_id, exposure_type, currency, weight_percent, " +
+            "exposure_amount_local, exposure_amount_base";
+    private static final String EXPOSURE_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] EXPOSURE_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC,
+            Types.NUMERIC, Types.NUMERIC};
+
+    private static final String NEXT_IDS =
+            "SELECT nextval(pg_get_serial_sequence(?, ?)) FROM generate_series(1, ?)";
+
+    // COPY data is sent in pieces of about this size
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PositionWriterProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public PositionBulkWriter(JdbcTemplate jdbcTemplate,
+                              PositionWriterProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Write the positions and their exposures, setting every generated id.
+     */
+    public void write(List<Position> positions, PositionWriteMode mode) {
+        if (mode == PositionWriteMode.JPA) {
+            throw new IllegalArgumentException("JPA writes go through PositionRepository");
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        Timer.builder("position.loader.write.time")
+                .description("Time to write a snapshot's positions and exposures")
+                .tag("mode", mode.name())
+                .register(meterRegistry)
+                .record(() -> {
+                    List<Exposure> exposures = assignIds(positions);
+                    if (mode == PositionWriteMode.COPY) {
+                        copy(positions, exposures);
+                    } else {
+                        insert(positions, exposures);
+                    }
+                    log.debug("Wrote {} positions and {} exposures ({})", positions.size(), exposures.size(), mode);
+                });
+    }
+
+    private List<Exposure> assignIds(List<Position> positions) {
+        List<Exposure> exposures = new ArrayList<>();
+        positions.forEach(position -> exposures.addAll(position.getExposures()));
+
+        List<Long> positionIds = nextIds("positions", "position_id", positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            positions.get(i).setPositionId(positionIds.get(i));
+        }
+        List<Long> exposureIds = nextIds("exposures", "exposure_id", exposures.size());
+        for (int i = 0; i < exposures.size(); i++) {
+            exposures.get(i).setExposureId(exposureIds.get(i));
+        }
+        return exposures;
+    }
+
+    private List<Long> nextIds(String table, String column, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(NEXT_IDS, Long.class, table, column, count);
+    }
+
+    // ==================== Rows ====================
+
+    private static Object[] positionRow(Position p) {
+        return new Object[]{
+                p.getPositionId(), p.getSnapshot().getSnapshotId(), p.getAccount().getAccountId(),
+                p.getProduct().getProductId(), p.getQuantity(), p.getCostBasisLocal(), p.getCostBasisBase(),
+                p.getMarketValueLocal(), p.getMarketValueBase(), p.getUnrealizedPnlLocal(), p.getUnrealizedPnlBase(),
+                p.getPriceUsed(), p.getFxRateUsed(), p.getPositionType(), p.getSourceSystem(),
+                Boolean.TRUE.equals(p.getIsExcluded())};
+    }
+
+    private static Object[] exposureRow(Exposure e) {
+        return new Object[]{
+                e.getExposureId(), e.getPosition().getPositionId(), e.getProduct().getProductId(),
+                e.getExposureType(), e.getCurrency(), e.getWeightPercent(),
+                e.getExposureAmountLocal(), e.getExposureAmountBase()};
+    }
+
+    // ==================== Multi-row INSERT ====================
+
+    private void insert(List<Position> positions, List<Exposure> exposures) {
+        insertRows("positions", POSITION_COLUMNS, POSITION_ROW, POSITION_TYPES,
+                positions.stream().map(PositionBulkWriter::positionRow).toList());
+        insertRows("exposures", EXPOSURE_COLUMNS, EXPOSURE_ROW, EXPOSURE_TYPES,
+                exposures.stream().map(PositionBulkWriter::exposureRow).toList());
+    }
+
+    private void insertRows(String table, String columns, String row, int[] types, List<Object[]> rows) {
+        int chunkSize = properties.getInsertChunkSize();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            String sql = "INSERT INTO " + table + " (" + columns + ") VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), row));
+
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (Object[] values : chunk) {
+                    for (int c = 0; c < values.length; c++) {
+                        ps.setObject(i++, values[c], types[c]);
+                    }
+                }
+                return ps;
+            });
+        }
+    }
+
+    // ==================== COPY ====================
+
+    private void copy(List<Position> positions, List<Exposure> exposures) {
+        copyRows("positions", POSITION_COLUMNS, positions.stream().map(PositionBulkWriter::positionRow).toList());
+        copyRows("exposures", EXPOSURE_COLUMNS, exposures.stream().map(PositionBulkWriter::exposureRow).toList());
+    }
+
+    private void copyRows(String table, String columns, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "COPY " + table + " (" + columns + ") FROM STDIN WITH (FORMAT csv)";
+        // The transaction's connection, so the rows commit or roll back with the snapshot
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_BUFFER_BYTES + 1024);
+                StringBuilder line = new StringBuilder(256);
+                for (Object[] values : rows) {
+                    line.setLength(0);
+                    appendCsv(line, values);
+                    buffer.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+                    if (buffer.size() >= COPY_BUFFER_BYTES) {
+                        copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                        buffer.reset();
+                    }
+                }
+                if (buffer.size() > 0) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                }
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    /**
+     * One CSV line: nulls as empty fields, text always quoted so "" stays an empty string.
+     */
+    private static void appendCsv(StringBuilder line, Object[] values) {
+        for (int c = 0; c < values.length; c++) {
+            if (c > 0) {
+                line.append(',');
+            }
+            Object value = values[c];
+            if (value instanceof String text) {
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else if (value instanceof BigDecimal number) {
+                line.append(number.toPlainString());
+            } else if (value != null) {
+                line.append(value);
+            }
+        }
+        line.append('\n');
+    }
+}
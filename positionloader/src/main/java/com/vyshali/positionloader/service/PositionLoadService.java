@@ -17,6 +17,8 @@ import java.util.concurrent.TimeUnit;
 /**
  * Main service for orchestrating position loading from MSPM.
  * Coordinates snapshot creation, position persistence, and event publishing.
+ * POSITION_SNAPSHOT messages replace the account's snapshot; POSITION_UPDATE
+ * messages change only the positions they carry in the active one.
  */
 @Slf4j
 @Service
@@ -60,7 +62,8 @@ public class PositionLoadService {
 
     /**
      * Process a single MSPM position message.
-     * Creates snapshot, persists positions, and publishes completion event.
+     * Creates snapshot (or applies an update to the active one), persists
+     * positions, and publishes completion event.
      */
     @Transactional
     public void processPositionMessage(MspmPositionMessage message) {
@@ -75,6 +78,11 @@ public class PositionLoadService {
             // Validate message
             validateMessage(message);
             
+            if (message.isUpdate()) {
+                applyPositionUpdate(message);
+                return;
+            }
+            
             // Create or find snapshot
             Snapshot snapshot = snapshotService.createSnapshot(
                     message.getAccountNumber(),
@@ -109,6 +117,37 @@ public class PositionLoadService {
         }
     }
 
+    /**
+     * Apply a POSITION_UPDATE to the active snapshot, creating an empty one
+     * when the account has none yet for that date and type.
+     */
+    private void applyPositionUpdate(MspmPositionMessage message) {
+        Snapshot snapshot = snapshotService.lockActiveSnapshot(
+                message.getAccountNumber(),
+                message.getSnapshotType(),
+                message.getSnapshotDate()
+        ).orElseGet(() -> snapshotService.createSnapshot(
+                message.getAccountNumber(),
+                message.getSnapshotType(),
+                message.getSnapshotDate(),
+                message.getSnapshotTime(),
+                message.getSourceSystem()
+        ));
+        
+        int applied = positionPersistenceService.applyPositionUpdates(snapshot, message.getPositions());
+        // Lets DeadLetterReplayService tell that a replayed update is older than what is loaded
+        snapshot.recordUpdate(message.messageTime());
+        
+        // The event reports the snapshot's size, as for a full load
+        publishPositionLoadedEvent(snapshot, snapshot.getPositionCount());
+        
+        messagesProcessedCounter.increment();
+        positionsLoadedCounter.increment(applied);
+        
+        log.info("Successfully applied update {} - {} positions changed in snapshot {}",
+                message.getMessageId(), applied, snapshot.getSnapshotId());
+    }
+
     /**
      * Validate incoming MSPM message.
      */
@@ -4,7 +4,9 @@ import com.vyshali.fxanalyzer.common.entity.*;
 import com.vyshali.fxanalyzer.common.exception.EntityNotFoundException;
 import com.vyshali.fxanalyzer.common.repository.*;
 import com.vyshali.fxanalyzer.common.util.CalculationUtil;
+import com.vyshali.fxanalyzer.positionloader.config.PositionWriterProperties;
 import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import com.vyshali.fxanalyzer.positionloader.service.ProductResolver.ProductKey;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,12 +14,18 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for persisting positions from MSPM messages.
- * Handles product lookup/creation and exposure calculation.
+ * Handles product lookup/creation (once per message, see ProductResolver)
+ * and exposure calculation. Positions are written through JPA or the bulk
+ * writer, as configured per snapshot type (fxanalyzer.position.writer).
+ * POSITION_UPDATE messages are applied to the existing snapshot instead.
  */
 @Slf4j
 @Service
@@ -25,9 +33,11 @@ import java.util.Optional;
 public class PositionPersistenceService {
 
     private final PositionRepository positionRepository;
-    private final ProductRepository productRepository;
+    private final ProductResolver productResolver;
     private final AccountRepository accountRepository;
     private final ExposureRepository exposureRepository;
+    private final PositionBulkWriter positionBulkWriter;
+    private final PositionWriterProperties writerProperties;
 
     /**
      * Persist positions from MSPM message to database.
@@ -35,6 +45,15 @@ public class PositionPersistenceService {
      */
     @Transactional
     public int persistPositions(Snapshot snapshot, List<MspmPositionMessage.PositionData> positionDataList) {
+        return persistPositions(snapshot, positionDataList, writerProperties.modeFor(snapshot.getSnapshotType()));
+    }
+
+    /**
+     * Persist positions with an explicit write mode.
+     */
+    @Transactional
+    public int persistPositions(Snapshot snapshot, List<MspmPositionMessage.PositionData> positionDataList,
+                                PositionWriteMode mode) {
         
         if (positionDataList == null || positionDataList.isEmpty()) {
             log.warn("No positions to persist for snapshot {}", snapshot.getSnapshotId());
@@ -45,9 +64,12 @@ public class PositionPersistenceService {
         List<Position> positions = new ArrayList<>();
         BigDecimal totalMvBase = BigDecimal.ZERO;
         
+        // Find or create every product in the message up front
+        Map<ProductKey, Product> products = productResolver.resolve(positionDataList);
+        
         for (MspmPositionMessage.PositionData data : positionDataList) {
             try {
-                Position position = createPosition(snapshot, account, data);
+                Position position = createPosition(snapshot, account, data, products);
                 positions.add(position);
                 
                 if (position.getMarketValueBase() != null) {
@@ -59,24 +81,148 @@ public class PositionPersistenceService {
             }
         }
         
-        // Batch save positions
-        List<Position> savedPositions = positionRepository.saveAll(positions);
-        log.info("Saved {} positions for snapshot {}", savedPositions.size(), snapshot.getSnapshotId());
+        int saved;
+        if (mode == PositionWriteMode.JPA) {
+            // Batch save positions
+            saved = positionRepository.saveAll(positions).size();
+        } else {
+            // The snapshot row must be in the database before positions reference it
+            positionRepository.flush();
+            positionBulkWriter.write(positions, mode);
+            saved = positions.size();
+        }
+        log.info("Saved {} positions for snapshot {} ({})", saved, snapshot.getSnapshotId(), mode);
         
         // Update snapshot totals
-        snapshot.setPositionCount(savedPositions.size());
+        snapshot.setPositionCount(saved);
         snapshot.setTotalMvBase(totalMvBase);
         
-        return savedPositions.size();
+        return saved;
+    }
+
+    /**
+     * Apply a POSITION_UPDATE to an existing snapshot. Each position replaces
+     * the snapshot's position for the same product and position type, exposures
+     * included; it is added if there is none and removed if its quantity is zero.
+     * Snapshot totals are adjusted by the difference, so the cost follows the
+     * number of changes rather than the size of the book. The caller must hold
+     * the snapshot's row lock (see SnapshotService.lockActiveSnapshot).
+     * Returns the count of positions applied.
+     */
+    @Transactional
+    public int applyPositionUpdates(Snapshot snapshot, List<MspmPositionMessage.PositionData> positionDataList) {
+        
+        if (positionDataList == null || positionDataList.isEmpty()) {
+            log.warn("No position updates to apply for snapshot {}", snapshot.getSnapshotId());
+            return 0;
+        }
+        
+        Account account = snapshot.getAccount();
+        Map<ProductKey, Product> products = productResolver.resolve(positionDataList);
+        
+        // Only the positions this update touches are loaded
+        Map<PositionKey, Position> current = new HashMap<>();
+        Set<Long> productIds = products.values().stream()
+                .map(Product::getProductId)
+                .collect(Collectors.toSet());
+        if (!productIds.isEmpty()) {
+            for (Position position : positionRepository.findBySnapshotAndProductsWithExposures(
+                    snapshot.getSnapshotId(), productIds)) {
+                current.putIfAbsent(PositionKey.of(position), position);
+            }
+        }
+        
+        List<Position> added = new ArrayList<>();
+        int countDelta = 0;
+        BigDecimal mvDelta = BigDecimal.ZERO;
+        int applied = 0;
+        
+        for (MspmPositionMessage.PositionData data : positionDataList) {
+            try {
+                Position incoming = createPosition(snapshot, account, data, products);
+                PositionKey key = PositionKey.of(incoming);
+                Position existing = current.get(key);
+                boolean closed = incoming.getQuantity() != null && incoming.getQuantity().signum() == 0;
+                
+                if (existing != null) {
+                    mvDelta = CalculationUtil.subtract(mvDelta, existing.getMarketValueBase());
+                }
+                if (closed) {
+                    if (existing != null) {
+                        removePosition(existing, added);
+                        current.remove(key);
+                        countDelta--;
+                    }
+                } else if (existing != null) {
+                    updatePosition(existing, incoming);
+                    mvDelta = CalculationUtil.add(mvDelta, incoming.getMarketValueBase());
+                } else {
+                    added.add(incoming);
+                    current.put(key, incoming);
+                    countDelta++;
+                    mvDelta = CalculationUtil.add(mvDelta, incoming.getMarketValueBase());
+                }
+                applied++;
+            } catch (Exception e) {
+                log.error("Failed to apply position update for {}/{}: {}", 
+                        data.getIdentifierType(), data.getIdentifier(), e.getMessage());
+            }
+        }
+        
+        positionRepository.saveAll(added);
+        
+        // Adjust snapshot totals by what changed
+        int positionCount = snapshot.getPositionCount() != null ? snapshot.getPositionCount() : 0;
+        snapshot.setPositionCount(positionCount + countDelta);
+        snapshot.setTotalMvBase(CalculationUtil.add(snapshot.getTotalMvBase(), mvDelta));
+        
+        log.info("Applied {} position updates to snapshot {} ({} added or removed, MV change {})",
+                applied, snapshot.getSnapshotId(), countDelta, mvDelta);
+        return applied;
+    }
+
+    /**
+     * Overwrite a stored position with the values of an update. The exclusion
+     * flag is kept, as it is set in FX Analyzer rather than by MSPM.
+     */
+    private void updatePosition(Position existing, Position incoming) {
+        existing.setQuantity(incoming.getQuantity());
+        existing.setCostBasisLocal(incoming.getCostBasisLocal());
+        existing.setCostBasisBase(incoming.getCostBasisBase());
+        existing.setMarketValueLocal(incoming.getMarketValueLocal());
+        existing.setMarketValueBase(incoming.getMarketValueBase());
+        existing.setUnrealizedPnlLocal(incoming.getUnrealizedPnlLocal());
+        existing.setUnrealizedPnlBase(incoming.getUnrealizedPnlBase());
+        existing.setPriceUsed(incoming.getPriceUsed());
+        existing.setFxRateUsed(incoming.getFxRateUsed());
+        existing.setSourceSystem(incoming.getSourceSystem());
+        
+        // Old exposures are deleted through orphan removal
+        existing.getExposures().clear();
+        for (Exposure exposure : new ArrayList<>(incoming.getExposures())) {
+            existing.addExposure(exposure);
+        }
+    }
+
+    private void removePosition(Position existing, List<Position> added) {
+        if (existing.getPositionId() == null) {
+            // Added earlier in the same update and not saved yet
+            added.remove(existing);
+        } else {
+            positionRepository.delete(existing);
+        }
     }
 
     /**
      * Create a Position entity from MSPM position data.
      */
-    private Position createPosition(Snapshot snapshot, Account account, MspmPositionMessage.PositionData data) {
+    private Position createPosition(Snapshot snapshot, Account account, MspmPositionMessage.PositionData data,
+                                    Map<ProductKey, Product> products) {
         
-        // Find or create product
-        Product product = findOrCreateProduct(data);
+        Product product = products.get(ProductKey.of(data));
+        if (product == null) {
+            throw new IllegalStateException("Product could not be resolved");
+        }
         
         // Calculate unrealized P&L if not provided
         BigDecimal unrealizedPnlLocal = CalculationUtil.subtract(
@@ -116,37 +262,6 @@ public class PositionPersistenceService {
         return position;
     }
 
-    /**
-     * Find existing product or create a new one.
-     */
-    private Product findOrCreateProduct(MspmPositionMessage.PositionData data) {
-        Optional<Product> existing = productRepository.findByIdentifierTypeAndIdentifier(
-                data.getIdentifierType(), data.getIdentifier());
-        
-        if (existing.isPresent()) {
-            return existing.get();
-        }
-        
-        // Create new product
-        Product product = Product.builder()
-                .identifierType(data.getIdentifierType())
-                .identifier(data.getIdentifier())
-                .ticker(data.getTicker())
-                .securityDescription(data.getSecurityDescription())
-                .assetClass(data.getAssetClass() != null ? data.getAssetClass() : "EQUITY")
-                .issueCurrency(data.getIssueCurrency())
-                .settlementCurrency(data.getSettlementCurrency() != null ? 
-                        data.getSettlementCurrency() : data.getIssueCurrency())
-                .isActive(true)
-                .build();
-        
-        product = productRepository.save(product);
-        log.info("Created new product: {}/{} - {}", 
-                product.getIdentifierType(), product.getIdentifier(), product.getTicker());
-        
-        return product;
-    }
-
     /**
      * Create an Exposure entity from exposure data.
      */
@@ -195,4 +310,13 @@ public class PositionPersistenceService {
         log.info("Deleted {} positions for snapshot {}", positions.size(), snapshotId);
         return positions.size();
     }
+
+    /**
+     * Identifies a position within a snapshot for updates.
+     */
+    private record PositionKey(Long productId, String positionType) {
+        static PositionKey of(Position position) {
+            return new PositionKey(position.getProduct().getProductId(), position.getPositionType());
+        }
+    }
 }
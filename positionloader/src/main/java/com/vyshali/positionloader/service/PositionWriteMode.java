@@ -0,0 +1,16 @@
+package com.vyshali.positionloader.service;
+
+/**
+ * How a snapshot's positions and exposures are written.
+ */
+public enum PositionWriteMode {
+
+    /** Position entities with cascaded exposures through positionRepository.saveAll. */
+    JPA,
+
+    /** Multi-row INSERT statements with ids taken from the table sequences up front. */
+    MULTI_ROW,
+
+    /** PostgreSQL COPY ... FROM STDIN, ids taken from the table sequences up front. */
+    COPY
+}
@@ -0,0 +1,254 @@
+package com.vyshali.positionloader.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vyshali.fxanalyzer.common.entity.Product;
+import com.vyshali.fxanalyzer.common.repository.ProductRepository;
+import com.vyshali.fxanalyzer.positionloader.dto.MspmPositionMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the products of a whole MSPM message at once.
+ *
+ * Keys are looked up in a bounded in-process index first, then everything
+ * it lacks in one IN query per chunk, and products still unknown are created
+ * with a single multi-row INSERT ... ON CONFLICT DO NOTHING. A product created
+ * concurrently by another consumer thread is simply read back afterwards, so
+ * two messages introducing the same security never fail on the unique key.
+ *
+ * Products created here only enter the index once their transaction commits,
+ * so a rolled-back load cannot leave ids behind that do not exist.
+ */
+@Slf4j
+@Component
+public class ProductResolver {
+
+    private static final String INSERT_PRODUCTS =
+            "INSERT INTO products (identifier_type, identifier, ticker, security_description, asset_class, " +
+            "issue_currency, settlement_currency, is_active) VALUES ";
+    private static final String PRODUCT_ROW = "(?, ?, ?, ?, ?, ?, ?, TRUE)";
+    private static final String INSERT_PRODUCTS_TAIL = " ON CONFLICT (identifier_type, identifier) DO NOTHING";
+
+    private static final String WARM_PRODUCTS =
+            "SELECT product_id, identifier_type, identifier, ticker, security_description, asset_class, " +
+            "issue_currency, settlement_currency, risk_region, is_active FROM products " +
+            "WHERE is_active = TRUE ORDER BY updated_at DESC LIMIT ?";
+
+    private static final RowMapper<Product> PRODUCT_MAPPER = (rs, rowNum) -> Product.builder()
+            .productId(rs.getLong("product_id"))
+            .identifierType(rs.getString("identifier_type"))
+            .identifier(rs.getString("identifier"))
+            .ticker(rs.getString("ticker"))
+            .securityDescription(rs.getString("security_description"))
+            .assetClass(rs.getString("asset_class"))
+            .issueCurrency(rs.getString("issue_currency"))
+            .settlementCurrency(rs.getString("settlement_currency"))
+            .riskRegion(rs.getString("risk_region"))
+            .isActive(rs.getBoolean("is_active"))
+            .build();
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<ProductKey, Product> index;
+    private final long indexMaxSize;
+    private final int chunkSize;
+    private final boolean warmOnStartup;
+
+    private final Counter indexHitCounter;
+    private final Counter dbHitCounter;
+    private final Counter createdCounter;
+
+    public ProductResolver(ProductRepository productRepository,
+                           JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${fxanalyzer.position.products.index-max-size:100000}") long indexMaxSize,
+                           @Value("${fxanalyzer.position.products.index-ttl-minutes:60}") int indexTtlMinutes,
+                           @Value("${fxanalyzer.position.products.chunk-size:1000}") int chunkSize,
+                           @Value("${fxanalyzer.position.products.warm-on-startup:true}") boolean warmOnStartup) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexMaxSize = indexMaxSize;
+        this.chunkSize = chunkSize;
+        this.warmOnStartup = warmOnStartup;
+
+        // The TTL only bounds how long edits to a product's static data go unseen
+        this.index = Caffeine.newBuilder()
+                .maximumSize(indexMaxSize)
+                .expireAfterWrite(indexTtlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, index, "position.loader.products");
+
+        this.indexHitCounter = resolvedCounter(meterRegistry, "index");
+        this.dbHitCounter = resolvedCounter(meterRegistry, "db");
+        this.createdCounter = resolvedCounter(meterRegistry, "created");
+    }
+
+    private static Counter resolvedCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("position.loader.products.resolved")
+                .description("Products resolved for incoming positions, by where they were found")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fill the index with the most recently updated active products.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmIndex() {
+        if (!warmOnStartup) {
+            return;
+        }
+        try {
+            List<Product> products = jdbcTemplate.query(WARM_PRODUCTS, PRODUCT_MAPPER, indexMaxSize);
+            products.forEach(product -> index.put(ProductKey.of(product), product));
+            log.info("Product index warmed with {} products", products.size());
+        } catch (Exception e) {
+            log.warn("Failed to warm product index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Find or create the product of every position. Positions without an
+     * identifier, or unknown ones lacking the data to create a product, are left out.
+     * Must be called inside a transaction.
+     */
+    public Map<ProductKey, Product> resolve(List<MspmPositionMessage.PositionData> positions) {
+        Map<ProductKey, MspmPositionMessage.PositionData> byKey = new LinkedHashMap<>();
+        for (MspmPositionMessage.PositionData data : positions) {
+            if (data.getIdentifierType() != null && data.getIdentifier() != null) {
+                byKey.putIfAbsent(ProductKey.of(data), data);
+            }
+        }
+
+        Map<ProductKey, Product> resolved = new HashMap<>(index.getAllPresent(byKey.keySet()));
+        indexHitCounter.increment(resolved.size());
+        if (resolved.size() == byKey.size()) {
+            return resolved;
+        }
+
+        Set<ProductKey> missing = byKey.keySet().stream()
+                .filter(key -> !resolved.containsKey(key))
+                .collect(Collectors.toSet());
+        Map<ProductKey, Product> found = findAll(missing);
+        index.putAll(found);
+        resolved.putAll(found);
+        dbHitCounter.increment(found.size());
+
+        missing.removeAll(found.keySet());
+        if (!missing.isEmpty()) {
+            List<MspmPositionMessage.PositionData> toCreate = missing.stream()
+                    .map(byKey::get)
+                    .filter(this::canCreate)
+                    .toList();
+            insertProducts(toCreate);
+            Map<ProductKey, Product> created = findAll(missing);
+            resolved.putAll(created);
+            createdCounter.increment(created.size());
+            indexAfterCommit(created);
+            log.info("Created {} new products", created.size());
+        }
+        return resolved;
+    }
+
+    private Map<ProductKey, Product> findAll(Collection<ProductKey> keys) {
+        Map<ProductKey, Product> found = new HashMap<>(keys.size());
+        List<String> identifiers = keys.stream().map(ProductKey::identifier).distinct().toList();
+        for (int from = 0; from < identifiers.size(); from += chunkSize) {
+            List<String> chunk = identifiers.subList(from, Math.min(from + chunkSize, identifiers.size()));
+            for (Product product : productRepository.findByIdentifierIn(chunk)) {
+                ProductKey key = ProductKey.of(product);
+                if (keys.contains(key)) {
+                    found.put(key, product);
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean canCreate(MspmPositionMessage.PositionData data) {
+        if (data.getIssueCurrency() == null) {
+            log.error("Cannot create product {}/{} without an issue currency",
+                    data.getIdentifierType(), data.getIdentifier());
+            return false;
+        }
+        return true;
+    }
+
+    private void insertProducts(List<MspmPositionMessage.PositionData> products) {
+        // Fixed row order so concurrent inserts of overlapping products lock the unique index in the same order
+        List<MspmPositionMessage.PositionData> sorted = new ArrayList<>(products);
+        sorted.sort(Comparator.comparing(MspmPositionMessage.PositionData::getIdentifierType)
+                .thenComparing(MspmPositionMessage.PositionData::getIdentifier));
+
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            List<MspmPositionMessage.PositionData> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+            String sql = INSERT_PRODUCTS + String.join(", ", Collections.nCopies(chunk.size(), PRODUCT_ROW))
+                    + INSERT_PRODUCTS_TAIL;
+
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (MspmPositionMessage.PositionData data : chunk) {
+                    ps.setString(i++, data.getIdentifierType());
+                    ps.setString(i++, data.getIdentifier());
+                    ps.setString(i++, data.getTicker());
+                    ps.setString(i++, data.getSecurityDescription() != null
+                            ? data.getSecurityDescription() : data.getIdentifier());
+                    ps.setString(i++, data.getAssetClass() != null ? data.getAssetClass() : "EQUITY");
+                    ps.setString(i++, data.getIssueCurrency());
+                    ps.setString(i++, data.getSettlementCurrency() != null
+                            ? data.getSettlementCurrency() : data.getIssueCurrency());
+                }
+                return ps;
+            });
+        }
+    }
+
+    private void indexAfterCommit(Map<ProductKey, Product> created) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index.putAll(created);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index.putAll(created);
+            }
+        });
+    }
+
+    public record ProductKey(String identifierType, String identifier) {
+        public static ProductKey of(MspmPositionMessage.PositionData data) {
+            return new ProductKey(data.getIdentifierType(), data.getIdentifier());
+        }
+
+        public static ProductKey of(Product product) {
+            return new ProductKey(product.getIdentifierType(), product.getIdentifier());
+        }
+    }
+}
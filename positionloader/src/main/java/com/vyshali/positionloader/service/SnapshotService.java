@@ -106,6 +106,16 @@ public class SnapshotService {
                 snapshotId, positionCount, totalMvBase);
     }
 
+    /**
+     * Find the active snapshot and lock it for the rest of the transaction.
+     */
+    @Transactional
+    public Optional<Snapshot> lockActiveSnapshot(String accountNumber, String snapshotType, LocalDate snapshotDate) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> EntityNotFoundException.account(accountNumber));
+        return snapshotRepository.findActiveSnapshotForUpdate(account.getAccountId(), snapshotType, snapshotDate);
+    }
+
     /**
      * Find active snapshot for account and date.
      */
@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.2.1"
     id("io.spring.dependency-management") version "1.1.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 dependencies {
@@ -29,6 +30,9 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-data-redis")
     implementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
     
+    // Kafka - price update events out, upstream price ticks in
+    implementation("org.springframework.kafka:spring-kafka")
+    
     // WebSocket for real-time price updates
     implementation("org.springframework.boot:spring-boot-starter-websocket")
     
@@ -41,11 +45,20 @@ dependencies {
     // Testing
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("io.projectreactor:reactor-test")
+    testImplementation("org.springframework.kafka:spring-kafka-test")
     testImplementation("com.h2database:h2:2.2.224")
     testImplementation("org.testcontainers:junit-jupiter:1.19.3")
     testImplementation("org.testcontainers:postgresql:1.19.3")
 }
 
+// Microbenchmarks (src/jmh/java) - run with ./gradlew :priceservice:jmh
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc") // allocation rate (gc.alloc.rate.norm = bytes/op)
+}
+
 springBoot {
     mainClass.set("com.vyshali.fxanalyzer.priceservice.PriceServiceApplication")
 }
@@ -0,0 +1,79 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot read path: PriceBook.getBestPrice(long) vs the String-keyed Caffeine
+ * lookup in PriceCacheService.getLocalPrice(Long).
+ *
+ * Run with the gc profiler (configured in build.gradle.kts) and compare
+ * gc.alloc.rate.norm: the book read is expected to allocate nothing, the
+ * Caffeine path pays for the key String, the boxed id and the Optional.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PriceBookBenchmark {
+
+    @Param({"5000", "50000"})
+    private int products;
+
+    private PriceBook priceBook;
+    private PriceCacheService cacheService;
+    private long[] productIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        priceBook = new PriceBook(true, products, price -> Duration.ofMinutes(5));
+        // Redis is never touched by the L1-only lookup being measured
+        cacheService = new PriceCacheService(null, new CacheSyncPublisher(null, registry, "bench", false),
+                new PriceBook(false, 0, price -> Duration.ZERO), new PriceTtlPolicy(null, false, 3600, 3600, 72),
+                registry, 3600, 50_000, 3600, false, 0.8, 64);
+
+        productIds = new long[products];
+        for (int i = 0; i < products; i++) {
+            long productId = 1_000L + i * 7L;
+            productIds[i] = productId;
+            PriceDto price = PriceDto.builder()
+                    .productId(productId)
+                    .priceDate(LocalDate.now())
+                    .priceTime(LocalDateTime.now())
+                    .price(BigDecimal.valueOf(100 + i, 2))
+                    .source("REALTIME")
+                    .sourcePriority(2)
+                    .isStale(false)
+                    .build();
+            priceBook.seed(productId, price);
+            cacheService.applyRemotePrice(productId, price); // L1 only
+        }
+    }
+
+    private long nextProductId() {
+        int i = cursor++;
+        if (cursor == productIds.length) {
+            cursor = 0;
+        }
+        return productIds[i];
+    }
+
+    @Benchmark
+    public PriceDto priceBookRead() {
+        return priceBook.getBestPrice(nextProductId());
+    }
+
+    @Benchmark
+    public Optional<PriceDto> caffeineRead() {
+        return cacheService.getLocalPrice(nextProductId());
+    }
+}
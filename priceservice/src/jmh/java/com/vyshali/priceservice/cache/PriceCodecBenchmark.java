@@ -0,0 +1,122 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (current L2 format) vs BinaryPriceCodec for PriceDto and FxRateDto.
+ *
+ * Encode/decode speed comes from the benchmark scores; payload sizes are
+ * printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PriceCodecBenchmark {
+
+    private GenericJackson2JsonRedisSerializer json;
+    private CompactRedisSerializer binary;
+
+    private PriceDto price;
+    private FxRateDto fxRate;
+
+    private byte[] priceJson;
+    private byte[] priceBinary;
+    private byte[] fxRateJson;
+    private byte[] fxRateBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        json = new GenericJackson2JsonRedisSerializer();
+        json.configure(mapper -> mapper.findAndRegisterModules());
+        binary = new CompactRedisSerializer(json, CompactRedisSerializer.WriteFormat.BINARY, true);
+
+        price = PriceDto.builder()
+                .priceId(98_765_432L)
+                .productId(12_345L)
+                .identifier("US0378331005")
+                .ticker("AAPL")
+                .securityDescription("APPLE INC COMMON STOCK")
+                .priceDate(LocalDate.of(2024, 3, 15))
+                .priceTime(LocalDateTime.of(2024, 3, 15, 14, 32, 7, 123_000_000))
+                .price(new BigDecimal("172.625000"))
+                .bidPrice(new BigDecimal("172.610000"))
+                .askPrice(new BigDecimal("172.640000"))
+                .source("REALTIME")
+                .sourcePriority(2)
+                .isStale(false)
+                .currency("USD")
+                .build();
+
+        fxRate = FxRateDto.builder()
+                .fxRateId(4_321L)
+                .currencyPair("EURUSD")
+                .baseCurrency("EUR")
+                .quoteCurrency("USD")
+                .rateDate(LocalDate.of(2024, 3, 15))
+                .rateTime(LocalDateTime.of(2024, 3, 15, 14, 32, 7))
+                .midRate(new BigDecimal("1.08765000"))
+                .bidRate(new BigDecimal("1.08760000"))
+                .askRate(new BigDecimal("1.08770000"))
+                .forwardPoints1M(new BigDecimal("0.00120000"))
+                .forwardPoints3M(new BigDecimal("0.00350000"))
+                .source("WMR")
+                .isStale(false)
+                .build();
+
+        priceJson = json.serialize(price);
+        priceBinary = binary.serialize(price);
+        fxRateJson = json.serialize(fxRate);
+        fxRateBinary = binary.serialize(fxRate);
+
+        System.out.printf("%nPayload bytes: PriceDto json=%d binary=%d, FxRateDto json=%d binary=%d%n",
+                priceJson.length, priceBinary.length, fxRateJson.length, fxRateBinary.length);
+    }
+
+    @Benchmark
+    public byte[] priceEncodeJson() {
+        return json.serialize(price);
+    }
+
+    @Benchmark
+    public byte[] priceEncodeBinary() {
+        return binary.serialize(price);
+    }
+
+    @Benchmark
+    public Object priceDecodeJson() {
+        return json.deserialize(priceJson);
+    }
+
+    @Benchmark
+    public Object priceDecodeBinary() {
+        return binary.deserialize(priceBinary);
+    }
+
+    @Benchmark
+    public byte[] fxRateEncodeJson() {
+        return json.serialize(fxRate);
+    }
+
+    @Benchmark
+    public byte[] fxRateEncodeBinary() {
+        return binary.serialize(fxRate);
+    }
+
+    @Benchmark
+    public Object fxRateDecodeJson() {
+        return json.deserialize(fxRateJson);
+    }
+
+    @Benchmark
+    public Object fxRateDecodeBinary() {
+        return binary.deserialize(fxRateBinary);
+    }
+}
@@ -0,0 +1,84 @@
+package com.vyshali.priceservice.service;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.priceservice.cache.CacheSyncPublisher;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceBook;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceCacheService;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceOverrideIndex;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceStalenessTracker;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceTtlPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch read path: PriceService.getPrices(ids) vs one getPrice(id) per product.
+ *
+ * Every product is in L1 and the price book is off, so both variants resolve
+ * from Caffeine and the score is the in-process cost per batch (key building,
+ * one bulk getAllPresent vs N lookups, timers). On a cache miss the gap is
+ * much wider: the batch pays one MGET and one query per chunk, the per-id
+ * loop a Redis and a database round trip per product, which this benchmark
+ * does not measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PriceBatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int batchSize;
+
+    private PriceService priceService;
+    private List<Long> productIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PriceBook disabledBook = new PriceBook(false, 0, price -> Duration.ZERO);
+        // Redis and the repositories are never touched while every product is in L1
+        PriceCacheService cacheService = new PriceCacheService(null,
+                new CacheSyncPublisher(null, registry, "bench", false),
+                disabledBook, new PriceTtlPolicy(null, false, 3600, 3600, 72),
+                registry, 3600, 50_000, 3600, false, 0.8, 64);
+        priceService = new PriceService(null, null, null, cacheService, disabledBook,
+                new PriceStalenessTracker(registry, 30),
+                new PriceOverrideIndex(null, event -> { }, registry, 300),
+                event -> { }, registry);
+
+        productIds = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long productId = 1_000L + i * 7L;
+            productIds.add(productId);
+            cacheService.applyRemotePrice(productId, PriceDto.builder() // L1 only
+                    .productId(productId)
+                    .priceDate(LocalDate.now())
+                    .priceTime(LocalDateTime.now())
+                    .price(BigDecimal.valueOf(100 + i, 2))
+                    .source("REALTIME")
+                    .sourcePriority(2)
+                    .isStale(false)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<PriceDto> batch() {
+        return priceService.getPrices(productIds);
+    }
+
+    @Benchmark
+    public void perId(Blackhole blackhole) {
+        for (Long productId : productIds) {
+            blackhole.consume(priceService.getPrice(productId));
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding of PriceDto and FxRateDto for the Redis L2 tier.
+ *
+ * Layout: MAGIC, VERSION, TYPE, presence bitmask (varint), then each present
+ * field in declaration order. Numbers are zig-zag varints, decimals are
+ * scale + unscaled value, dates are epoch days, times are nano-of-day.
+ *
+ * MAGIC (0xFB) can never start a UTF-8 JSON document, so a reader can tell
+ * binary and legacy JSON payloads apart from the first byte.
+ */
+public final class BinaryPriceCodec {
+
+    public static final byte MAGIC = (byte) 0xFB;
+    public static final byte VERSION = 1;
+
+    public static final byte TYPE_PRICE = 1;
+    public static final byte TYPE_FX_RATE = 2;
+
+    private static final byte DECIMAL_LONG = 0;
+    private static final byte DECIMAL_BIG = 1;
+
+    private BinaryPriceCodec() {
+        // Utility class - no instantiation
+    }
+
+    /**
+     * True if the payload was written by this codec (any version).
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length >= 3 && bytes[0] == MAGIC;
+    }
+
+    /**
+     * True if this codec can encode the value.
+     */
+    public static boolean supports(Object value) {
+        return value instanceof PriceDto || value instanceof FxRateDto;
+    }
+
+    public static byte[] encode(Object value) {
+        if (value instanceof PriceDto price) {
+            return encodePrice(price);
+        }
+        if (value instanceof FxRateDto rate) {
+            return encodeFxRate(rate);
+        }
+        throw new IllegalArgumentException("Unsupported type for binary price codec: " + value.getClass());
+    }
+
+    public static Object decode(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            throw new IllegalArgumentException("Not a binary price codec payload");
+        }
+        if (bytes[1] != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary price codec version: " + bytes[1]);
+        }
+        Reader in = new Reader(bytes, 3);
+        return switch (bytes[2]) {
+            case TYPE_PRICE -> decodePrice(in);
+            case TYPE_FX_RATE -> decodeFxRate(in);
+            default -> throw new IllegalArgumentException("Unknown binary price codec type: " + bytes[2]);
+        };
+    }
+
+    // ==================== PriceDto ====================
+
+    public static byte[] encodePrice(PriceDto p) {
+        Object[] fields = {
+                p.getPriceId(), p.getProductId(),
+                p.getIdentifier(), p.getTicker(), p.getSecurityDescription(),
+                p.getPriceDate(), p.getPriceTime(),
+                p.getPrice(), p.getBidPrice(), p.getAskPrice(),
+                p.getSource(), p.getSourcePriority(), p.getIsStale(),
+                p.getCurrency()
+        };
+        return encodeFields(TYPE_PRICE, fields);
+    }
+
+    private static PriceDto decodePrice(Reader in) {
+        long present = in.readVarLong();
+        PriceDto p = new PriceDto();
+        int bit = 0;
+        if (has(present, bit++)) p.setPriceId(in.readSignedLong());
+        if (has(present, bit++)) p.setProductId(in.readSignedLong());
+        if (has(present, bit++)) p.setIdentifier(in.readString());
+        if (has(present, bit++)) p.setTicker(in.readString());
+        if (has(present, bit++)) p.setSecurityDescription(in.readString());
+        if (has(present, bit++)) p.setPriceDate(in.readDate());
+        if (has(present, bit++)) p.setPriceTime(in.readDateTime());
+        if (has(present, bit++)) p.setPrice(in.readDecimal());
+        if (has(present, bit++)) p.setBidPrice(in.readDecimal());
+        if (has(present, bit++)) p.setAskPrice(in.readDecimal());
+        if (has(present, bit++)) p.setSource(in.readString());
+        if (has(present, bit++)) p.setSourcePriority((int) in.readSignedLong());
+        if (has(present, bit++)) p.setIsStale(in.readBoolean());
+        if (has(present, bit)) p.setCurrency(in.readString());
+        return p;
+    }
+
+    // ==================== FxRateDto ====================
+
+    public static byte[] encodeFxRate(FxRateDto r) {
+        Object[] fields = {
+                r.getFxRateId(),
+                r.getCurrencyPair(), r.getBaseCurrency(), r.getQuoteCurrency(),
+                r.getRateDate(), r.getRateTime(),
+                r.getMidRate(), r.getBidRate(), r.getAskRate(),
+                r.getForwardPoints1M(), r.getForwardPoints3M(),
+                r.getSource(), r.getIsStale()
+        };
+        return encodeFields(TYPE_FX_RATE, fields);
+    }
+
+    private static FxRateDto decodeFxRate(Reader in) {
+        long present = in.readVarLong();
+        FxRateDto r = new FxRateDto();
+        int bit = 0;
+        if (has(present, bit++)) r.setFxRateId(in.readSignedLong());
+        if (has(present, bit++)) r.setCurrencyPair(in.readString());
+        if (has(present, bit++)) r.setBaseCurrency(in.readString());
+        if (has(present, bit++)) r.setQuoteCurrency(in.readString());
+        if (has(present, bit++)) r.setRateDate(in.readDate());
+        if (has(present, bit++)) r.setRateTime(in.readDateTime());
+        if (has(present, bit++)) r.setMidRate(in.readDecimal());
+        if (has(present, bit++)) r.setBidRate(in.readDecimal());
+        if (has(present, bit++)) r.setAskRate(in.readDecimal());
+        if (has(present, bit++)) r.setForwardPoints1M(in.readDecimal());
+        if (has(present, bit++)) r.setForwardPoints3M(in.readDecimal());
+        if (has(present, bit++)) r.setSource(in.readString());
+        if (has(present, bit)) r.setIsStale(in.readBoolean());
+        return r;
+    }
+
+    // ==================== Field encoding ====================
+
+    private static byte[] encodeFields(byte type, Object[] fields) {
+        long present = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                present |= 1L << i;
+            }
+        }
+
+        Writer out = new Writer(64);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        out.writeVarLong(present);
+        for (Object field : fields) {
+            if (field != null) {
+                out.writeValue(field);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean has(long present, int bit) {
+        return (present & (1L << bit)) != 0;
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int initialCapacity) {
+            this.buf = new byte[initialCapacity];
+        }
+
+        void writeValue(Object value) {
+            if (value instanceof Long l) {
+                writeSignedLong(l);
+            } else if (value instanceof Integer i) {
+                writeSignedLong(i);
+            } else if (value instanceof String s) {
+                writeString(s);
+            } else if (value instanceof BigDecimal d) {
+                writeDecimal(d);
+            } else if (value instanceof LocalDateTime t) {
+                writeSignedLong(t.toLocalDate().toEpochDay());
+                writeVarLong(t.toLocalTime().toNanoOfDay());
+            } else if (value instanceof LocalDate d) {
+                writeSignedLong(d.toEpochDay());
+            } else if (value instanceof Boolean b) {
+                writeByte((byte) (b ? 1 : 0));
+            } else {
+                throw new IllegalArgumentException("Unsupported field type: " + value.getClass());
+            }
+        }
+
+        void writeByte(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeSignedLong(long v) {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeDecimal(BigDecimal d) {
+            writeSignedLong(d.scale());
+            BigInteger unscaled = d.unscaledValue();
+            if (unscaled.bitLength() < 64) {
+                writeByte(DECIMAL_LONG);
+                writeSignedLong(unscaled.longValue());
+            } else {
+                writeByte(DECIMAL_BIG);
+                byte[] bytes = unscaled.toByteArray();
+                writeVarLong(bytes.length);
+                ensure(bytes.length);
+                System.arraycopy(bytes, 0, buf, pos, bytes.length);
+                pos += bytes.length;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed varint in binary price payload");
+                }
+            }
+        }
+
+        long readSignedLong() {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        BigDecimal readDecimal() {
+            int scale = (int) readSignedLong();
+            byte kind = buf[pos++];
+            if (kind == DECIMAL_LONG) {
+                return BigDecimal.valueOf(readSignedLong(), scale);
+            }
+            int length = (int) readVarLong();
+            BigInteger unscaled = new BigInteger(buf, pos, length);
+            pos += length;
+            return new BigDecimal(unscaled, scale);
+        }
+
+        LocalDate readDate() {
+            return LocalDate.ofEpochDay(readSignedLong());
+        }
+
+        LocalDateTime readDateTime() {
+            LocalDate date = LocalDate.ofEpochDay(readSignedLong());
+            return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readVarLong()));
+        }
+
+        boolean readBoolean() {
+            return buf[pos++] != 0;
+        }
+    }
+}
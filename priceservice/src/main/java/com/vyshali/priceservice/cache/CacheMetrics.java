@@ -0,0 +1,157 @@
+package com.vyshali.priceservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters for one cache (prices or FX rates) across its tiers, all tagged
+ * cache=&lt;name&gt;:
+ *
+ * - price.cache.l1.hits / .l1.misses / .l2.hits / .misses (missed both tiers)
+ * - price.cache.latency{tier=l1|l2|db}: read latency per tier, with percentiles.
+ *   L1 reads take tens of nanoseconds, so only one in l1SampleRate is timed.
+ * - price.cache.l2.write.time: Redis writes, single and pipelined
+ * - price.cache.redis.errors{operation}: failed Redis calls
+ *
+ * Caffeine's own statistics (gets, puts, evictions by cause, size) are bound
+ * separately as cache.* meters by PriceCacheService.
+ */
+class CacheMetrics {
+
+    private final String cache;
+    private final MeterRegistry meterRegistry;
+    private final int l1SampleRate;
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter misses;
+    private final Timer l1Timer;
+    private final Timer l2Timer;
+    private final Timer dbTimer;
+    private final Timer l2WriteTimer;
+
+    CacheMetrics(String cache, MeterRegistry meterRegistry, int l1SampleRate) {
+        this.cache = cache;
+        this.meterRegistry = meterRegistry;
+        this.l1SampleRate = Math.max(1, l1SampleRate);
+
+        this.l1Hits = counter("price.cache.l1.hits", "L1 cache hits");
+        this.l1Misses = counter("price.cache.l1.misses", "L1 cache misses");
+        this.l2Hits = counter("price.cache.l2.hits", "L2 cache hits");
+        this.misses = counter("price.cache.misses", "Lookups that missed both L1 and L2");
+
+        this.l1Timer = latencyTimer("l1");
+        this.l2Timer = latencyTimer("l2");
+        this.dbTimer = latencyTimer("db");
+
+        this.l2WriteTimer = Timer.builder("price.cache.l2.write.time")
+                .description("Redis write latency, single and pipelined")
+                .tag("cache", cache)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter counter(String name, String description) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+
+    private Timer latencyTimer(String tier) {
+        return Timer.builder("price.cache.latency")
+                .description("Cache read latency by tier (db = load on a full miss)")
+                .tag("cache", cache)
+                .tag("tier", tier)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    // ==================== Counts ====================
+
+    void l1Hit() {
+        l1Hits.increment();
+    }
+
+    void l1Hits(int count) {
+        l1Hits.increment(count);
+    }
+
+    void l1Miss() {
+        l1Misses.increment();
+    }
+
+    void l1Misses(int count) {
+        l1Misses.increment(count);
+    }
+
+    void l2Hits(int count) {
+        l2Hits.increment(count);
+    }
+
+    void misses(int count) {
+        misses.increment(count);
+    }
+
+    void redisError(String operation) {
+        Counter.builder("price.cache.redis.errors")
+                .description("Failed Redis calls")
+                .tag("cache", cache)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // ==================== Latency ====================
+
+    /**
+     * Start time for an L1 read, or 0 when this read is not sampled.
+     */
+    long startL1() {
+        return l1SampleRate == 1 || ThreadLocalRandom.current().nextInt(l1SampleRate) == 0 ? System.nanoTime() : 0L;
+    }
+
+    void stopL1(long start) {
+        if (start != 0L) {
+            l1Timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    <T> T timeL2(Supplier<T> read) {
+        return l2Timer.record(read);
+    }
+
+    void timeL2Write(Runnable write) {
+        l2WriteTimer.record(write);
+    }
+
+    <T> T timeDb(Supplier<T> load) {
+        return dbTimer.record(load);
+    }
+
+    // ==================== Stats ====================
+
+    long l1HitCount() {
+        return (long) l1Hits.count();
+    }
+
+    long l2HitCount() {
+        return (long) l2Hits.count();
+    }
+
+    long missCount() {
+        return (long) misses.count();
+    }
+
+    long redisErrorCount() {
+        return (long) meterRegistry.find("price.cache.redis.errors").tag("cache", cache).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
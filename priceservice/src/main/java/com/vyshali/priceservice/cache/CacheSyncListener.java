@@ -0,0 +1,98 @@
+package com.vyshali.priceservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies cache changes published by other price-service replicas to the local L1.
+ * Only L1 (plus the FX rate matrix and staleness tracker) is touched; the publishing
+ * replica has already written Redis.
+ */
+@Slf4j
+@Component
+public class CacheSyncListener implements MessageListener {
+
+    private final PriceCacheService cacheService;
+    private final FxRateMatrix fxRateMatrix;
+    private final PriceStalenessTracker stalenessTracker;
+    private final CacheSyncPublisher publisher;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Counter appliedCounter;
+    private final Counter errorCounter;
+
+    public CacheSyncListener(PriceCacheService cacheService,
+                             FxRateMatrix fxRateMatrix,
+                             PriceStalenessTracker stalenessTracker,
+                             CacheSyncPublisher publisher,
+                             RedisTemplate<String, Object> redisTemplate,
+                             MeterRegistry meterRegistry) {
+        this.cacheService = cacheService;
+        this.fxRateMatrix = fxRateMatrix;
+        this.stalenessTracker = stalenessTracker;
+        this.publisher = publisher;
+        this.redisTemplate = redisTemplate;
+
+        this.appliedCounter = Counter.builder("price.cache.sync.applied")
+                .description("Cache sync messages from other replicas applied to L1")
+                .register(meterRegistry);
+
+        this.errorCounter = Counter.builder("price.cache.sync.errors")
+                .description("Cache sync messages that could not be applied")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (!(body instanceof CacheSyncMessage sync)) {
+                log.warn("Ignoring unexpected cache sync payload: {}", body == null ? null : body.getClass());
+                return;
+            }
+            if (publisher.getInstanceId().equals(sync.getOriginId())) {
+                return;
+            }
+            apply(sync);
+            appliedCounter.increment();
+        } catch (Exception e) {
+            errorCounter.increment();
+            log.warn("Failed to apply cache sync message: {}", e.getMessage());
+        }
+    }
+
+    private void apply(CacheSyncMessage sync) {
+        switch (sync.getCacheType()) {
+            case PRICE -> {
+                if (sync.getPrices() != null) {
+                    sync.getPrices().forEach(price -> {
+                        cacheService.applyRemotePrice(price.getProductId(), price);
+                        stalenessTracker.onBestPrice(price);
+                    });
+                    break;
+                }
+                Long productId = Long.valueOf(sync.getKey());
+                if (sync.getAction() == CacheSyncMessage.Action.PUT && sync.getPrice() != null) {
+                    cacheService.applyRemotePrice(productId, sync.getPrice());
+                    stalenessTracker.onBestPrice(sync.getPrice());
+                } else {
+                    cacheService.applyRemotePriceEviction(productId);
+                }
+            }
+            case FX_RATE -> {
+                if (sync.getAction() == CacheSyncMessage.Action.PUT && sync.getFxRate() != null) {
+                    cacheService.applyRemoteFxRate(sync.getKey(), sync.getFxRate());
+                    fxRateMatrix.update(sync.getFxRate());
+                } else {
+                    cacheService.applyRemoteFxRateEviction(sync.getKey());
+                }
+            }
+        }
+        log.debug("Applied cache sync {} {} {}", sync.getAction(), sync.getCacheType(), sync.getKey());
+    }
+}
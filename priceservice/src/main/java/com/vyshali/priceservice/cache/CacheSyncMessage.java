@@ -0,0 +1,39 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cache change broadcast between price-service replicas over Redis pub/sub.
+ * PUT carries the new value; EVICT carries only the key.
+ * A PRICE PUT may instead carry a batch of prices (key unset).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheSyncMessage {
+
+    public enum Action { PUT, EVICT }
+
+    public enum CacheType { PRICE, FX_RATE }
+
+    // Replica that made the change (receivers skip their own messages)
+    private String originId;
+
+    private Action action;
+    private CacheType cacheType;
+
+    // productId for PRICE, currency pair for FX_RATE
+    private String key;
+
+    private PriceDto price;
+    private List<PriceDto> prices;
+    private FxRateDto fxRate;
+}
@@ -0,0 +1,123 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publishes local L1 cache changes so other price-service replicas can apply them.
+ * Publishing is best-effort: a lost message only means a replica serves its
+ * current entry until the L1 TTL, as it did before the bus existed.
+ */
+@Slf4j
+@Component
+public class CacheSyncPublisher {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String channel;
+    private final boolean enabled;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Counter publishedCounter;
+    private final Counter publishErrorCounter;
+
+    public CacheSyncPublisher(RedisTemplate<String, Object> redisTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${fxanalyzer.cache.sync.channel:fxanalyzer:cache:sync}") String channel,
+                              @Value("${fxanalyzer.cache.sync.enabled:true}") boolean enabled) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        this.enabled = enabled;
+
+        this.publishedCounter = Counter.builder("price.cache.sync.published")
+                .description("Cache sync messages published to other replicas")
+                .register(meterRegistry);
+
+        this.publishErrorCounter = Counter.builder("price.cache.sync.publish.errors")
+                .description("Cache sync messages that could not be published")
+                .register(meterRegistry);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void publishPrice(Long productId, PriceDto price) {
+        publish(CacheSyncMessage.builder()
+                .action(CacheSyncMessage.Action.PUT)
+                .cacheType(CacheSyncMessage.CacheType.PRICE)
+                .key(String.valueOf(productId))
+                .price(price)
+                .build());
+    }
+
+    /**
+     * One message for a whole batch of price puts.
+     */
+    public void publishPrices(List<PriceDto> prices) {
+        if (prices.isEmpty()) {
+            return;
+        }
+        publish(CacheSyncMessage.builder()
+                .action(CacheSyncMessage.Action.PUT)
+                .cacheType(CacheSyncMessage.CacheType.PRICE)
+                .prices(prices)
+                .build());
+    }
+
+    public void publishPriceEviction(Long productId) {
+        publish(CacheSyncMessage.builder()
+                .action(CacheSyncMessage.Action.EVICT)
+                .cacheType(CacheSyncMessage.CacheType.PRICE)
+                .key(String.valueOf(productId))
+                .build());
+    }
+
+    public void publishFxRate(String currencyPair, FxRateDto rate) {
+        publish(CacheSyncMessage.builder()
+                .action(CacheSyncMessage.Action.PUT)
+                .cacheType(CacheSyncMessage.CacheType.FX_RATE)
+                .key(currencyPair)
+                .fxRate(rate)
+                .build());
+    }
+
+    public void publishFxRateEviction(String currencyPair) {
+        publish(CacheSyncMessage.builder()
+                .action(CacheSyncMessage.Action.EVICT)
+                .cacheType(CacheSyncMessage.CacheType.FX_RATE)
+                .key(currencyPair)
+                .build());
+    }
+
+    private void publish(CacheSyncMessage message) {
+        if (!enabled) {
+            return;
+        }
+        message.setOriginId(instanceId);
+        try {
+            redisTemplate.convertAndSend(channel, message);
+            publishedCounter.increment();
+        } catch (Exception e) {
+            publishErrorCounter.increment();
+            log.warn("Failed to publish cache sync {} {} {}: {}",
+                    message.getAction(), message.getCacheType(), message.getKey(), e.getMessage());
+        }
+    }
+}
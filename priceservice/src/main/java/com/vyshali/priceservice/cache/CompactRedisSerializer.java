@@ -0,0 +1,65 @@
+package com.vyshali.priceservice.cache;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis value serializer that stores PriceDto/FxRateDto with BinaryPriceCodec
+ * and everything else as JSON.
+ *
+ * Rollout: run with write-format=json and read-json=true until every replica
+ * understands the binary format, switch write-format to binary, and turn
+ * read-json off once the old JSON entries have aged out of Redis.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public enum WriteFormat { JSON, BINARY }
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer;
+    private final WriteFormat writeFormat;
+    private final boolean readJson;
+
+    public CompactRedisSerializer(GenericJackson2JsonRedisSerializer jsonSerializer,
+                                  WriteFormat writeFormat,
+                                  boolean readJson) {
+        this.jsonSerializer = jsonSerializer;
+        this.writeFormat = writeFormat;
+        this.readJson = readJson;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (writeFormat == WriteFormat.BINARY && BinaryPriceCodec.supports(value)) {
+            try {
+                return BinaryPriceCodec.encode(value);
+            } catch (RuntimeException e) {
+                throw new SerializationException("Could not encode " + value.getClass().getSimpleName(), e);
+            }
+        }
+        return jsonSerializer.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (BinaryPriceCodec.isBinary(bytes)) {
+            try {
+                return BinaryPriceCodec.decode(bytes);
+            } catch (RuntimeException e) {
+                throw new SerializationException("Could not decode binary price payload", e);
+            }
+        }
+        // Prices and FX rates only exist as JSON if written before the migration (or by an old replica)
+        Object value = jsonSerializer.deserialize(bytes);
+        if (!readJson && BinaryPriceCodec.supports(value)) {
+            return null;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,81 @@
+package com.vyshali.priceservice.cache;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable N x N mid-rate matrix for all currencies in the FX rate matrix.
+ *
+ * midRates is row-major: midRates[i * n + j] is the number of currencies[j]
+ * per one currencies[i] (1 on the diagonal, null where no route exists).
+ * asOf is the time of the oldest quote any cell was built from (null if none
+ * has a time): every rate in the matrix is at least that fresh.
+ *
+ * Binary layout (big-endian): 'F' 'X', format version, snapshot version (long),
+ * currency count (int), 3 ASCII bytes per currency, then n * n rates as longs
+ * in units of 1e-8 (Long.MIN_VALUE = no route).
+ *
+ * The ETag is a digest of the binary form, so replicas holding the same rates
+ * hand out the same ETag even though their version counters differ.
+ */
+@Getter
+public final class FxMatrixSnapshot {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final int RATE_SCALE = 8;
+    public static final long NO_RATE = Long.MIN_VALUE;
+
+    private final long version;
+    private final LocalDateTime asOf;
+    private final List<String> currencies;
+    private final List<BigDecimal> midRates;
+
+    @JsonIgnore
+    private final byte[] encoded;
+
+    @JsonIgnore
+    private final String etag;
+
+    FxMatrixSnapshot(long version, LocalDateTime asOf, String[] currencies, BigDecimal[] midRates) {
+        this.version = version;
+        this.asOf = asOf;
+        this.currencies = List.of(currencies);
+        this.midRates = Collections.unmodifiableList(Arrays.asList(midRates.clone()));
+        this.encoded = encode(version, currencies, midRates);
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(Arrays.copyOfRange(encoded, 11, encoded.length)) + "\"";
+    }
+
+    /**
+     * Compact binary form; a copy, so callers cannot change the cached bytes.
+     */
+    public byte[] toBytes() {
+        return encoded.clone();
+    }
+
+    private static byte[] encode(long version, String[] currencies, BigDecimal[] midRates) {
+        int n = currencies.length;
+        ByteBuffer buf = ByteBuffer.allocate(2 + 1 + 8 + 4 + n * 3 + midRates.length * 8);
+        buf.put((byte) 'F').put((byte) 'X').put(FORMAT_VERSION);
+        buf.putLong(version);
+        buf.putInt(n);
+        for (String currency : currencies) {
+            buf.put(currency.getBytes(StandardCharsets.US_ASCII), 0, 3);
+        }
+        for (BigDecimal rate : midRates) {
+            // Exact: a rate too large for the fixed-point long fails rather than wrapping
+            buf.putLong(rate == null ? NO_RATE
+                    : rate.setScale(RATE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+        }
+        return buf.array();
+    }
+}
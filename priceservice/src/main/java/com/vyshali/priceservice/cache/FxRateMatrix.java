@@ -0,0 +1,411 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.util.CurrencyUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory N x N FX rate matrix with cross-rate triangulation.
+ *
+ * Every quoted pair fills two cells (the quote and its inverse). Every other
+ * cell is derived through the vehicle currencies in order of preference
+ * (USD, then EUR by default): EURJPY = EURUSD x USDJPY. Derived cells are
+ * precomputed, so resolving any pair is two map lookups and an array read.
+ *
+ * A new quote only recomputes the rows and columns of its two currencies -
+ * the only cells that can use it as a leg. Writers serialize on a lock and
+ * publish a new immutable snapshot that shares every row it did not change;
+ * readers never block.
+ *
+ * Quotes older than the staleness threshold (or from an earlier date) are not
+ * served by resolve(), so callers go back to the database for a fresher one.
+ *
+ * The full mid-rate matrix (see FxMatrixSnapshot) is materialized at most
+ * once per version, on first request.
+ */
+@Slf4j
+public class FxRateMatrix {
+
+    public static final String INVERTED_SUFFIX = " (inverted)";
+    private static final String VIA_PREFIX = " (via ";
+
+    private final List<String> supportedPairs;
+    private final List<String> vehicleCurrencies;
+    private final Duration staleAfter;
+    private final Object writeLock = new Object();
+
+    private volatile Snapshot snapshot;
+    private volatile FxMatrixSnapshot published;
+
+    public FxRateMatrix(Collection<String> supportedPairs, List<String> vehicleCurrencies, Duration staleAfter) {
+        this.supportedPairs = supportedPairs.stream()
+                .map(pair -> String.join("", CurrencyUtil.parseCurrencyPair(pair)))
+                .toList();
+        this.vehicleCurrencies = vehicleCurrencies.stream().map(String::toUpperCase).toList();
+        this.staleAfter = staleAfter;
+
+        Map<String, Integer> index = new LinkedHashMap<>();
+        for (String pair : this.supportedPairs) {
+            String[] currencies = CurrencyUtil.parseCurrencyPair(pair);
+            index.putIfAbsent(currencies[0], index.size());
+            index.putIfAbsent(currencies[1], index.size());
+        }
+        for (String vehicle : this.vehicleCurrencies) {
+            index.putIfAbsent(vehicle, index.size());
+        }
+        int n = index.size();
+        this.snapshot = new Snapshot(index.keySet().toArray(String[]::new), Map.copyOf(index),
+                new Quote[n][n], new Quote[n][n], 0L);
+    }
+
+    // ==================== Reads (lock-free) ====================
+
+    /**
+     * Direct, inverted or triangulated rate for a normalized pair (e.g. EURJPY),
+     * or null if the matrix has no route for it or the route uses a stale quote.
+     */
+    public FxRateDto resolve(String normalizedPair) {
+        Quote quote = lookup(normalizedPair);
+        return quote != null && !quote.isStale(staleCutoff()) ? quote.toDto(normalizedPair, false) : null;
+    }
+
+    /**
+     * Like resolve(), but a route over stale quotes is still returned, flagged stale.
+     * For callers that have just loaded the latest quotes the database holds.
+     */
+    public FxRateDto resolveIncludingStale(String normalizedPair) {
+        Quote quote = lookup(normalizedPair);
+        return quote != null ? quote.toDto(normalizedPair, quote.isStale(staleCutoff())) : null;
+    }
+
+    private Quote lookup(String normalizedPair) {
+        if (normalizedPair == null || normalizedPair.length() != 6) {
+            return null;
+        }
+        Snapshot s = snapshot;
+        Integer from = s.index.get(normalizedPair.substring(0, 3));
+        Integer to = s.index.get(normalizedPair.substring(3, 6));
+        if (from == null || to == null || from.equals(to)) {
+            return null;
+        }
+        return s.resolved[from][to];
+    }
+
+    private LocalDateTime staleCutoff() {
+        return LocalDateTime.now().minus(staleAfter);
+    }
+
+    /**
+     * Full N x N mid-rate matrix for the current version; built once per version and shared.
+     * Its asOf is the time of the oldest quote behind any cell, so no rate in it is older.
+     */
+    public FxMatrixSnapshot getMidRateSnapshot() {
+        Snapshot s = snapshot;
+        FxMatrixSnapshot cached = published;
+        if (cached != null && cached.getVersion() == s.version) {
+            return cached;
+        }
+
+        int n = s.currencies.length;
+        BigDecimal[] mids = new BigDecimal[n * n];
+        LocalDateTime asOf = null;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j) {
+                    mids[i * n + j] = BigDecimal.ONE;
+                    continue;
+                }
+                Quote quote = s.resolved[i][j];
+                if (quote != null) {
+                    mids[i * n + j] = quote.mid;
+                    if (quote.rateTime != null && (asOf == null || quote.rateTime.isBefore(asOf))) {
+                        asOf = quote.rateTime;
+                    }
+                }
+            }
+        }
+
+        FxMatrixSnapshot built = new FxMatrixSnapshot(s.version, asOf, s.currencies, mids);
+        published = built;
+        return built;
+    }
+
+    /**
+     * Incremented on every change; lets callers detect that the matrix moved.
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Currencies in matrix order.
+     */
+    public List<String> getCurrencies() {
+        return List.of(snapshot.currencies);
+    }
+
+    public List<String> getSupportedPairs() {
+        return supportedPairs;
+    }
+
+    public List<String> getVehicleCurrencies() {
+        return vehicleCurrencies;
+    }
+
+    /**
+     * True for rates this matrix (or the inverse lookup) derived rather than received from a source.
+     */
+    public static boolean isDerived(FxRateDto rate) {
+        String source = rate.getSource();
+        return source != null && (source.endsWith(INVERTED_SUFFIX) || source.contains(VIA_PREFIX));
+    }
+
+    // ==================== Writes ====================
+
+    /**
+     * Record a quoted rate. Derived rates and quotes older than the one held are ignored.
+     */
+    public void update(FxRateDto rate) {
+        if (rate == null || rate.getMidRate() == null || rate.getMidRate().signum() <= 0 || isDerived(rate)) {
+            return;
+        }
+        String[] currencies = CurrencyUtil.parseCurrencyPair(rate.getCurrencyPair());
+        if (currencies[0].equals(currencies[1])) {
+            return;
+        }
+        Quote quote = Quote.of(rate);
+
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            boolean grown = !current.index.containsKey(currencies[0]) || !current.index.containsKey(currencies[1]);
+            Draft next = grown ? current.grow(currencies) : current.edit();
+
+            int base = next.index.get(currencies[0]);
+            int quoteCcy = next.index.get(currencies[1]);
+            if (!next.setLeg(base, quoteCcy, quote)) {
+                return;
+            }
+            next.setLeg(quoteCcy, base, quote.invert());
+
+            if (grown) {
+                log.debug("FX rate matrix grew to {} currencies for {}", next.currencies.length, rate.getCurrencyPair());
+                next.resolveAll(vehicleIndexes(next));
+            } else {
+                int[] vehicles = vehicleIndexes(next);
+                next.resolveRowAndColumn(base, vehicles);
+                next.resolveRowAndColumn(quoteCcy, vehicles);
+            }
+            snapshot = next.toSnapshot(current.version + 1);
+        }
+    }
+
+    private int[] vehicleIndexes(Draft s) {
+        return vehicleCurrencies.stream()
+                .map(s.index::get)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // ==================== Internals ====================
+
+    private record Snapshot(String[] currencies, Map<String, Integer> index,
+                            Quote[][] direct, Quote[][] resolved, long version) {
+
+        /**
+         * Draft sharing every row with this snapshot; a row is copied the first time one of its cells changes.
+         */
+        Draft edit() {
+            int n = direct.length;
+            return new Draft(currencies, index, direct.clone(), resolved.clone(), new boolean[n], new boolean[n]);
+        }
+
+        Draft grow(String[] added) {
+            Map<String, Integer> grownIndex = new LinkedHashMap<>();
+            for (String currency : this.currencies) {
+                grownIndex.put(currency, grownIndex.size());
+            }
+            for (String currency : added) {
+                grownIndex.putIfAbsent(currency, grownIndex.size());
+            }
+            int n = grownIndex.size();
+            Quote[][] d = new Quote[n][n];
+            for (int i = 0; i < direct.length; i++) {
+                System.arraycopy(direct[i], 0, d[i], 0, direct.length);
+            }
+            boolean[] owned = new boolean[n];
+            Arrays.fill(owned, true);
+            return new Draft(grownIndex.keySet().toArray(String[]::new), Map.copyOf(grownIndex),
+                    d, new Quote[n][n], owned, owned.clone());
+        }
+    }
+
+    /**
+     * Snapshot under construction by the writer. Rows not marked owned still belong to
+     * the published snapshot and are copied before their first write.
+     */
+    private record Draft(String[] currencies, Map<String, Integer> index,
+                         Quote[][] direct, Quote[][] resolved,
+                         boolean[] directOwned, boolean[] resolvedOwned) {
+
+        Snapshot toSnapshot(long version) {
+            return new Snapshot(currencies, index, direct, resolved, version);
+        }
+
+        /**
+         * Quoted rates win over inversions; within the same kind, an older quote never replaces a newer one.
+         */
+        boolean setLeg(int from, int to, Quote quote) {
+            Quote current = direct[from][to];
+            if (current != null) {
+                if (quote.inverted && !current.inverted) {
+                    return false;
+                }
+                if (quote.inverted == current.inverted && quote.isOlderThan(current)) {
+                    return false;
+                }
+            }
+            set(direct, directOwned, from, to, quote);
+            return true;
+        }
+
+        void resolveAll(int[] vehicles) {
+            for (int i = 0; i < direct.length; i++) {
+                for (int j = 0; j < direct.length; j++) {
+                    set(resolved, resolvedOwned, i, j, resolveCell(i, j, vehicles));
+                }
+            }
+        }
+
+        void resolveRowAndColumn(int currency, int[] vehicles) {
+            for (int k = 0; k < direct.length; k++) {
+                set(resolved, resolvedOwned, currency, k, resolveCell(currency, k, vehicles));
+                set(resolved, resolvedOwned, k, currency, resolveCell(k, currency, vehicles));
+            }
+        }
+
+        private static void set(Quote[][] cells, boolean[] owned, int row, int column, Quote quote) {
+            if (Objects.equals(cells[row][column], quote)) {
+                return;
+            }
+            if (!owned[row]) {
+                cells[row] = cells[row].clone();
+                owned[row] = true;
+            }
+            cells[row][column] = quote;
+        }
+
+        private Quote resolveCell(int from, int to, int[] vehicles) {
+            if (from == to) {
+                return null;
+            }
+            if (direct[from][to] != null) {
+                return direct[from][to];
+            }
+            for (int vehicle : vehicles) {
+                if (vehicle == from || vehicle == to) {
+                    continue;
+                }
+                Quote first = direct[from][vehicle];
+                Quote second = direct[vehicle][to];
+                if (first != null && second != null) {
+                    return first.cross(second, VIA_PREFIX + currencies[vehicle] + ")");
+                }
+            }
+            return null;
+        }
+    }
+
+    private record Quote(Long fxRateId,
+                         LocalDate rateDate,
+                         LocalDateTime rateTime,
+                         BigDecimal mid,
+                         BigDecimal bid,
+                         BigDecimal ask,
+                         BigDecimal forwardPoints1M,
+                         BigDecimal forwardPoints3M,
+                         String source,
+                         boolean stale,
+                         boolean inverted) {
+
+        static Quote of(FxRateDto rate) {
+            return new Quote(rate.getFxRateId(), rate.getRateDate(), rate.getRateTime(),
+                    rate.getMidRate(), rate.getBidRate(), rate.getAskRate(),
+                    rate.getForwardPoints1M(), rate.getForwardPoints3M(),
+                    rate.getSource(), Boolean.TRUE.equals(rate.getIsStale()), false);
+        }
+
+        Quote invert() {
+            // Bid and ask swap sides when the pair is turned around
+            return new Quote(fxRateId, rateDate, rateTime,
+                    CurrencyUtil.invertRate(mid),
+                    ask != null ? CurrencyUtil.invertRate(ask) : null,
+                    bid != null ? CurrencyUtil.invertRate(bid) : null,
+                    null, null, source + INVERTED_SUFFIX, stale, true);
+        }
+
+        Quote cross(Quote other, String via) {
+            LocalDateTime time = rateTime == null || (other.rateTime != null && other.rateTime.isBefore(rateTime))
+                    ? other.rateTime : rateTime;
+            LocalDate date = rateDate == null || (other.rateDate != null && other.rateDate.isBefore(rateDate))
+                    ? other.rateDate : rateDate;
+            return new Quote(null, date, time,
+                    multiply(mid, other.mid),
+                    multiply(bid, other.bid),
+                    multiply(ask, other.ask),
+                    null, null, "TRIANGULATED" + via, stale || other.stale, true);
+        }
+
+        /**
+         * Flagged stale at the source, older than the cutoff, or (without a time) from an earlier date.
+         */
+        boolean isStale(LocalDateTime cutoff) {
+            if (stale) {
+                return true;
+            }
+            if (rateTime != null) {
+                return rateTime.isBefore(cutoff);
+            }
+            return rateDate == null || rateDate.isBefore(LocalDate.now());
+        }
+
+        boolean isOlderThan(Quote other) {
+            return rateTime != null && other.rateTime != null && rateTime.isBefore(other.rateTime);
+        }
+
+        FxRateDto toDto(String pair, boolean expired) {
+            return FxRateDto.builder()
+                    .fxRateId(fxRateId)
+                    .currencyPair(pair)
+                    .baseCurrency(pair.substring(0, 3))
+                    .quoteCurrency(pair.substring(3, 6))
+                    .rateDate(rateDate)
+                    .rateTime(rateTime)
+                    .midRate(mid)
+                    .bidRate(bid)
+                    .askRate(ask)
+                    .forwardPoints1M(forwardPoints1M)
+                    .forwardPoints3M(forwardPoints3M)
+                    .source(source)
+                    .isStale(stale || expired)
+                    .build();
+        }
+
+        private static BigDecimal multiply(BigDecimal a, BigDecimal b) {
+            if (a == null || b == null) {
+                return null;
+            }
+            return a.multiply(b).setScale(CurrencyUtil.RATE_SCALE, CurrencyUtil.ROUNDING_MODE);
+        }
+    }
+}
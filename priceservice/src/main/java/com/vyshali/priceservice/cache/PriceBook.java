@@ -0,0 +1,311 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * In-process price book keyed by primitive productId.
+ *
+ * Holds the latest price per source priority (OVERRIDE, REALTIME, RCP_SNAP,
+ * MSPA) for today in flat arrays behind an open-addressing index, so the
+ * read path builds no key, boxes nothing and allocates nothing.
+ *
+ * A product only enters the book when it is seeded from a full hierarchy
+ * load; after that, writes for any priority update its slot. Writes for
+ * products that were never seeded are ignored, so the book never claims a
+ * best price while a higher-priority row it has not seen may exist.
+ *
+ * An entry is served for as long as an L1 entry written with the same price
+ * would live (PriceTtlPolicy.l1Ttl), so the book never outlasts the cache
+ * tier behind it.
+ *
+ * Reads are lock-free; writers serialize on a single lock and publish a new
+ * table on resize.
+ */
+@Slf4j
+public class PriceBook {
+
+    private static final int LEVELS = PriceSource.values().length;
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = -1L;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private final boolean enabled;
+    private final Function<PriceDto, Duration> lifetime;
+    private final Object writeLock = new Object();
+
+    private volatile Table table;
+    private volatile LocalDate bookDate = LocalDate.now();
+
+    public PriceBook(boolean enabled, int expectedProducts, Function<PriceDto, Duration> lifetime) {
+        this.enabled = enabled;
+        this.lifetime = lifetime;
+        this.table = new Table(capacityFor(expectedProducts));
+    }
+
+    // ==================== Reads (lock-free) ====================
+
+    /**
+     * Best price for a product, or null if the book cannot answer
+     * (null or unknown product, nothing recorded, or the best entry has outlived its lifetime).
+     */
+    public PriceDto getBestPrice(Long productId) {
+        return productId != null ? getBestPrice(productId.longValue()) : null;
+    }
+
+    /**
+     * Primitive overload for callers that hold a long; allocates nothing.
+     */
+    public PriceDto getBestPrice(long productId) {
+        if (!enabled || productId <= 0) {
+            return null;
+        }
+        Table t = table;
+        int index = t.find(productId);
+        if (index < 0) {
+            return null;
+        }
+        int base = index * LEVELS;
+        for (int level = 0; level < LEVELS; level++) {
+            Entry entry = t.entries.get(base + level);
+            if (entry != null) {
+                // The slot may have been reused for another product since find() - never return its price
+                if (entry.productId != productId) {
+                    return null;
+                }
+                return System.currentTimeMillis() <= entry.expiresAtMillis ? entry.price : null;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ==================== Writes ====================
+
+    /**
+     * Record the result of a full hierarchy load: this is the best price,
+     * so every higher-priority slot is known to be empty.
+     */
+    public void seed(long productId, PriceDto best) {
+        if (!enabled || productId <= 0) {
+            return;
+        }
+        int level = levelOf(best);
+        if (level < 0 || !isToday(best)) {
+            remove(productId);
+            return;
+        }
+        Entry entry = newEntry(productId, best);
+        synchronized (writeLock) {
+            Table t = ensureCapacity();
+            int index = t.insert(productId);
+            int base = index * LEVELS;
+            for (int i = 0; i < LEVELS; i++) {
+                t.entries.set(base + i, i == level ? entry : null);
+            }
+        }
+    }
+
+    /**
+     * Record a new price for one source priority of an already seeded product.
+     * An older tick never replaces a newer one in the same slot.
+     */
+    public void onPriceWritten(long productId, PriceDto price) {
+        if (!enabled || productId <= 0) {
+            return;
+        }
+        int level = levelOf(price);
+        if (level < 0 || !isToday(price)) {
+            // Outside the known hierarchy (or a different day) - let the full lookup decide
+            remove(productId);
+            return;
+        }
+        Entry entry = newEntry(productId, price);
+        synchronized (writeLock) {
+            Table t = table;
+            int index = t.find(productId);
+            if (index < 0) {
+                return;
+            }
+            int slot = index * LEVELS + level;
+            Entry current = t.entries.get(slot);
+            if (current != null && current.price.getPriceTime() != null && price.getPriceTime() != null
+                    && price.getPriceTime().isBefore(current.price.getPriceTime())) {
+                return;
+            }
+            t.entries.set(slot, entry);
+        }
+    }
+
+    public void remove(long productId) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            table.delete(productId);
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            table = new Table(table.keys.length());
+            bookDate = LocalDate.now();
+        }
+    }
+
+    /**
+     * Prices are per business date; start each day with an empty book.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollDate() {
+        int dropped = size();
+        clear();
+        log.info("Price book rolled to {}, dropped {} products", bookDate, dropped);
+    }
+
+    // ==================== Internals ====================
+
+    private Entry newEntry(long productId, PriceDto price) {
+        return new Entry(productId, price, System.currentTimeMillis() + lifetime.apply(price).toMillis());
+    }
+
+    private boolean isToday(PriceDto price) {
+        return price.getPriceDate() == null || price.getPriceDate().equals(bookDate);
+    }
+
+    private static int levelOf(PriceDto price) {
+        Integer priority = price.getSourcePriority();
+        if (priority == null || priority < 1 || priority > LEVELS) {
+            return -1;
+        }
+        return priority - 1;
+    }
+
+    /**
+     * Called under the write lock: grow (or compact tombstones) before the table gets too full.
+     */
+    private Table ensureCapacity() {
+        Table t = table;
+        int capacity = t.keys.length();
+        if ((t.size + t.tombstones + 1) * 2 <= capacity) {
+            return t;
+        }
+        int newCapacity = (t.size + 1) * 4 > capacity ? capacity * 2 : capacity;
+        Table resized = new Table(newCapacity);
+        for (int i = 0; i < capacity; i++) {
+            long key = t.keys.get(i);
+            if (key != EMPTY && key != TOMBSTONE) {
+                int index = resized.insert(key);
+                for (int level = 0; level < LEVELS; level++) {
+                    resized.entries.set(index * LEVELS + level, t.entries.get(i * LEVELS + level));
+                }
+            }
+        }
+        table = resized;
+        return resized;
+    }
+
+    private static int capacityFor(int expectedProducts) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedProducts * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private record Entry(long productId, PriceDto price, long expiresAtMillis) {
+    }
+
+    /**
+     * Linear-probing table: keys[i] is a productId, entries[i * LEVELS + level] its price slots.
+     */
+    private static final class Table {
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<Entry> entries;
+        final int mask;
+        // Written under the write lock; volatile for the lock-free size() gauge
+        volatile int size;
+        volatile int tombstones;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.entries = new AtomicReferenceArray<>(capacity * LEVELS);
+            this.mask = capacity - 1;
+        }
+
+        int find(long productId) {
+            int i = hash(productId) & mask;
+            while (true) {
+                long key = keys.get(i);
+                if (key == productId) {
+                    return i;
+                }
+                if (key == EMPTY) {
+                    return -1;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        int insert(long productId) {
+            int i = hash(productId) & mask;
+            int firstTombstone = -1;
+            while (true) {
+                long key = keys.get(i);
+                if (key == productId) {
+                    return i;
+                }
+                if (key == TOMBSTONE && firstTombstone < 0) {
+                    firstTombstone = i;
+                }
+                if (key == EMPTY) {
+                    int target = firstTombstone >= 0 ? firstTombstone : i;
+                    if (target == firstTombstone) {
+                        tombstones--;
+                    }
+                    // Clear slots before publishing the key so readers never see another product's prices
+                    for (int level = 0; level < LEVELS; level++) {
+                        entries.set(target * LEVELS + level, null);
+                    }
+                    keys.set(target, productId);
+                    size++;
+                    return target;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        void delete(long productId) {
+            int index = find(productId);
+            if (index < 0) {
+                return;
+            }
+            keys.set(index, TOMBSTONE);
+            for (int level = 0; level < LEVELS; level++) {
+                entries.set(index * LEVELS + level, null);
+            }
+            size--;
+            tombstones++;
+        }
+
+        private static int hash(long productId) {
+            long h = productId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -2,26 +2,54 @@ package com.vyshali.priceservice.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.vyshali.fxanalyzer.common.dto.FxRateDto;
 import com.vyshali.fxanalyzer.common.dto.PriceDto;
-import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Two-level cache service for prices and FX rates.
  * 
  * L1: Caffeine (in-memory, ultra-fast, short TTL)
  * L2: Redis (distributed, longer TTL)
+ * Price lifetimes in both tiers vary per entry (see PriceTtlPolicy).
  * 
  * Read path: L1 -> L2 -> Database
  * Write path: Database -> L2 -> L1
+ * 
+ * With refresh-ahead enabled, an L1 entry read after refresh-ratio of its
+ * TTL is reloaded in the background while readers keep getting the current value.
+ * 
+ * Puts and evictions are broadcast over Redis pub/sub so every replica's L1 stays
+ * coherent (see CacheSyncPublisher / CacheSyncListener).
+ * 
+ * Each cache reports hits, misses, per-tier latency and Redis errors under
+ * price.cache.* tagged cache=price|fx_rate (see CacheMetrics); the L1 caches
+ * are also bound as cache.* meters (gets, puts, evictions, size).
  */
 @Slf4j
 @Service
@@ -29,44 +57,123 @@ public class PriceCacheService {
 
     private static final String PRICE_KEY_PREFIX = "price:";
     private static final String FX_RATE_KEY_PREFIX = "fxrate:";
+    private static final Duration FX_L2_TTL = Duration.ofMinutes(5);
     
     private final Cache<String, PriceDto> l1PriceCache;
     private final Cache<String, FxRateDto> l1FxRateCache;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final CacheSyncPublisher syncPublisher;
+    private final PriceBook priceBook;
+    private final PriceTtlPolicy ttlPolicy;
+    
+    // Refresh-ahead
+    private final RefreshAheadLoader<PriceDto> priceRefreshLoader;
+    private final RefreshAheadLoader<FxRateDto> fxRateRefreshLoader;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    // Written prices are checked against L1 and stored under one lock, so concurrent
+    // writers reach L1 and Redis in the same order and the better price stays
+    private final Object writtenPricesLock = new Object();
     
     // Metrics
-    private final Counter l1HitCounter;
-    private final Counter l2HitCounter;
-    private final Counter cacheMissCounter;
+    private final CacheMetrics priceMetrics;
+    private final CacheMetrics fxRateMetrics;
 
-    public PriceCacheService(RedisTemplate<String, Object> redisTemplate, MeterRegistry meterRegistry) {
+    public PriceCacheService(RedisTemplate<String, Object> redisTemplate,
+                             CacheSyncPublisher syncPublisher,
+                             PriceBook priceBook,
+                             PriceTtlPolicy ttlPolicy,
+                             MeterRegistry meterRegistry,
+                             @Value("${fxanalyzer.cache.prices.l1-ttl-seconds:30}") int priceL1TtlSeconds,
+                             @Value("${fxanalyzer.cache.prices.l1-max-size:50000}") long priceL1MaxSize,
+                             @Value("${fxanalyzer.cache.fx-rates.l1-ttl-seconds:60}") int fxRateL1TtlSeconds,
+                             @Value("${fxanalyzer.cache.prices.refresh-ahead.enabled:false}") boolean refreshAheadEnabled,
+                             @Value("${fxanalyzer.cache.prices.refresh-ahead.refresh-ratio:0.8}") double refreshRatio,
+                             @Value("${fxanalyzer.cache.metrics.l1-sample-rate:64}") int l1SampleRate) {
         this.redisTemplate = redisTemplate;
+        this.syncPublisher = syncPublisher;
+        this.priceBook = priceBook;
+        this.ttlPolicy = ttlPolicy;
+        
+        if (refreshAheadEnabled && (refreshRatio <= 0 || refreshRatio >= 1)) {
+            throw new IllegalArgumentException(
+                    "fxanalyzer.cache.prices.refresh-ahead.refresh-ratio must be between 0 and 1, was " + refreshRatio);
+        }
+        
+        this.priceRefreshLoader = new RefreshAheadLoader<>("price", PRICE_KEY_PREFIX, meterRegistry);
+        this.fxRateRefreshLoader = new RefreshAheadLoader<>("fxRate", FX_RATE_KEY_PREFIX, meterRegistry);
         
         // Initialize L1 caches
-        this.l1PriceCache = Caffeine.newBuilder()
-                .maximumSize(50_000)
-                .expireAfterWrite(30, TimeUnit.SECONDS)
-                .recordStats()
-                .build();
+        this.l1PriceCache = buildL1Cache(priceL1MaxSize, priceL1TtlSeconds, ttlPolicy.l1Expiry(),
+                refreshAheadEnabled, refreshRatio, priceRefreshLoader);
         
-        this.l1FxRateCache = Caffeine.newBuilder()
-                .maximumSize(1_000)
-                .expireAfterWrite(60, TimeUnit.SECONDS)
-                .recordStats()
-                .build();
+        this.l1FxRateCache = buildL1Cache(1_000, fxRateL1TtlSeconds, null,
+                refreshAheadEnabled, refreshRatio, fxRateRefreshLoader);
+        
+        log.info("L1 caches initialized: price TTL {}s, FX TTL {}s, refresh-ahead {}",
+                priceL1TtlSeconds, fxRateL1TtlSeconds,
+                refreshAheadEnabled ? "at " + (int) (refreshRatio * 100) + "% of TTL" : "disabled");
         
         // Initialize metrics
-        this.l1HitCounter = Counter.builder("price.cache.l1.hits")
-                .description("L1 cache hits")
-                .register(meterRegistry);
+        this.priceMetrics = new CacheMetrics("price", meterRegistry, l1SampleRate);
+        this.fxRateMetrics = new CacheMetrics("fx_rate", meterRegistry, l1SampleRate);
+        CaffeineCacheMetrics.monitor(meterRegistry, l1PriceCache, "price.l1");
+        CaffeineCacheMetrics.monitor(meterRegistry, l1FxRateCache, "fx_rate.l1");
+    }
+
+    /**
+     * With an expiry, each entry's lifetime comes from it (ttlSeconds then only paces refresh-ahead);
+     * without one, every entry expires ttlSeconds after it was written.
+     */
+    private <V> Cache<String, V> buildL1Cache(long maximumSize, int ttlSeconds, Expiry<String, V> expiry,
+                                              boolean refreshAhead, double refreshRatio,
+                                              RefreshAheadLoader<V> loader) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats();
+        if (expiry != null) {
+            builder.expireAfter(expiry);
+        } else {
+            builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+        }
         
-        this.l2HitCounter = Counter.builder("price.cache.l2.hits")
-                .description("L2 cache hits")
-                .register(meterRegistry);
+        if (!refreshAhead) {
+            return builder.build();
+        }
         
-        this.cacheMissCounter = Counter.builder("price.cache.misses")
-                .description("Cache misses")
-                .register(meterRegistry);
+        long refreshAfterMillis = (long) (TimeUnit.SECONDS.toMillis(ttlSeconds) * refreshRatio);
+        return builder
+                .refreshAfterWrite(refreshAfterMillis, TimeUnit.MILLISECONDS)
+                .executor(refreshExecutor)
+                .build(loader);
+    }
+
+    // ==================== Refresh-Ahead Registration ====================
+
+    /**
+     * Register the lookup used to reload price entries ahead of expiry.
+     */
+    public void setPriceRefresher(Function<Long, PriceDto> refresher) {
+        priceRefreshLoader.setRefresher(productId ->
+                priceMetrics.timeDb(() -> refresher.apply(Long.valueOf(productId))));
+    }
+
+    /**
+     * Register the lookup used to reload FX rate entries ahead of expiry.
+     */
+    public void setFxRateRefresher(Function<String, FxRateDto> refresher) {
+        fxRateRefreshLoader.setRefresher(currencyPair -> fxRateMetrics.timeDb(() -> refresher.apply(currencyPair)));
+    }
+
+    /**
+     * Time a database load after a miss in both tiers, as tier=db.
+     */
+    public <T> T timePriceLoad(Supplier<T> load) {
+        return priceMetrics.timeDb(load);
+    }
+
+    public <T> T timeFxRateLoad(Supplier<T> load) {
+        return fxRateMetrics.timeDb(load);
     }
 
     // ==================== Price Cache Operations ====================
@@ -78,18 +185,21 @@ public class PriceCacheService {
         String key = PRICE_KEY_PREFIX + productId;
         
         // Try L1 first
+        long l1Start = priceMetrics.startL1();
         PriceDto l1Result = l1PriceCache.getIfPresent(key);
+        priceMetrics.stopL1(l1Start);
         if (l1Result != null) {
-            l1HitCounter.increment();
+            priceMetrics.l1Hit();
             log.debug("L1 cache hit for price: {}", productId);
             return Optional.of(l1Result);
         }
+        priceMetrics.l1Miss();
         
         // Try L2 (Redis)
         try {
-            Object l2Result = redisTemplate.opsForValue().get(key);
+            Object l2Result = priceMetrics.timeL2(() -> redisTemplate.opsForValue().get(key));
             if (l2Result instanceof PriceDto) {
-                l2HitCounter.increment();
+                priceMetrics.l2Hits(1);
                 PriceDto price = (PriceDto) l2Result;
                 // Populate L1 from L2
                 l1PriceCache.put(key, price);
@@ -97,43 +207,217 @@ public class PriceCacheService {
                 return Optional.of(price);
             }
         } catch (Exception e) {
+            priceMetrics.redisError("get");
             log.warn("Redis error getting price {}: {}", productId, e.getMessage());
         }
         
-        cacheMissCounter.increment();
+        priceMetrics.misses(1);
         log.debug("Cache miss for price: {}", productId);
         return Optional.empty();
     }
 
     /**
-     * Put price in cache (L1 + L2)
+     * Get price from L1 only (no Redis round trip)
      */
-    public void putPrice(Long productId, PriceDto price) {
+    public Optional<PriceDto> getLocalPrice(Long productId) {
+        PriceDto l1Result = l1PriceCache.getIfPresent(PRICE_KEY_PREFIX + productId);
+        if (l1Result != null) {
+            priceMetrics.l1Hit();
+        } else {
+            priceMetrics.l1Miss();
+        }
+        return Optional.ofNullable(l1Result);
+    }
+
+    /**
+     * Put a newly written best price in cache (L1 + L2) and tell the other
+     * replicas, unless a better one is already cached (see putWrittenPrices).
+     */
+    public boolean putPrice(Long productId, PriceDto price) {
+        return !putWrittenPrices(Map.of(productId, price)).isEmpty();
+    }
+
+    /**
+     * Cache a price read from the database (L1 + L2) without telling the other
+     * replicas: nothing changed, and they find it in Redis on their own miss.
+     */
+    public void fillPrice(Long productId, PriceDto price) {
         String key = PRICE_KEY_PREFIX + productId;
-        
-        // Update L1
         l1PriceCache.put(key, price);
         
         // Update L2
         try {
-            redisTemplate.opsForValue().set(key, price, Duration.ofMinutes(5));
+            priceMetrics.timeL2Write(() -> redisTemplate.opsForValue().set(key, price, ttlPolicy.l2Ttl(price)));
             log.debug("Cached price for product {}", productId);
         } catch (Exception e) {
+            priceMetrics.redisError("set");
             log.warn("Redis error caching price {}: {}", productId, e.getMessage());
         }
     }
 
+    /**
+     * Get prices for many products from cache (bulk L1 -> single Redis MGET).
+     * Returns only the products that were found; callers load the rest.
+     */
+    public Map<Long, PriceDto> getPrices(Collection<Long> productIds) {
+        Map<Long, PriceDto> result = new HashMap<>(productIds.size());
+        if (productIds.isEmpty()) {
+            return result;
+        }
+
+        Map<String, Long> keyToProductId = new LinkedHashMap<>(productIds.size());
+        for (Long productId : productIds) {
+            keyToProductId.put(PRICE_KEY_PREFIX + productId, productId);
+        }
+
+        // Bulk L1 lookup
+        long l1Start = priceMetrics.startL1();
+        Map<String, PriceDto> l1Results = l1PriceCache.getAllPresent(keyToProductId.keySet());
+        priceMetrics.stopL1(l1Start);
+        l1Results.forEach((key, price) -> result.put(keyToProductId.get(key), price));
+        priceMetrics.l1Hits(l1Results.size());
+        priceMetrics.l1Misses(keyToProductId.size() - l1Results.size());
+
+        List<String> l2Keys = new ArrayList<>(keyToProductId.size() - l1Results.size());
+        for (String key : keyToProductId.keySet()) {
+            if (!l1Results.containsKey(key)) {
+                l2Keys.add(key);
+            }
+        }
+        if (l2Keys.isEmpty()) {
+            return result;
+        }
+
+        // One MGET for everything L1 did not have
+        int l2Hits = 0;
+        try {
+            List<Object> l2Results = priceMetrics.timeL2(() -> redisTemplate.opsForValue().multiGet(l2Keys));
+            if (l2Results != null) {
+                Map<String, PriceDto> l2Found = new HashMap<>();
+                for (int i = 0; i < l2Keys.size() && i < l2Results.size(); i++) {
+                    if (l2Results.get(i) instanceof PriceDto price) {
+                        l2Found.put(l2Keys.get(i), price);
+                        result.put(keyToProductId.get(l2Keys.get(i)), price);
+                    }
+                }
+                // Populate L1 from L2
+                l1PriceCache.putAll(l2Found);
+                l2Hits = l2Found.size();
+                priceMetrics.l2Hits(l2Hits);
+            }
+        } catch (Exception e) {
+            priceMetrics.redisError("multi_get");
+            log.warn("Redis error getting {} prices: {}", l2Keys.size(), e.getMessage());
+        }
+
+        priceMetrics.misses(l2Keys.size() - l2Hits);
+        log.debug("Bulk price cache lookup: {} requested, {} L1 hits, {} L2 hits",
+                keyToProductId.size(), l1Results.size(), l2Hits);
+        return result;
+    }
+
+    /**
+     * Put many prices in cache (L1 + one pipelined Redis round trip)
+     */
+    public void putPrices(Map<Long, PriceDto> prices) {
+        if (prices.isEmpty()) {
+            return;
+        }
+        writePrices(prices);
+    }
+
+    /**
+     * Record a batch of newly written best prices: price book, L1, one pipelined
+     * Redis round trip and a single sync message for the whole batch.
+     *
+     * Writers commit and then cache, so two writers of the same product can
+     * reach here in the opposite order to their commits. A price is skipped when
+     * the cached one outranks it by the best_prices rule (later date, then
+     * lower priority, then later price time), so the cache keeps the committed best.
+     *
+     * @return the prices that were cached
+     */
+    public Map<Long, PriceDto> putWrittenPrices(Map<Long, PriceDto> prices) {
+        if (prices.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, PriceDto> accepted = new HashMap<>(prices.size());
+        synchronized (writtenPricesLock) {
+            prices.forEach((productId, price) -> {
+                PriceDto cached = l1PriceCache.policy().getIfPresentQuietly(PRICE_KEY_PREFIX + productId);
+                if (cached == null || !outranks(cached, price)) {
+                    accepted.put(productId, price);
+                }
+            });
+            if (accepted.isEmpty()) {
+                return accepted;
+            }
+            accepted.forEach(priceBook::onPriceWritten);
+            writePrices(accepted);
+        }
+        if (accepted.size() < prices.size()) {
+            log.debug("Skipped {} written prices outranked by cached ones", prices.size() - accepted.size());
+        }
+        syncPublisher.publishPrices(List.copyOf(accepted.values()));
+        return accepted;
+    }
+
+    private static boolean outranks(PriceDto cached, PriceDto incoming) {
+        if (cached.getPriceDate() == null || incoming.getPriceDate() == null
+                || cached.getSourcePriority() == null || incoming.getSourcePriority() == null) {
+            return false;
+        }
+        int byDate = cached.getPriceDate().compareTo(incoming.getPriceDate());
+        if (byDate != 0) {
+            return byDate > 0;
+        }
+        int byPriority = Integer.compare(cached.getSourcePriority(), incoming.getSourcePriority());
+        if (byPriority != 0) {
+            return byPriority < 0;
+        }
+        return isOlder(incoming.getPriceTime(), cached.getPriceTime());
+    }
+
+    private void writePrices(Map<Long, PriceDto> prices) {
+        Map<String, PriceDto> entries = new HashMap<>(prices.size());
+        prices.forEach((productId, price) -> entries.put(PRICE_KEY_PREFIX + productId, price));
+
+        // Update L1
+        l1PriceCache.putAll(entries);
+
+        // Update L2
+        try {
+            priceMetrics.timeL2Write(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<String, Object> ops =
+                            ((RedisOperations<String, Object>) operations).opsForValue();
+                    entries.forEach((key, price) -> ops.set(key, price, ttlPolicy.l2Ttl(price)));
+                    return null;
+                }
+            }));
+            log.debug("Cached {} prices", entries.size());
+        } catch (Exception e) {
+            priceMetrics.redisError("pipeline");
+            log.warn("Redis error caching {} prices: {}", entries.size(), e.getMessage());
+        }
+    }
+
     /**
      * Evict price from cache
      */
     public void evictPrice(Long productId) {
         String key = PRICE_KEY_PREFIX + productId;
+        priceBook.remove(productId);
         l1PriceCache.invalidate(key);
         try {
             redisTemplate.delete(key);
         } catch (Exception e) {
+            priceMetrics.redisError("delete");
             log.warn("Redis error evicting price {}: {}", productId, e.getMessage());
         }
+        syncPublisher.publishPriceEviction(productId);
     }
 
     // ==================== FX Rate Cache Operations ====================
@@ -145,44 +429,81 @@ public class PriceCacheService {
         String key = FX_RATE_KEY_PREFIX + currencyPair;
         
         // Try L1 first
+        long l1Start = fxRateMetrics.startL1();
         FxRateDto l1Result = l1FxRateCache.getIfPresent(key);
+        fxRateMetrics.stopL1(l1Start);
         if (l1Result != null) {
-            l1HitCounter.increment();
+            fxRateMetrics.l1Hit();
             return Optional.of(l1Result);
         }
+        fxRateMetrics.l1Miss();
         
         // Try L2 (Redis)
         try {
-            Object l2Result = redisTemplate.opsForValue().get(key);
+            Object l2Result = fxRateMetrics.timeL2(() -> redisTemplate.opsForValue().get(key));
             if (l2Result instanceof FxRateDto) {
-                l2HitCounter.increment();
+                fxRateMetrics.l2Hits(1);
                 FxRateDto rate = (FxRateDto) l2Result;
                 l1FxRateCache.put(key, rate);
                 return Optional.of(rate);
             }
         } catch (Exception e) {
+            fxRateMetrics.redisError("get");
             log.warn("Redis error getting FX rate {}: {}", currencyPair, e.getMessage());
         }
         
-        cacheMissCounter.increment();
+        fxRateMetrics.misses(1);
         return Optional.empty();
     }
 
     /**
-     * Put FX rate in cache (L1 + L2)
+     * Get FX rate from L1 only (no Redis round trip)
+     */
+    public Optional<FxRateDto> getLocalFxRate(String currencyPair) {
+        FxRateDto l1Result = l1FxRateCache.getIfPresent(FX_RATE_KEY_PREFIX + currencyPair);
+        if (l1Result != null) {
+            fxRateMetrics.l1Hit();
+        } else {
+            fxRateMetrics.l1Miss();
+        }
+        return Optional.ofNullable(l1Result);
+    }
+
+    /**
+     * Put a newly written FX rate in cache (L1 + L2) and tell the other replicas.
      */
     public void putFxRate(String currencyPair, FxRateDto rate) {
+        fillFxRate(currencyPair, rate);
+        
+        // Tell other replicas
+        syncPublisher.publishFxRate(currencyPair, rate);
+    }
+
+    /**
+     * Cache an FX rate read from the database (L1 + L2) without telling the other replicas.
+     */
+    public void fillFxRate(String currencyPair, FxRateDto rate) {
         String key = FX_RATE_KEY_PREFIX + currencyPair;
         
         l1FxRateCache.put(key, rate);
         
         try {
-            redisTemplate.opsForValue().set(key, rate, Duration.ofMinutes(5));
+            fxRateMetrics.timeL2Write(() -> redisTemplate.opsForValue().set(key, rate, FX_L2_TTL));
         } catch (Exception e) {
+            fxRateMetrics.redisError("set");
             log.warn("Redis error caching FX rate {}: {}", currencyPair, e.getMessage());
         }
     }
 
+    /**
+     * Fill L1 only with many FX rates keyed by currency pair.
+     */
+    public void putLocalFxRates(Map<String, FxRateDto> rates) {
+        Map<String, FxRateDto> entries = new HashMap<>(rates.size());
+        rates.forEach((pair, rate) -> entries.put(FX_RATE_KEY_PREFIX + pair, rate));
+        l1FxRateCache.putAll(entries);
+    }
+
     /**
      * Evict FX rate from cache
      */
@@ -192,8 +513,60 @@ public class PriceCacheService {
         try {
             redisTemplate.delete(key);
         } catch (Exception e) {
+            fxRateMetrics.redisError("delete");
             log.warn("Redis error evicting FX rate {}: {}", currencyPair, e.getMessage());
         }
+        syncPublisher.publishFxRateEviction(currencyPair);
+    }
+
+    /**
+     * Drop the product or pair of an override that was removed or changed, so
+     * its long-lived OVERRIDE entry is not served until it expires.
+     */
+    @EventListener
+    public void onOverrideRemoved(PriceOverrideIndex.OverrideRemoved removed) {
+        if (removed.productId() != null) {
+            evictPrice(removed.productId());
+        }
+        if (removed.currencyPair() != null) {
+            evictFxRate(removed.currencyPair());
+        }
+    }
+
+    // ==================== Replica Sync (L1 only) ====================
+
+    /**
+     * Apply a price published by another replica. It is kept only if the cached
+     * price does not outrank it, the same rule as putWrittenPrices, and only then
+     * reaches the price book.
+     */
+    public void applyRemotePrice(Long productId, PriceDto price) {
+        PriceDto kept = l1PriceCache.asMap().merge(PRICE_KEY_PREFIX + productId, price,
+                (current, incoming) -> outranks(current, incoming) ? current : incoming);
+        if (kept == price) {
+            priceBook.onPriceWritten(productId, price);
+        }
+    }
+
+    public void applyRemotePriceEviction(Long productId) {
+        priceBook.remove(productId);
+        l1PriceCache.invalidate(PRICE_KEY_PREFIX + productId);
+    }
+
+    /**
+     * Apply an FX rate published by another replica. An older rate never replaces a newer one.
+     */
+    public void applyRemoteFxRate(String currencyPair, FxRateDto rate) {
+        l1FxRateCache.asMap().merge(FX_RATE_KEY_PREFIX + currencyPair, rate,
+                (current, incoming) -> isOlder(incoming.getRateTime(), current.getRateTime()) ? current : incoming);
+    }
+
+    public void applyRemoteFxRateEviction(String currencyPair) {
+        l1FxRateCache.invalidate(FX_RATE_KEY_PREFIX + currencyPair);
+    }
+
+    private static boolean isOlder(LocalDateTime incoming, LocalDateTime current) {
+        return incoming != null && current != null && incoming.isBefore(current);
     }
 
     // ==================== Cache Stats ====================
@@ -204,6 +577,14 @@ public class PriceCacheService {
                 .l1FxRateSize(l1FxRateCache.estimatedSize())
                 .l1PriceHitRate(l1PriceCache.stats().hitRate())
                 .l1FxRateHitRate(l1FxRateCache.stats().hitRate())
+                .l1PriceEvictions(l1PriceCache.stats().evictionCount())
+                .l1FxRateEvictions(l1FxRateCache.stats().evictionCount())
+                .priceL2Hits(priceMetrics.l2HitCount())
+                .priceMisses(priceMetrics.missCount())
+                .fxRateL2Hits(fxRateMetrics.l2HitCount())
+                .fxRateMisses(fxRateMetrics.missCount())
+                .priceRedisErrors(priceMetrics.redisErrorCount())
+                .fxRateRedisErrors(fxRateMetrics.redisErrorCount())
                 .build();
     }
 
@@ -214,5 +595,13 @@ public class PriceCacheService {
         private long l1FxRateSize;
         private double l1PriceHitRate;
         private double l1FxRateHitRate;
+        private long l1PriceEvictions;
+        private long l1FxRateEvictions;
+        private long priceL2Hits;
+        private long priceMisses;
+        private long fxRateL2Hits;
+        private long fxRateMisses;
+        private long priceRedisErrors;
+        private long fxRateRedisErrors;
     }
 }
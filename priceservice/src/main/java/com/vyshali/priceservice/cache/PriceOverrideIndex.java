@@ -0,0 +1,352 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.entity.PriceOverride;
+import com.vyshali.fxanalyzer.common.repository.PriceOverrideRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory interval index of active price and FX overrides.
+ *
+ * Overrides are filed under (account, product) or (account, currency pair),
+ * with a null account for overrides that apply to every account. Each key
+ * holds its overrides ordered by effective date, so the one in force on a
+ * date is a floor lookup, O(log n), instead of a query per request. When
+ * intervals overlap, the latest effective date wins.
+ *
+ * The index is loaded in full at startup, then refreshed incrementally from
+ * rows whose updated_at moved (the table's trigger maintains it). Rows that
+ * are deleted outright are only dropped by the periodic full reload, which
+ * builds a new index and swaps it in, so readers never see it half loaded.
+ *
+ * The refresh watermark is the latest updated_at read from the database, and
+ * each poll reaches back refresh-overlap-seconds before it: the trigger stamps
+ * rows with their transaction's start time, so a long transaction can commit
+ * rows older than ones already seen.
+ *
+ * When an override for all accounts is removed or changed, an OverrideRemoved
+ * event tells the caches to drop the product or pair: OVERRIDE prices are
+ * cached for as long as the override was due to last.
+ */
+@Slf4j
+@Component
+public class PriceOverrideIndex {
+
+    // Watermark before the first change, for an empty table
+    private static final LocalDateTime NO_CHANGES = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final PriceOverrideRepository overrideRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration refreshOverlap;
+
+    // Replaced as a whole by a full reload; incremental changes are applied in place
+    private volatile Entries entries = new Entries();
+
+    // Latest updated_at seen in the database; null until the first full load
+    private volatile LocalDateTime lastChange;
+
+    public PriceOverrideIndex(PriceOverrideRepository overrideRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${fxanalyzer.price.overrides.refresh-overlap-seconds:300}") int refreshOverlapSeconds) {
+        this.overrideRepository = overrideRepository;
+        this.eventPublisher = eventPublisher;
+        this.refreshOverlap = Duration.ofSeconds(refreshOverlapSeconds);
+
+        Gauge.builder("price.override.index.size", this, PriceOverrideIndex::size)
+                .description("Active price and FX overrides held in memory")
+                .register(meterRegistry);
+    }
+
+    // ==================== Lookups ====================
+
+    /**
+     * Price override in force for the account on the date: the account's own first, then one for all accounts.
+     */
+    public Optional<ActiveOverride> findPriceOverride(Long accountId, long productId, LocalDate date) {
+        Map<PriceKey, NavigableMap<Start, ActiveOverride>> priceOverrides = entries.priceOverrides;
+        if (accountId != null) {
+            ActiveOverride own = find(priceOverrides.get(new PriceKey(accountId, productId)), date);
+            if (own != null) {
+                return Optional.of(own);
+            }
+        }
+        return Optional.ofNullable(find(priceOverrides.get(new PriceKey(null, productId)), date));
+    }
+
+    /**
+     * FX override in force for the account on the date, for the normalized pair as stored.
+     */
+    public Optional<ActiveOverride> findFxOverride(Long accountId, String currencyPair, LocalDate date) {
+        Map<FxKey, NavigableMap<Start, ActiveOverride>> fxOverrides = entries.fxOverrides;
+        if (accountId != null) {
+            ActiveOverride own = find(fxOverrides.get(new FxKey(accountId, currencyPair)), date);
+            if (own != null) {
+                return Optional.of(own);
+            }
+        }
+        return Optional.ofNullable(find(fxOverrides.get(new FxKey(null, currencyPair)), date));
+    }
+
+    private static ActiveOverride find(NavigableMap<Start, ActiveOverride> intervals, LocalDate date) {
+        if (intervals == null) {
+            return null;
+        }
+        // Latest effective date on or before the date first; earlier ones only if it has already expired
+        for (ActiveOverride override : intervals.headMap(new Start(date, Long.MAX_VALUE), true).descendingMap().values()) {
+            if (override.appliesOn(date)) {
+                return override;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ==================== Refresh ====================
+
+    /**
+     * Full load at startup and periodically, which also drops deleted rows.
+     * Runs on ApplicationStartedEvent, before the cache warm-up, so warmed
+     * prices get their override-based TTLs.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    @Scheduled(cron = "${fxanalyzer.price.overrides.full-reload-cron:0 15 * * * *}")
+    public void reload() {
+        publishRemoved(reloadEntries());
+    }
+
+    private synchronized List<OverrideRemoved> reloadEntries() {
+        List<OverrideRemoved> removed = new ArrayList<>();
+        try {
+            // Read before the rows, so anything changed while they load is polled again
+            LocalDateTime watermark = overrideRepository.findLatestUpdatedAt().orElse(NO_CHANGES);
+            List<PriceOverride> overrides = overrideRepository.findCurrentAndFutureOverrides(LocalDate.now());
+            Entries loaded = new Entries();
+            overrides.forEach(override -> file(loaded, override));
+            Entries previous = entries;
+            previous.keysById.forEach((id, key) -> {
+                if (!key.equals(loaded.keysById.get(id))
+                        || !previous.entry(key, id).equals(loaded.entry(key, id))) {
+                    removed(key).ifPresent(removed::add);
+                }
+            });
+            entries = loaded;
+            if (lastChange == null || lastChange.isBefore(watermark)) {
+                lastChange = watermark;
+            }
+            log.info("Loaded {} active price and FX overrides", loaded.size());
+        } catch (Exception e) {
+            log.warn("Failed to load price overrides: {}", e.getMessage());
+        }
+        return removed;
+    }
+
+    /**
+     * Apply rows created, changed or deactivated since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${fxanalyzer.price.overrides.refresh-ms:5000}",
+            initialDelayString = "${fxanalyzer.price.overrides.refresh-ms:5000}")
+    public void refresh() {
+        publishRemoved(refreshEntries());
+    }
+
+    private synchronized List<OverrideRemoved> refreshEntries() {
+        List<OverrideRemoved> removed = new ArrayList<>();
+        if (lastChange == null) {
+            return removed;
+        }
+        try {
+            // Overlapping polls read some rows again; re-applying an unchanged row is a no-op
+            List<PriceOverride> changed = overrideRepository.findChangedSince(lastChange.minus(refreshOverlap));
+            changed.forEach(override -> applyOne(override).ifPresent(removed::add));
+            if (!changed.isEmpty()) {
+                log.debug("Applied {} changed price overrides", changed.size());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh price overrides: {}", e.getMessage());
+        }
+        return removed;
+    }
+
+    /**
+     * File, move or remove one override. Also for callers that have just written an override.
+     */
+    public void apply(PriceOverride override) {
+        Optional<OverrideRemoved> removed;
+        synchronized (this) {
+            removed = applyOne(override);
+        }
+        removed.ifPresent(eventPublisher::publishEvent);
+    }
+
+    private Optional<OverrideRemoved> applyOne(PriceOverride override) {
+        if (override.getUpdatedAt() != null && lastChange != null && override.getUpdatedAt().isAfter(lastChange)) {
+            lastChange = override.getUpdatedAt();
+        }
+        Object replacedKey = file(entries, override);
+        return replacedKey != null ? removed(replacedKey) : Optional.empty();
+    }
+
+    // Cache evictions run outside the lock; they go to Redis and the other replicas
+    private void publishRemoved(List<OverrideRemoved> removed) {
+        removed.stream().distinct().forEach(eventPublisher::publishEvent);
+    }
+
+    /**
+     * The product or pair to evict when the override under the key goes away; only
+     * overrides for all accounts reach the shared caches.
+     */
+    private static Optional<OverrideRemoved> removed(Object key) {
+        if (key instanceof PriceKey priceKey && priceKey.accountId() == null) {
+            return Optional.of(new OverrideRemoved(priceKey.productId(), null));
+        }
+        if (key instanceof FxKey fxKey && fxKey.accountId() == null) {
+            return Optional.of(new OverrideRemoved(null, fxKey.currencyPair()));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * File the override in target; returns the key it was filed under before if
+     * it has left that key or its values changed, else null.
+     */
+    private static Object file(Entries target, PriceOverride override) {
+        Long id = override.getOverrideId();
+        Object previousKey = target.keysById.remove(id);
+        ActiveOverride previous = previousKey != null ? target.entry(previousKey, id) : null;
+        Object key = null;
+        Start start = null;
+        ActiveOverride active = null;
+
+        if (isInForce(override)) {
+            Long accountId = override.getAccount() != null ? override.getAccount().getAccountId() : null;
+            active = new ActiveOverride(id, override.getOverrideValue(),
+                    override.getEffectiveDate(), override.getExpiryDate(), override.getUpdatedAt());
+            start = new Start(override.getEffectiveDate(), id);
+
+            if (override.isPriceOverride() && override.getProduct() != null) {
+                PriceKey priceKey = new PriceKey(accountId, override.getProduct().getProductId());
+                target.priceOverrides.computeIfAbsent(priceKey, k -> new ConcurrentSkipListMap<>()).put(start, active);
+                key = priceKey;
+            } else if (override.isFxRateOverride() && override.getCurrencyPair() != null) {
+                FxKey fxKey = new FxKey(accountId, override.getCurrencyPair().replace("/", "").toUpperCase());
+                target.fxOverrides.computeIfAbsent(fxKey, k -> new ConcurrentSkipListMap<>()).put(start, active);
+                key = fxKey;
+            }
+            if (key != null) {
+                target.keysById.put(id, key);
+            }
+        }
+
+        // Old entry goes only after the new one is in, so a lookup never misses an override that stays
+        if (previousKey == null) {
+            return null;
+        }
+        boolean unchanged = previousKey.equals(key) && active.equals(previous);
+        target.remove(previousKey, id, previousKey.equals(key) ? start : null);
+        return unchanged ? null : previousKey;
+    }
+
+    private static boolean isInForce(PriceOverride override) {
+        return override.isActive() && override.getOverrideValue() != null && override.getEffectiveDate() != null
+                && (override.getExpiryDate() == null || !override.getExpiryDate().isBefore(LocalDate.now()));
+    }
+
+    private static NavigableMap<Start, ActiveOverride> without(NavigableMap<Start, ActiveOverride> intervals,
+                                                              long overrideId, Start keep) {
+        intervals.keySet().removeIf(start -> start.overrideId() == overrideId && !start.equals(keep));
+        return intervals.isEmpty() ? null : intervals;
+    }
+
+    // ==================== Types ====================
+
+    /**
+     * One generation of the index. Lookups read the maps without locking;
+     * changes go through the synchronized methods above.
+     */
+    private static final class Entries {
+        final Map<PriceKey, NavigableMap<Start, ActiveOverride>> priceOverrides = new ConcurrentHashMap<>();
+        final Map<FxKey, NavigableMap<Start, ActiveOverride>> fxOverrides = new ConcurrentHashMap<>();
+        // Where each override is filed, so a changed row can be moved or removed
+        final Map<Long, Object> keysById = new HashMap<>();
+
+        /**
+         * Remove the override's entries under the key, except the one starting at keep.
+         */
+        void remove(Object key, long overrideId, Start keep) {
+            if (key instanceof PriceKey priceKey) {
+                priceOverrides.computeIfPresent(priceKey, (k, intervals) -> without(intervals, overrideId, keep));
+            } else if (key instanceof FxKey fxKey) {
+                fxOverrides.computeIfPresent(fxKey, (k, intervals) -> without(intervals, overrideId, keep));
+            }
+        }
+
+        ActiveOverride entry(Object key, long overrideId) {
+            NavigableMap<Start, ActiveOverride> intervals = key instanceof PriceKey priceKey
+                    ? priceOverrides.get(priceKey)
+                    : fxOverrides.get((FxKey) key);
+            if (intervals == null) {
+                return null;
+            }
+            return intervals.values().stream()
+                    .filter(override -> override.overrideId() == overrideId)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        int size() {
+            return priceOverrides.values().stream().mapToInt(Map::size).sum()
+                    + fxOverrides.values().stream().mapToInt(Map::size).sum();
+        }
+    }
+
+    public record ActiveOverride(long overrideId, BigDecimal value, LocalDate effectiveDate,
+                                 LocalDate expiryDate, LocalDateTime updatedAt) {
+        boolean appliesOn(LocalDate date) {
+            return !effectiveDate.isAfter(date) && (expiryDate == null || !expiryDate.isBefore(date));
+        }
+    }
+
+    /**
+     * An override for all accounts was removed or changed; cached values for the product or pair are stale.
+     */
+    public record OverrideRemoved(Long productId, String currencyPair) {
+    }
+
+    private record PriceKey(Long accountId, long productId) {
+    }
+
+    private record FxKey(Long accountId, String currencyPair) {
+    }
+
+    private record Start(LocalDate effectiveDate, long overrideId) implements Comparable<Start> {
+        @Override
+        public int compareTo(Start other) {
+            int byDate = effectiveDate.compareTo(other.effectiveDate);
+            return byDate != 0 ? byDate : Long.compare(overrideId, other.overrideId);
+        }
+    }
+}
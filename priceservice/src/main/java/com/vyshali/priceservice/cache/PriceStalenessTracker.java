@@ -0,0 +1,174 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory staleness tracking for REALTIME best prices.
+ *
+ * Every product whose best price is REALTIME sits in one slot of a timer
+ * wheel with one-second slots, at the second its price goes stale
+ * (price time + staleness threshold). A newer price moves it to a later slot;
+ * a best price from any other source stops tracking it. Each second the
+ * wheel advances one slot and everything left in that slot becomes stale.
+ *
+ * Updates and expiry are O(1) per product and nothing is scanned, so the
+ * stale set and its size are always current without a database query.
+ */
+@Slf4j
+@Component
+public class PriceStalenessTracker {
+
+    private static final long TICK_MILLIS = 1_000L;
+
+    private final long thresholdTicks;
+    private final Set<Long>[] wheel;
+    private final Map<Long, Long> deadlines = new ConcurrentHashMap<>();
+    private final Set<Long> stale = ConcurrentHashMap.newKeySet();
+
+    private volatile long processedTick = currentTick();
+    private volatile Consumer<List<Long>> staleListener;
+
+    @SuppressWarnings("unchecked")
+    public PriceStalenessTracker(MeterRegistry meterRegistry,
+                                 @Value("${fxanalyzer.price.staleness-threshold-minutes:30}") int thresholdMinutes) {
+        this.thresholdTicks = thresholdMinutes * 60_000L / TICK_MILLIS;
+        this.wheel = new Set[(int) thresholdTicks + 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+
+        Gauge.builder("price.stale.count", stale, Set::size)
+                .description("Current count of stale prices")
+                .register(meterRegistry);
+
+        Gauge.builder("price.stale.tracked", deadlines, Map::size)
+                .description("Products whose REALTIME best price is tracked for staleness")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registered by PriceService: called with the products that just went stale.
+     */
+    public void setStaleListener(Consumer<List<Long>> staleListener) {
+        this.staleListener = staleListener;
+    }
+
+    // ==================== Reads ====================
+
+    public boolean isStale(long productId) {
+        return stale.contains(productId);
+    }
+
+    public Set<Long> getStaleProductIds() {
+        return Set.copyOf(stale);
+    }
+
+    // ==================== Writes ====================
+
+    /**
+     * Record the current best price of a product. An older price never moves the deadline back.
+     */
+    public void onBestPrice(PriceDto price) {
+        if (price == null || price.getProductId() == null) {
+            return;
+        }
+        long productId = price.getProductId();
+        if (!PriceSource.REALTIME.name().equals(price.getSource()) || price.getPriceTime() == null) {
+            untrack(productId);
+            return;
+        }
+        long now = currentTick();
+        long deadline = Math.min(toTick(price.getPriceTime()) + thresholdTicks, now + thresholdTicks);
+
+        deadlines.compute(productId, (id, current) -> {
+            if (current != null) {
+                if (deadline < current) {
+                    return current;
+                }
+                wheel[slot(current)].remove(id);
+            }
+            if (deadline <= processedTick) {
+                stale.add(id);
+            } else {
+                stale.remove(id);
+                wheel[slot(deadline)].add(id);
+            }
+            return deadline;
+        });
+    }
+
+    public void untrack(long productId) {
+        deadlines.computeIfPresent(productId, (id, current) -> {
+            wheel[slot(current)].remove(id);
+            stale.remove(id);
+            return null;
+        });
+    }
+
+    /**
+     * Advance the wheel to the current second, expiring every slot passed over.
+     */
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void advance() {
+        long now = currentTick();
+        long from = Math.max(processedTick + 1, now - wheel.length + 1);
+        List<Long> expired = new ArrayList<>();
+
+        for (long tick = from; tick <= now; tick++) {
+            processedTick = tick;
+            Set<Long> bucket = wheel[slot(tick)];
+            for (Long productId : bucket) {
+                deadlines.computeIfPresent(productId, (id, deadline) -> {
+                    if (deadline <= now) {
+                        bucket.remove(id);
+                        if (stale.add(id)) {
+                            expired.add(id);
+                        }
+                    }
+                    return deadline;
+                });
+            }
+        }
+        processedTick = now;
+
+        if (!expired.isEmpty()) {
+            log.info("{} prices went stale ({} stale in total)", expired.size(), stale.size());
+            Consumer<List<Long>> listener = staleListener;
+            if (listener != null) {
+                try {
+                    listener.accept(expired);
+                } catch (Exception e) {
+                    log.warn("Failed to apply staleness to {} prices: {}", expired.size(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.length);
+    }
+
+    private static long currentTick() {
+        return System.currentTimeMillis() / TICK_MILLIS;
+    }
+
+    private static long toTick(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / TICK_MILLIS;
+    }
+}
@@ -0,0 +1,132 @@
+package com.vyshali.priceservice.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import com.vyshali.fxanalyzer.common.util.DateUtil;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceOverrideIndex.ActiveOverride;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+/**
+ * Per-entry cache lifetime for prices, by source and NY market hours.
+ *
+ * - REALTIME: the configured L1/L2 TTL while the NY market is open; when it
+ *   is closed nothing changes until the next open, so entries live until then
+ * - RCP_SNAP, MSPA: end-of-day prices live until the next business day starts
+ * - OVERRIDE: until the day after the expiryDate of the product's override
+ *   for all accounts (open-ended overrides live as long as max-hours allows)
+ *
+ * Long lifetimes are capped at max-hours and never drop below the base TTL.
+ * A newer write always replaces the entry, and with it its lifetime.
+ */
+@Component
+public class PriceTtlPolicy {
+
+    private static final LocalTime NY_MARKET_OPEN = LocalTime.of(9, 30);
+
+    private final PriceOverrideIndex overrideIndex;
+    private final boolean adaptive;
+    private final Duration l1BaseTtl;
+    private final Duration l2BaseTtl;
+    private final Duration maxTtl;
+
+    public PriceTtlPolicy(PriceOverrideIndex overrideIndex,
+                          @Value("${fxanalyzer.cache.prices.ttl.adaptive:true}") boolean adaptive,
+                          @Value("${fxanalyzer.cache.prices.l1-ttl-seconds:30}") int l1TtlSeconds,
+                          @Value("${fxanalyzer.cache.prices.l2-ttl-seconds:300}") int l2TtlSeconds,
+                          @Value("${fxanalyzer.cache.prices.ttl.max-hours:72}") int maxHours) {
+        this.overrideIndex = overrideIndex;
+        this.adaptive = adaptive;
+        this.l1BaseTtl = Duration.ofSeconds(l1TtlSeconds);
+        this.l2BaseTtl = Duration.ofSeconds(l2TtlSeconds);
+        this.maxTtl = Duration.ofHours(maxHours);
+    }
+
+    public Duration l1Ttl(PriceDto price) {
+        return ttl(price, l1BaseTtl);
+    }
+
+    public Duration l2Ttl(PriceDto price) {
+        return ttl(price, l2BaseTtl);
+    }
+
+    /**
+     * Caffeine expiry for L1 entries: each write sets the entry's lifetime, reads leave it alone.
+     */
+    public <K> Expiry<K, PriceDto> l1Expiry() {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, PriceDto price, long currentTime) {
+                return l1Ttl(price).toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, PriceDto price, long currentTime, long currentDuration) {
+                return l1Ttl(price).toNanos();
+            }
+
+            @Override
+            public long expireAfterRead(K key, PriceDto price, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private Duration ttl(PriceDto price, Duration base) {
+        if (!adaptive || price == null) {
+            return base;
+        }
+        ZonedDateTime now = ZonedDateTime.now(DateUtil.NEW_YORK_ZONE);
+        ZonedDateTime until = validUntil(price, now);
+        if (until == null) {
+            return base;
+        }
+        Duration ttl = Duration.between(now, until);
+        if (ttl.compareTo(base) < 0) {
+            return base;
+        }
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    /**
+     * When the price can next change, or null if it may change at any time.
+     */
+    private ZonedDateTime validUntil(PriceDto price, ZonedDateTime now) {
+        LocalDate today = now.toLocalDate();
+        switch (PriceSource.fromString(price.getSource())) {
+            case REALTIME:
+                return DateUtil.isNYMarketOpen() ? null : nextMarketOpen(now);
+            case OVERRIDE:
+                // The shared cache only holds prices for all accounts, so only those overrides count
+                Optional<ActiveOverride> override = price.getProductId() != null
+                        ? overrideIndex.findPriceOverride(null, price.getProductId(), today)
+                        : Optional.empty();
+                if (override.isPresent()) {
+                    LocalDate expiry = override.get().expiryDate();
+                    return expiry != null ? startOfDay(expiry.plusDays(1)) : now.plus(maxTtl);
+                }
+                return startOfDay(DateUtil.getNextBusinessDay(today));
+            default:
+                return startOfDay(DateUtil.getNextBusinessDay(today));
+        }
+    }
+
+    private static ZonedDateTime nextMarketOpen(ZonedDateTime now) {
+        LocalDate today = now.toLocalDate();
+        if (DateUtil.isBusinessDay(today) && now.toLocalTime().isBefore(NY_MARKET_OPEN)) {
+            return today.atTime(NY_MARKET_OPEN).atZone(DateUtil.NEW_YORK_ZONE);
+        }
+        return DateUtil.getNextBusinessDay(today).atTime(NY_MARKET_OPEN).atZone(DateUtil.NEW_YORK_ZONE);
+    }
+
+    private static ZonedDateTime startOfDay(LocalDate date) {
+        return date.atStartOfDay(DateUtil.NEW_YORK_ZONE);
+    }
+}
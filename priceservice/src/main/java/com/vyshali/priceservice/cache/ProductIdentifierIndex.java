@@ -0,0 +1,141 @@
+package com.vyshali.priceservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vyshali.fxanalyzer.common.entity.Product;
+import com.vyshali.fxanalyzer.common.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory (identifierType, identifier) -> product index for the ingestion path.
+ *
+ * Loaded with every active product at startup. Identifiers not in the index
+ * are looked up in one query per batch; identifiers the database does not
+ * know either are remembered for unknown-ttl so a feed full of unmapped
+ * securities does not query on every batch.
+ */
+@Slf4j
+@Component
+public class ProductIdentifierIndex {
+
+    private static final int LOOKUP_CHUNK_SIZE = 1_000;
+
+    private final ProductRepository productRepository;
+    private final Map<String, ProductRef> index = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> unknown;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter unknownCounter;
+
+    public ProductIdentifierIndex(ProductRepository productRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${fxanalyzer.ingest.unknown-identifier-ttl-seconds:300}") long unknownTtlSeconds) {
+        this.productRepository = productRepository;
+        this.unknown = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(unknownTtlSeconds))
+                .build();
+
+        this.hitCounter = Counter.builder("price.ingest.identifier.hits")
+                .description("Identifiers resolved from the in-memory index")
+                .register(meterRegistry);
+
+        this.missCounter = Counter.builder("price.ingest.identifier.misses")
+                .description("Identifiers looked up in the database")
+                .register(meterRegistry);
+
+        this.unknownCounter = Counter.builder("price.ingest.identifier.unknown")
+                .description("Identifiers with no active product")
+                .register(meterRegistry);
+
+        Gauge.builder("price.ingest.identifier.index.size", index, Map::size)
+                .description("Products held in the identifier index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Product> products = productRepository.findAllActive();
+        products.forEach(this::put);
+        log.info("Loaded {} products into the identifier index", products.size());
+    }
+
+    /**
+     * Resolve a batch of keys (see {@link #key}); unresolvable keys are absent from the result.
+     */
+    public Map<String, ProductRef> resolveAll(Collection<String> keys) {
+        Map<String, ProductRef> result = new HashMap<>(keys.size());
+        Set<String> missing = new HashSet<>();
+        for (String key : keys) {
+            ProductRef ref = index.get(key);
+            if (ref != null) {
+                result.put(key, ref);
+            } else if (unknown.getIfPresent(key) == null) {
+                missing.add(key);
+            }
+        }
+        hitCounter.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        missCounter.increment(missing.size());
+        List<String> identifiers = missing.stream().map(ProductIdentifierIndex::identifierOf).distinct().toList();
+        for (int from = 0; from < identifiers.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = identifiers.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, identifiers.size()));
+            for (Product product : productRepository.findByIdentifierIn(chunk)) {
+                if (Boolean.TRUE.equals(product.getIsActive())) {
+                    ProductRef ref = put(product);
+                    if (missing.remove(ref.key())) {
+                        result.put(ref.key(), ref);
+                    }
+                }
+            }
+        }
+        missing.forEach(key -> unknown.put(key, Boolean.TRUE));
+        unknownCounter.increment(missing.size());
+        return result;
+    }
+
+    public static String key(String identifierType, String identifier) {
+        return identifierType.toUpperCase() + ':' + identifier;
+    }
+
+    private static String identifierOf(String key) {
+        return key.substring(key.indexOf(':') + 1);
+    }
+
+    private ProductRef put(Product product) {
+        ProductRef ref = new ProductRef(product.getProductId(),
+                key(product.getIdentifierType(), product.getIdentifier()),
+                product.getIdentifier(), product.getTicker(),
+                product.getSecurityDescription(), product.getIssueCurrency());
+        index.put(ref.key(), ref);
+        unknown.invalidate(ref.key());
+        return ref;
+    }
+
+    /**
+     * The product fields a price DTO needs.
+     */
+    public record ProductRef(long productId, String key, String identifier, String ticker,
+                             String securityDescription, String currency) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.vyshali.priceservice.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.function.Function;
+
+/**
+ * Caffeine loader behind refresh-ahead L1 caches.
+ *
+ * Readers only ever call getIfPresent, so this loader runs solely when
+ * Caffeine reloads an entry that was read after its refresh point. The
+ * actual lookup is supplied by the owning service (price hierarchy or FX
+ * rate lookup) once it is constructed. A failed reload leaves the current
+ * value in place until it expires normally.
+ */
+class RefreshAheadLoader<V> implements CacheLoader<String, V> {
+
+    private final String keyPrefix;
+    private final Timer refreshTimer;
+    private final Counter refreshFailureCounter;
+
+    private volatile Function<String, V> refresher;
+
+    RefreshAheadLoader(String cacheName, String keyPrefix, MeterRegistry meterRegistry) {
+        this.keyPrefix = keyPrefix;
+        this.refreshTimer = Timer.builder("price.cache.refresh.time")
+                .description("Refresh-ahead reload duration")
+                .tag("cache", cacheName)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.refreshFailureCounter = Counter.builder("price.cache.refresh.failures")
+                .description("Refresh-ahead reloads that failed")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    void setRefresher(Function<String, V> refresher) {
+        this.refresher = refresher;
+    }
+
+    @Override
+    public V load(String key) {
+        Function<String, V> current = refresher;
+        if (current == null) {
+            refreshFailureCounter.increment();
+            throw new IllegalStateException("No refresher registered for " + keyPrefix + " entries");
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            return current.apply(key.substring(keyPrefix.length()));
+        } catch (RuntimeException e) {
+            refreshFailureCounter.increment();
+            throw e;
+        } finally {
+            sample.stop(refreshTimer);
+        }
+    }
+}
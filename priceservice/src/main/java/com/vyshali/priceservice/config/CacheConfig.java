@@ -1,10 +1,17 @@
 package com.vyshali.priceservice.config;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vyshali.fxanalyzer.priceservice.cache.CacheSyncListener;
+import com.vyshali.fxanalyzer.priceservice.cache.CacheSyncPublisher;
+import com.vyshali.fxanalyzer.priceservice.cache.CompactRedisSerializer;
+import com.vyshali.fxanalyzer.priceservice.cache.FxRateMatrix;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceBook;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceTtlPolicy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -15,6 +22,8 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -30,8 +39,18 @@ import java.util.concurrent.TimeUnit;
  * L2: Redis (distributed, longer TTL)
  * 
  * Price cache strategy:
+ * - L0 PriceBook: primitive-keyed best price per product (no per-read allocation)
  * - L1 Caffeine: 30 seconds (for ultra-fast lookups)
  * - L2 Redis: 5 minutes (for distributed consistency)
+ * 
+ * FX rates: an in-memory rate matrix (direct, inverted and triangulated
+ * crosses) backs the L1/L2 tiers.
+ * 
+ * L2 values: PriceDto/FxRateDto use a compact binary codec (see CompactRedisSerializer),
+ * everything else stays JSON.
+ * 
+ * L1 coherence across replicas: cache changes are broadcast on a Redis
+ * pub/sub channel and applied by every other replica's listener.
  */
 @Configuration
 public class CacheConfig {
@@ -52,6 +71,18 @@ public class CacheConfig {
     @Value("${fxanalyzer.cache.fx-rates.l2-ttl-seconds:300}")
     private int fxRateL2TtlSeconds;
 
+    @Value("${fxanalyzer.cache.codec.write-format:JSON}")
+    private CompactRedisSerializer.WriteFormat codecWriteFormat;
+
+    @Value("${fxanalyzer.cache.codec.read-json:true}")
+    private boolean codecReadJson;
+
+    @Value("${fxanalyzer.cache.prices.book.enabled:true}")
+    private boolean priceBookEnabled;
+
+    @Value("${fxanalyzer.cache.prices.book.expected-products:50000}")
+    private int priceBookExpectedProducts;
+
     // ==================== L1 Caffeine Cache ====================
 
     @Bean
@@ -72,19 +103,34 @@ public class CacheConfig {
                 .recordStats();
     }
 
+    // ==================== L0 Price Book ====================
+
+    /**
+     * Primitive-keyed price book consulted before the Caffeine L1 on the hot read path.
+     * Entries live exactly as long as the matching L1 entry.
+     */
+    @Bean
+    public PriceBook priceBook(PriceTtlPolicy ttlPolicy) {
+        return new PriceBook(priceBookEnabled, priceBookExpectedProducts, ttlPolicy::l1Ttl);
+    }
+
+    // ==================== FX Rate Matrix ====================
+
+    /**
+     * N x N rate matrix over the supported pairs, triangulating crosses through the vehicle currencies.
+     */
+    @Bean
+    public FxRateMatrix fxRateMatrix(FxRateProperties fxRateProperties) {
+        return new FxRateMatrix(fxRateProperties.getSupportedPairs(), fxRateProperties.getVehicleCurrencies(),
+                fxRateProperties.getStaleAfter());
+    }
+
     // ==================== L2 Redis Cache ====================
 
     @Bean
     public CacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.activateDefaultTyping(
-                LaissezFaireSubTypeValidator.instance,
-                ObjectMapper.DefaultTyping.NON_FINAL,
-                JsonTypeInfo.As.PROPERTY
-        );
-
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(mapper);
+        CompactRedisSerializer serializer = new CompactRedisSerializer(
+                redisJsonSerializer(), codecWriteFormat, codecReadJson);
 
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofSeconds(priceL2TtlSeconds))
@@ -103,6 +149,23 @@ public class CacheConfig {
                 .build();
     }
 
+    /**
+     * JSON for L2 values the binary codec does not cover, and for prices and FX
+     * rates while write-format is json. Properties without a setter (FxRateDto's
+     * forward rates) or added by a newer replica are ignored on read.
+     */
+    private static GenericJackson2JsonRedisSerializer redisJsonSerializer() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
+
     // ==================== Redis Template ====================
 
     @Bean
@@ -110,10 +173,25 @@ public class CacheConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(new CompactRedisSerializer(
+                redisJsonSerializer(), codecWriteFormat, codecReadJson));
         template.setHashKeySerializer(new StringRedisSerializer());
         template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
         template.afterPropertiesSet();
         return template;
     }
+
+    // ==================== Replica Cache Sync ====================
+
+    @Bean
+    public RedisMessageListenerContainer cacheSyncListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                    CacheSyncListener listener,
+                                                                    CacheSyncPublisher publisher) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (publisher.isEnabled()) {
+            container.addMessageListener(listener, new ChannelTopic(publisher.getChannel()));
+        }
+        return container;
+    }
 }
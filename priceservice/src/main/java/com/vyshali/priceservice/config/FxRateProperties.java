@@ -0,0 +1,27 @@
+package com.vyshali.priceservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FX rate settings shared through application-common.yml (fxanalyzer.fx-rate).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "fxanalyzer.fx-rate")
+public class FxRateProperties {
+
+    /** Pairs quoted by upstream sources; their currencies make up the rate matrix. */
+    private List<String> supportedPairs = new ArrayList<>();
+
+    /** Currencies crosses are triangulated through, in order of preference. */
+    private List<String> vehicleCurrencies = new ArrayList<>(List.of("USD", "EUR"));
+
+    /** Matrix quotes older than this are no longer served ahead of the database. */
+    private Duration staleAfter = Duration.ofMinutes(30);
+}
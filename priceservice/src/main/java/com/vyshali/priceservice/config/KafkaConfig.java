@@ -1,27 +1,101 @@
 package com.vyshali.priceservice.config;
 
+import com.vyshali.fxanalyzer.priceservice.dto.PriceTickMessage;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.ExponentialBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Kafka configuration for publishing price update events.
+ * Kafka configuration for publishing price update events and consuming upstream price ticks.
  */
 @Configuration
+@EnableKafka
 public class KafkaConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${fxanalyzer.ingest.group-id:price-service-ingest}")
+    private String ingestGroupId;
+
+    @Value("${fxanalyzer.ingest.concurrency:3}")
+    private int ingestConcurrency;
+
+    @Value("${fxanalyzer.ingest.max-poll-records:2000}")
+    private int ingestMaxPollRecords;
+
+    @Value("${fxanalyzer.ingest.retry.initial-interval-ms:200}")
+    private long ingestRetryInitialIntervalMs;
+
+    @Value("${fxanalyzer.ingest.retry.max-interval-ms:30000}")
+    private long ingestRetryMaxIntervalMs;
+
+    // ==================== Consumer Configuration ====================
+
+    @Bean
+    public ConsumerFactory<String, PriceTickMessage> priceTickConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, ingestGroupId);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"); // Old ticks are superseded by new ones
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, ingestMaxPollRecords);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 64 * 1024);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 50); // Bounds the latency cost of waiting for fetch-min-bytes
+
+        JsonDeserializer<PriceTickMessage> deserializer = new JsonDeserializer<>(PriceTickMessage.class, false);
+        deserializer.addTrustedPackages("com.vyshali.fxanalyzer.*");
+
+        // A malformed tick arrives as a null value instead of failing the whole batch
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(deserializer));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, PriceTickMessage> priceTickKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, PriceTickMessage> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(priceTickConsumerFactory());
+        factory.setConcurrency(ingestConcurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setPollTimeout(1000);
+        factory.setCommonErrorHandler(priceTickErrorHandler());
+        return factory;
+    }
+
+    /**
+     * A batch that fails to write is redelivered with exponential backoff and no
+     * retry limit: ticks are never skipped, the partition just waits for the database.
+     */
+    private DefaultErrorHandler priceTickErrorHandler() {
+        ExponentialBackOff backOff = new ExponentialBackOff(ingestRetryInitialIntervalMs, 2.0);
+        backOff.setMaxInterval(ingestRetryMaxIntervalMs);
+        return new DefaultErrorHandler(backOff);
+    }
+
+    // ==================== Producer Configuration ====================
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> props = new HashMap<>();
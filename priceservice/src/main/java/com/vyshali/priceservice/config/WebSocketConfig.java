@@ -1,9 +1,14 @@
 package com.vyshali.priceservice.config;
 
+import com.vyshali.fxanalyzer.priceservice.websocket.BinaryPriceStreamHandler;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 /**
@@ -14,10 +19,24 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * - /topic/prices/all - all price updates
  * - /topic/fx-rates/{currencyPair} - individual FX rates
  * - /topic/fx-rates/all - all FX rate updates
+ * - /topic/prices/batch - all price updates, as one JSON array per frame
+ * - /topic/fx-rates/batch - all FX rate updates, as one JSON array per frame
+ * 
+ * Updates are conflated (see ConflatingWebSocketPublisher): every topic carries
+ * the latest value per product / pair at a bounded rate. Messages on the per-id
+ * and "all" topics are single DTOs; the "batch" topics group a flush's values
+ * into one array.
+ * 
+ * /ws/prices/binary is a plain (non-STOMP) WebSocket endpoint streaming a
+ * snapshot and then binary deltas of subscribed prices (see BinaryPriceStreamHandler).
  */
 @Configuration
+@EnableWebSocket
 @EnableWebSocketMessageBroker
-public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer, WebSocketConfigurer {
+
+    private final BinaryPriceStreamHandler binaryPriceStreamHandler;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
@@ -39,4 +58,11 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws/prices")
                 .setAllowedOriginPatterns("*");
     }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Binary snapshot + delta price stream for high-volume dashboards
+        registry.addHandler(binaryPriceStreamHandler, "/ws/prices/binary")
+                .setAllowedOriginPatterns("*");
+    }
 }
@@ -0,0 +1,78 @@
+package com.vyshali.priceservice.consumer;
+
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import com.vyshali.fxanalyzer.priceservice.dto.PriceTickMessage;
+import com.vyshali.fxanalyzer.priceservice.service.PriceIngestionService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kafka consumer for upstream price feeds.
+ * Filter ticks are REALTIME prices, RCP ticks RCP_SNAP and MSPA ticks MSPA;
+ * the topic decides the source, whatever the tick itself says.
+ *
+ * The batch is acknowledged only after it has been written. If the write
+ * fails the listener throws and the container redelivers the batch, backing
+ * off exponentially for as long as the failure lasts (see KafkaConfig).
+ */
+@Slf4j
+@Component
+public class PriceTickConsumer {
+
+    private final PriceIngestionService ingestionService;
+    private final Map<String, PriceSource> sourceByTopic;
+
+    public PriceTickConsumer(PriceIngestionService ingestionService,
+                             @Value("${fxanalyzer.kafka.topics.filter-prices:filter.prices}") String filterTopic,
+                             @Value("${fxanalyzer.kafka.topics.rcp-prices:rcp.prices}") String rcpTopic,
+                             @Value("${fxanalyzer.kafka.topics.mspa-prices:mspa.prices}") String mspaTopic) {
+        this.ingestionService = ingestionService;
+        this.sourceByTopic = Map.of(
+                filterTopic, PriceSource.REALTIME,
+                rcpTopic, PriceSource.RCP_SNAP,
+                mspaTopic, PriceSource.MSPA);
+    }
+
+    @KafkaListener(
+            topics = {
+                    "${fxanalyzer.kafka.topics.filter-prices:filter.prices}",
+                    "${fxanalyzer.kafka.topics.rcp-prices:rcp.prices}",
+                    "${fxanalyzer.kafka.topics.mspa-prices:mspa.prices}"
+            },
+            containerFactory = "priceTickKafkaListenerContainerFactory",
+            autoStartup = "${fxanalyzer.ingest.enabled:true}"
+    )
+    public void consumeTicks(List<ConsumerRecord<String, PriceTickMessage>> records, Acknowledgment acknowledgment) {
+        List<PriceTickMessage> ticks = new ArrayList<>(records.size());
+        int malformed = 0;
+        for (ConsumerRecord<String, PriceTickMessage> record : records) {
+            PriceTickMessage tick = record.value();
+            if (tick == null) {
+                // Failed deserialization (see KafkaConfig)
+                malformed++;
+                continue;
+            }
+            PriceSource source = sourceByTopic.get(record.topic());
+            if (source != null) {
+                tick.setSource(source.name());
+            }
+            ticks.add(tick);
+        }
+
+        PriceIngestionService.IngestResult result = ingestionService.ingest(ticks);
+        acknowledgment.acknowledge();
+
+        if (malformed > 0) {
+            log.warn("Skipped {} malformed price ticks", malformed);
+        }
+        log.debug("Price tick batch: {} received, {} written", records.size(), result.written());
+    }
+}
@@ -3,17 +3,32 @@ package com.vyshali.priceservice.controller;
 import com.vyshali.fxanalyzer.common.dto.ApiResponse;
 import com.vyshali.fxanalyzer.common.dto.FxRateDto;
 import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import com.vyshali.fxanalyzer.priceservice.cache.FxMatrixSnapshot;
 import com.vyshali.fxanalyzer.priceservice.cache.PriceCacheService;
+import com.vyshali.fxanalyzer.priceservice.dto.HistorySeriesDto;
+import com.vyshali.fxanalyzer.priceservice.dto.ImportResultDto;
+import com.vyshali.fxanalyzer.priceservice.importer.BulkImportService;
 import com.vyshali.fxanalyzer.priceservice.service.FxRateService;
+import com.vyshali.fxanalyzer.priceservice.service.PriceHistoryService;
 import com.vyshali.fxanalyzer.priceservice.service.PriceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +47,8 @@ public class PriceController {
     private final PriceService priceService;
     private final FxRateService fxRateService;
     private final PriceCacheService cacheService;
+    private final BulkImportService importService;
+    private final PriceHistoryService historyService;
 
     // ==================== Health & Status ====================
 
@@ -48,9 +65,13 @@ public class PriceController {
     // ==================== Security Prices ====================
 
     @GetMapping("/{productId}")
-    @Operation(summary = "Get price by product ID")
-    public ResponseEntity<ApiResponse<PriceDto>> getPrice(@PathVariable Long productId) {
-        PriceDto price = priceService.getPrice(productId);
+    @Operation(summary = "Get price by product ID (with accountId, that account's active override wins)")
+    public ResponseEntity<ApiResponse<PriceDto>> getPrice(
+            @PathVariable Long productId,
+            @RequestParam(required = false) Long accountId) {
+        PriceDto price = accountId != null
+                ? priceService.getPriceForAccount(accountId, productId)
+                : priceService.getPrice(productId);
         return ResponseEntity.ok(ApiResponse.success(price));
     }
 
@@ -91,9 +112,13 @@ public class PriceController {
     // ==================== FX Rates ====================
 
     @GetMapping("/fx/{currencyPair}")
-    @Operation(summary = "Get FX rate for currency pair")
-    public ResponseEntity<ApiResponse<FxRateDto>> getFxRate(@PathVariable String currencyPair) {
-        FxRateDto rate = fxRateService.getFxRate(currencyPair);
+    @Operation(summary = "Get FX rate for currency pair (with accountId, that account's active override wins)")
+    public ResponseEntity<ApiResponse<FxRateDto>> getFxRate(
+            @PathVariable String currencyPair,
+            @RequestParam(required = false) Long accountId) {
+        FxRateDto rate = accountId != null
+                ? fxRateService.getFxRateForAccount(accountId, currencyPair)
+                : fxRateService.getFxRate(currencyPair);
         return ResponseEntity.ok(ApiResponse.success(rate));
     }
 
@@ -104,6 +129,26 @@ public class PriceController {
         return ResponseEntity.ok(ApiResponse.success(rates));
     }
 
+    @GetMapping(value = "/fx/matrix", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get the full mid-rate matrix for all supported currencies (supports If-None-Match)")
+    public ResponseEntity<ApiResponse<FxMatrixSnapshot>> getFxMatrix(WebRequest request) {
+        FxMatrixSnapshot snapshot = fxRateService.getRateMatrixSnapshot();
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(snapshot.getEtag()).body(ApiResponse.success(snapshot));
+    }
+
+    @GetMapping(value = "/fx/matrix", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Get the full mid-rate matrix in compact binary form (supports If-None-Match)")
+    public ResponseEntity<byte[]> getFxMatrixBinary(WebRequest request) {
+        FxMatrixSnapshot snapshot = fxRateService.getRateMatrixSnapshot();
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(snapshot.getEtag()).body(snapshot.toBytes());
+    }
+
     @PostMapping("/fx/batch")
     @Operation(summary = "Get FX rates for multiple currency pairs")
     public ResponseEntity<ApiResponse<List<FxRateDto>>> getFxRates(@RequestBody List<String> currencyPairs) {
@@ -130,6 +175,66 @@ public class PriceController {
         return ResponseEntity.ok(ApiResponse.success(updated, "FX rate updated"));
     }
 
+    // ==================== History ====================
+
+    @GetMapping("/{productId}/history")
+    @Operation(summary = "Daily best-price series for a product (default: the last year)")
+    public ResponseEntity<ApiResponse<HistorySeriesDto>> getPriceHistory(
+            @PathVariable Long productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success(historyService.getPriceHistory(productId, from, to)));
+    }
+
+    @GetMapping("/{productId}/history/as-of")
+    @Operation(summary = "Last daily best price on or before a date")
+    public ResponseEntity<ApiResponse<HistorySeriesDto>> getPriceAsOf(
+            @PathVariable Long productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(ApiResponse.success(historyService.getPriceAsOf(productId, date)));
+    }
+
+    @GetMapping("/fx/{currencyPair}/history")
+    @Operation(summary = "Daily FX mid-rate series for a pair (default: the last year)")
+    public ResponseEntity<ApiResponse<HistorySeriesDto>> getFxHistory(
+            @PathVariable String currencyPair,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success(historyService.getFxHistory(currencyPair, from, to)));
+    }
+
+    @GetMapping("/fx/{currencyPair}/history/as-of")
+    @Operation(summary = "Last daily FX mid rate on or before a date")
+    public ResponseEntity<ApiResponse<HistorySeriesDto>> getFxAsOf(
+            @PathVariable String currencyPair,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(ApiResponse.success(historyService.getFxAsOf(currencyPair, date)));
+    }
+
+    // ==================== Bulk Import ====================
+
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Bulk import prices from CSV (streamed; source applies to rows without a source column)")
+    public ResponseEntity<ApiResponse<ImportResultDto>> importPrices(
+            InputStream body,
+            @RequestParam(defaultValue = "MSPA") PriceSource source) throws IOException {
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            ImportResultDto result = importService.importPrices(reader, source, "request");
+            return ResponseEntity.ok(ApiResponse.success(result, "Prices imported"));
+        }
+    }
+
+    @PostMapping(value = "/fx/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Bulk import FX rates from CSV (streamed)")
+    public ResponseEntity<ApiResponse<ImportResultDto>> importFxRates(
+            InputStream body,
+            @RequestParam(defaultValue = "MSPA") String source) throws IOException {
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            ImportResultDto result = importService.importFxRates(reader, source.toUpperCase(), "request");
+            return ResponseEntity.ok(ApiResponse.success(result, "FX rates imported"));
+        }
+    }
+
     // ==================== Cache Management ====================
 
     @GetMapping("/cache/stats")
@@ -0,0 +1,28 @@
+package com.vyshali.priceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Daily closing values of one product or currency pair, column by column
+ * (dates[i], values[i] and sources[i] belong together).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorySeriesDto {
+
+    private String key;                 // Product id or currency pair
+    private LocalDate from;
+    private LocalDate to;
+    private List<LocalDate> dates;
+    private List<BigDecimal> values;    // Best price or FX mid rate
+    private List<String> sources;
+}
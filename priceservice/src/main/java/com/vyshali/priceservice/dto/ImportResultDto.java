@@ -0,0 +1,28 @@
+package com.vyshali.priceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Statistics of one bulk price or FX rate import.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDto {
+
+    private String type;                // PRICES, FX_RATES
+    private String origin;              // "request" or the dropped file name
+    private long rowsRead;
+    private long rowsWritten;
+    private long rowsRejected;          // Unparseable or missing required fields
+    private long unknownProducts;       // Prices only: identifier with no active product
+    private long bestPricesChanged;     // Prices only
+    private long durationMs;
+    private List<String> errors;        // First errors, with line numbers
+}
@@ -0,0 +1,48 @@
+package com.vyshali.priceservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Price tick from an upstream feed (Filter, RCP or MSPA).
+ * This is the Kafka message format on the upstream price topics.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PriceTickMessage {
+
+    @JsonProperty("identifier_type")
+    private String identifierType;  // CUSIP, ISIN, SEDOL
+    
+    @JsonProperty("identifier")
+    private String identifier;
+    
+    @JsonProperty("price")
+    private BigDecimal price;
+    
+    @JsonProperty("bid_price")
+    private BigDecimal bidPrice;
+    
+    @JsonProperty("ask_price")
+    private BigDecimal askPrice;
+    
+    @JsonProperty("price_date")
+    private LocalDate priceDate;    // Defaults to today
+    
+    @JsonProperty("price_time")
+    private LocalDateTime priceTime;  // Defaults to receipt time
+    
+    @JsonProperty("source")
+    private String source;          // REALTIME, RCP_SNAP, MSPA - only used if the topic does not imply one
+}
@@ -0,0 +1,190 @@
+package com.vyshali.priceservice.event;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.event.PriceUpdatedEvent;
+import com.vyshali.fxanalyzer.priceservice.websocket.BinaryPriceStreamHandler;
+import com.vyshali.fxanalyzer.priceservice.websocket.ConflatingWebSocketPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * After-commit publisher for price updates.
+ *
+ * Price writes publish a PricePublication inside their transaction; Spring
+ * delivers it here only after the commit, so rolled-back writes never reach
+ * Kafka or WebSocket clients and the transaction no longer waits on either.
+ *
+ * WebSocket fan-out only buffers (it is conflated and flushed elsewhere), so
+ * it runs on the committing thread. Kafka events go onto a bounded queue that
+ * a dedicated dispatcher thread drains in batches of up to max-batch events,
+ * sent back to back so the producer packs them into as few requests as it can.
+ */
+@Slf4j
+@Component
+public class PriceEventPublisher {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ConflatingWebSocketPublisher webSocketPublisher;
+    private final BinaryPriceStreamHandler binaryPriceStream;
+    private final int maxBatch;
+
+    private final BlockingQueue<QueuedEvent> queue;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "price-event-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+    private final Timer publishLagTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    public PriceEventPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                               ConflatingWebSocketPublisher webSocketPublisher,
+                               BinaryPriceStreamHandler binaryPriceStream,
+                               MeterRegistry meterRegistry,
+                               @Value("${fxanalyzer.kafka.publisher.queue-capacity:100000}") int queueCapacity,
+                               @Value("${fxanalyzer.kafka.publisher.max-batch:500}") int maxBatch) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.webSocketPublisher = webSocketPublisher;
+        this.binaryPriceStream = binaryPriceStream;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.publishedCounter = Counter.builder("price.events.published")
+                .description("PriceUpdatedEvents handed to Kafka")
+                .register(meterRegistry);
+
+        this.failedCounter = Counter.builder("price.events.failed")
+                .description("PriceUpdatedEvents Kafka did not accept")
+                .register(meterRegistry);
+
+        this.droppedCounter = Counter.builder("price.events.dropped")
+                .description("PriceUpdatedEvents dropped because the publish queue was full")
+                .register(meterRegistry);
+
+        this.publishLagTimer = Timer.builder("price.events.publish.lag")
+                .description("Time from commit to Kafka send")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.batchSizeSummary = DistributionSummary.builder("price.events.batch.size")
+                .description("PriceUpdatedEvents per dispatch batch")
+                .register(meterRegistry);
+
+        Gauge.builder("price.events.queue.depth", queue, BlockingQueue::size)
+                .description("PriceUpdatedEvents waiting to be sent")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.submit(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Let the dispatcher drain what is queued before the producer goes away
+        running = false;
+        dispatcher.shutdown();
+        if (!dispatcher.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Price event dispatcher did not drain in time, {} events not sent", queue.size());
+            dispatcher.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs after the publishing transaction commits (or immediately if there was none).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPricesCommitted(PricePublication publication) {
+        for (PriceDto price : publication.prices()) {
+            webSocketPublisher.publish("/topic/prices/" + price.getProductId(), price);
+            webSocketPublisher.publishKeyed("/topic/prices/all", price.getProductId(), price);
+            webSocketPublisher.publishBatched("/topic/prices/batch", price.getProductId(), price);
+            // The binary stream holds each product's best price; a losing tick would replace it
+            if (publication.best()) {
+                binaryPriceStream.onPriceUpdate(price);
+            }
+        }
+
+        long now = System.nanoTime();
+        for (PriceUpdatedEvent event : publication.events()) {
+            if (!queue.offer(new QueuedEvent(event, now))) {
+                droppedCounter.increment();
+                log.warn("Price event queue full, dropping event for product {}", event.getProductId());
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        List<QueuedEvent> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to dispatch {} price events: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<QueuedEvent> batch) {
+        batchSizeSummary.record(batch.size());
+        long now = System.nanoTime();
+        for (QueuedEvent queued : batch) {
+            PriceUpdatedEvent event = queued.event();
+            publishLagTimer.record(Duration.ofNanos(now - queued.enqueuedNanos()));
+            try {
+                kafkaTemplate.send(PriceUpdatedEvent.TOPIC, event.getTicker(), event)
+                        .whenComplete((result, e) -> {
+                            if (e != null) {
+                                failedCounter.increment();
+                                log.warn("Failed to publish price event for product {}: {}",
+                                        event.getProductId(), e.getMessage());
+                            }
+                        });
+                publishedCounter.increment();
+            } catch (Exception e) {
+                failedCounter.increment();
+                log.warn("Failed to publish price event for product {}: {}", event.getProductId(), e.getMessage());
+            }
+        }
+    }
+
+    private record QueuedEvent(PriceUpdatedEvent event, long enqueuedNanos) {
+    }
+}
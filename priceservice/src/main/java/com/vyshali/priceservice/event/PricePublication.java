@@ -0,0 +1,18 @@
+package com.vyshali.priceservice.event;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.event.PriceUpdatedEvent;
+
+import java.util.List;
+
+/**
+ * Price updates written in one transaction, broadcast by PriceEventPublisher
+ * only once that transaction has committed. best is false when the prices are
+ * ticks that did not replace the product's best price.
+ */
+public record PricePublication(List<PriceDto> prices, List<PriceUpdatedEvent> events, boolean best) {
+
+    public static PricePublication of(PriceDto price, PriceUpdatedEvent event, boolean best) {
+        return new PricePublication(List.of(price), List.of(event), best);
+    }
+}
@@ -0,0 +1,284 @@
+package com.vyshali.priceservice.importer;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import com.vyshali.fxanalyzer.common.util.CurrencyUtil;
+import com.vyshali.fxanalyzer.priceservice.dto.ImportResultDto;
+import com.vyshali.fxanalyzer.priceservice.dto.PriceTickMessage;
+import com.vyshali.fxanalyzer.priceservice.service.FxRateService;
+import com.vyshali.fxanalyzer.priceservice.service.PriceBatchWriter;
+import com.vyshali.fxanalyzer.priceservice.service.PriceIngestionService;
+import com.vyshali.fxanalyzer.priceservice.service.PriceIngestionService.IngestResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk EOD price and FX rate loads from CSV.
+ *
+ * Files are streamed and written in batches of batch-size rows, so memory
+ * does not grow with the file. Each batch commits on its own; a failure
+ * stops the import and reports how far it got.
+ *
+ * Prices go through PriceIngestionService (identifier index, in-memory
+ * hierarchy, multi-row insert and best-price upsert, batched cache writes
+ * and events). FX rates are upserted per (pair, date, source) and today's
+ * rates replace the cached ones.
+ *
+ * Price columns: identifier_type, identifier, price, bid_price, ask_price,
+ * price_date, price_time, source (optional, else the import's source).
+ * FX columns: currency_pair, rate_date, rate_time, mid_rate, bid_rate,
+ * ask_rate, forward_points_1m, forward_points_3m, source (optional).
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    private static final int MAX_ERRORS_REPORTED = 100;
+
+    private final PriceIngestionService ingestionService;
+    private final PriceBatchWriter batchWriter;
+    private final FxRateService fxRateService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final Counter priceRowsCounter;
+    private final Counter fxRowsCounter;
+    private final Counter rejectedRowsCounter;
+    private final Timer importTimer;
+
+    public BulkImportService(PriceIngestionService ingestionService,
+                             PriceBatchWriter batchWriter,
+                             FxRateService fxRateService,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${fxanalyzer.import.batch-size:5000}") int batchSize) {
+        this.ingestionService = ingestionService;
+        this.batchWriter = batchWriter;
+        this.fxRateService = fxRateService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+
+        this.priceRowsCounter = Counter.builder("price.import.rows")
+                .description("Rows written by bulk imports")
+                .tag("type", "prices")
+                .register(meterRegistry);
+
+        this.fxRowsCounter = Counter.builder("price.import.rows")
+                .description("Rows written by bulk imports")
+                .tag("type", "fx_rates")
+                .register(meterRegistry);
+
+        this.rejectedRowsCounter = Counter.builder("price.import.rejected")
+                .description("Bulk import rows rejected as invalid")
+                .register(meterRegistry);
+
+        this.importTimer = Timer.builder("price.import.time")
+                .description("Bulk import duration")
+                .register(meterRegistry);
+    }
+
+    // ==================== Prices ====================
+
+    /**
+     * Import prices; rows without a source column value get defaultSource.
+     */
+    public ImportResultDto importPrices(Reader input, PriceSource defaultSource, String origin) throws IOException {
+        long start = System.nanoTime();
+        ImportResultDto result = newResult("PRICES", origin);
+
+        try (CsvReader csv = new CsvReader(input)) {
+            requireColumns(csv, "identifier_type", "identifier", "price");
+            List<PriceTickMessage> batch = new ArrayList<>(batchSize);
+            CsvReader.Row row;
+            while ((row = csv.next()) != null) {
+                result.setRowsRead(result.getRowsRead() + 1);
+                try {
+                    batch.add(toTick(row, defaultSource));
+                } catch (RuntimeException e) {
+                    reject(result, row, e);
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    writePrices(batch, result);
+                }
+            }
+            writePrices(batch, result);
+        } finally {
+            finish(result, start);
+        }
+        return result;
+    }
+
+    private void writePrices(List<PriceTickMessage> batch, ImportResultDto result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        IngestResult ingested = ingestionService.ingest(batch);
+        result.setRowsWritten(result.getRowsWritten() + ingested.written());
+        result.setRowsRejected(result.getRowsRejected() + ingested.invalid());
+        result.setUnknownProducts(result.getUnknownProducts() + ingested.unknownProduct());
+        result.setBestPricesChanged(result.getBestPricesChanged() + ingested.bestPricesChanged());
+        priceRowsCounter.increment(ingested.written());
+        rejectedRowsCounter.increment(ingested.invalid());
+        batch.clear();
+    }
+
+    private static PriceTickMessage toTick(CsvReader.Row row, PriceSource defaultSource) {
+        String source = row.get("source");
+        return PriceTickMessage.builder()
+                .identifierType(required(row, "identifier_type"))
+                .identifier(required(row, "identifier"))
+                .price(new BigDecimal(required(row, "price")))
+                .bidPrice(decimal(row, "bid_price"))
+                .askPrice(decimal(row, "ask_price"))
+                .priceDate(date(row, "price_date"))
+                .priceTime(dateTime(row, "price_time"))
+                .source(source != null ? PriceSource.valueOf(source.toUpperCase()).name() : defaultSource.name())
+                .build();
+    }
+
+    // ==================== FX rates ====================
+
+    public ImportResultDto importFxRates(Reader input, String defaultSource, String origin) throws IOException {
+        long start = System.nanoTime();
+        ImportResultDto result = newResult("FX_RATES", origin);
+        LocalDate today = LocalDate.now();
+
+        try (CsvReader csv = new CsvReader(input)) {
+            requireColumns(csv, "currency_pair", "mid_rate");
+            // Keyed by (pair, date, source): a later row for the same key replaces an earlier one
+            Map<String, FxRateDto> batch = new LinkedHashMap<>();
+            CsvReader.Row row;
+            while ((row = csv.next()) != null) {
+                result.setRowsRead(result.getRowsRead() + 1);
+                FxRateDto rate;
+                try {
+                    rate = toFxRate(row, defaultSource, today);
+                } catch (RuntimeException e) {
+                    reject(result, row, e);
+                    continue;
+                }
+                batch.put(rate.getCurrencyPair() + '|' + rate.getRateDate() + '|' + rate.getSource(), rate);
+                if (batch.size() >= batchSize) {
+                    writeFxRates(batch, result);
+                }
+            }
+            writeFxRates(batch, result);
+        } finally {
+            finish(result, start);
+        }
+        return result;
+    }
+
+    private void writeFxRates(Map<String, FxRateDto> batch, ImportResultDto result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<FxRateDto> rates = List.copyOf(batch.values());
+        transactionTemplate.executeWithoutResult(status -> batchWriter.upsertFxRates(rates));
+        fxRateService.applyImportedRates(rates);
+        result.setRowsWritten(result.getRowsWritten() + rates.size());
+        fxRowsCounter.increment(rates.size());
+        batch.clear();
+    }
+
+    private static FxRateDto toFxRate(CsvReader.Row row, String defaultSource, LocalDate today) {
+        String[] currencies = CurrencyUtil.parseCurrencyPair(required(row, "currency_pair"));
+        BigDecimal mid = new BigDecimal(required(row, "mid_rate"));
+        if (mid.signum() <= 0) {
+            throw new IllegalArgumentException("mid_rate must be positive");
+        }
+        LocalDate rateDate = date(row, "rate_date");
+        LocalDateTime rateTime = dateTime(row, "rate_time");
+        String source = row.get("source");
+        return FxRateDto.builder()
+                .currencyPair(currencies[0] + currencies[1])
+                .baseCurrency(currencies[0])
+                .quoteCurrency(currencies[1])
+                .rateDate(rateDate != null ? rateDate : today)
+                .rateTime(rateTime != null ? rateTime : LocalDateTime.now())
+                .midRate(mid)
+                .bidRate(decimal(row, "bid_rate"))
+                .askRate(decimal(row, "ask_rate"))
+                .forwardPoints1M(decimal(row, "forward_points_1m"))
+                .forwardPoints3M(decimal(row, "forward_points_3m"))
+                .source(source != null ? source.toUpperCase() : defaultSource)
+                .isStale(false)
+                .build();
+    }
+
+    // ==================== Helpers ====================
+
+    private static ImportResultDto newResult(String type, String origin) {
+        return ImportResultDto.builder()
+                .type(type)
+                .origin(origin)
+                .errors(new ArrayList<>())
+                .build();
+    }
+
+    private void reject(ImportResultDto result, CsvReader.Row row, RuntimeException e) {
+        result.setRowsRejected(result.getRowsRejected() + 1);
+        rejectedRowsCounter.increment();
+        if (result.getErrors().size() < MAX_ERRORS_REPORTED) {
+            result.getErrors().add("line " + row.getLineNumber() + ": " + e.getMessage());
+        }
+    }
+
+    private void finish(ImportResultDto result, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        importTimer.record(Duration.ofNanos(elapsed));
+        result.setDurationMs(elapsed / 1_000_000);
+        log.info("{} import from {}: {} read, {} written, {} rejected, {} unknown products in {} ms",
+                result.getType(), result.getOrigin(), result.getRowsRead(), result.getRowsWritten(),
+                result.getRowsRejected(), result.getUnknownProducts(), result.getDurationMs());
+    }
+
+    private static void requireColumns(CsvReader csv, String... columns) throws IOException {
+        for (String column : columns) {
+            if (!csv.hasColumn(column)) {
+                throw new IOException("Missing required column: " + column);
+            }
+        }
+    }
+
+    private static String required(CsvReader.Row row, String column) {
+        String value = row.get(column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value;
+    }
+
+    private static BigDecimal decimal(CsvReader.Row row, String column) {
+        String value = row.get(column);
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    private static LocalDate date(CsvReader.Row row, String column) {
+        String value = row.get(column);
+        return value != null ? LocalDate.parse(value) : null;
+    }
+
+    private static LocalDateTime dateTime(CsvReader.Row row, String column) {
+        String value = row.get(column);
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+}
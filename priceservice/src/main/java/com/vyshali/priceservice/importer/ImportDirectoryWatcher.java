@@ -0,0 +1,137 @@
+package com.vyshali.priceservice.importer;
+
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import com.vyshali.fxanalyzer.priceservice.dto.ImportResultDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Picks up EOD files dropped into fxanalyzer.import.drop-dir.
+ *
+ * prices*.csv files are imported as prices, fx*.csv files as FX rates. A
+ * price source in the file name (e.g. prices_rcp_snap_20240115.csv) is used
+ * for rows without a source column; otherwise MSPA. Imported files move to
+ * processed/, files that could not be read move to failed/. Writers should
+ * drop files under another name and rename them when complete.
+ *
+ * The scheduled poll only lists the directory; files are imported one at a
+ * time on a dedicated thread, so a large file never holds up the shared
+ * scheduler (WebSocket flushes, staleness tracking, override refresh).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fxanalyzer.import.drop-dir")
+public class ImportDirectoryWatcher {
+
+    private final BulkImportService importService;
+    private final Path dropDir;
+    private final Path processedDir;
+    private final Path failedDir;
+
+    // Files handed to the import thread and not yet moved out of the drop directory
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "price-file-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImportDirectoryWatcher(BulkImportService importService,
+                                  @Value("${fxanalyzer.import.drop-dir}") String dropDir) throws IOException {
+        this.importService = importService;
+        this.dropDir = Path.of(dropDir);
+        this.processedDir = Files.createDirectories(this.dropDir.resolve("processed"));
+        this.failedDir = Files.createDirectories(this.dropDir.resolve("failed"));
+        log.info("Watching {} for price and FX rate files", this.dropDir);
+    }
+
+    @Scheduled(fixedDelayString = "${fxanalyzer.import.drop-poll-ms:30000}")
+    public void poll() {
+        for (Path file : listCsvFiles()) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if ((name.startsWith("prices") || name.startsWith("fx")) && queued.add(file)) {
+                importExecutor.execute(() -> {
+                    try {
+                        importFile(file, name);
+                    } finally {
+                        queued.remove(file);
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // A file whose import is cut short stays in the drop directory and is imported again on the next start
+        importExecutor.shutdownNow();
+    }
+
+    private void importFile(Path file, String name) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ImportResultDto result = name.startsWith("prices")
+                    ? importService.importPrices(reader, sourceFromName(name), file.toString())
+                    : importService.importFxRates(reader, PriceSource.MSPA.name(), file.toString());
+            move(file, processedDir);
+            if (result.getRowsRejected() > 0) {
+                log.warn("{}: {} rows rejected, first errors: {}", file.getFileName(),
+                        result.getRowsRejected(), result.getErrors());
+            }
+        } catch (Exception e) {
+            log.error("Import of {} failed: {}", file, e.getMessage(), e);
+            move(file, failedDir);
+        }
+    }
+
+    private List<Path> listCsvFiles() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dropDir, "*.{csv,CSV}")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list {}: {}", dropDir, e.getMessage());
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static PriceSource sourceFromName(String name) {
+        String upper = name.toUpperCase(Locale.ROOT);
+        for (PriceSource source : PriceSource.values()) {
+            if (upper.contains(source.name())) {
+                return source;
+            }
+        }
+        return PriceSource.MSPA;
+    }
+
+    private static void move(Path file, Path targetDir) {
+        try {
+            Files.move(file, targetDir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Could not move {} to {}: {}", file, targetDir, e.getMessage());
+        }
+    }
+}
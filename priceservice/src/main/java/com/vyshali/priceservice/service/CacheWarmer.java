@@ -0,0 +1,170 @@
+package com.vyshali.priceservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Startup cache warm-up.
+ *
+ * Loads today's FX rates and best prices into the price book, L1 and L2 before
+ * the service reports ready. Application runners finish before Spring Boot
+ * publishes ReadinessState.ACCEPTING_TRAFFIC, so the readiness probe stays
+ * down until the caches are filled or the timeout passes. Overrides are
+ * already loaded by then (PriceOverrideIndex, on ApplicationStartedEvent),
+ * so warmed entries get their final TTLs; prices go last, as the largest load.
+ *
+ * Prices are loaded in chunks on virtual threads, with at most
+ * parallelism chunks querying the database at once.
+ */
+@Slf4j
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    private final PriceService priceService;
+    private final FxRateService fxRateService;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration timeout;
+
+    // Metrics
+    private final AtomicLong pricesTotal = new AtomicLong();
+    private final AtomicLong pricesDone = new AtomicLong();
+    private final Counter pricesLoadedCounter;
+    private final Counter fxRatesLoadedCounter;
+    private final Timer priceWarmupTimer;
+    private final Timer fxWarmupTimer;
+
+    public CacheWarmer(PriceService priceService,
+                       FxRateService fxRateService,
+                       MeterRegistry meterRegistry,
+                       @Value("${fxanalyzer.cache.warmup.enabled:true}") boolean enabled,
+                       @Value("${fxanalyzer.cache.warmup.chunk-size:1000}") int chunkSize,
+                       @Value("${fxanalyzer.cache.warmup.parallelism:4}") int parallelism,
+                       @Value("${fxanalyzer.cache.warmup.timeout-seconds:120}") int timeoutSeconds) {
+        this.priceService = priceService;
+        this.fxRateService = fxRateService;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+
+        Gauge.builder("price.cache.warmup.progress", this, CacheWarmer::progress)
+                .description("Fraction of today's priced products processed by the startup warm-up (0-1)")
+                .register(meterRegistry);
+
+        this.pricesLoadedCounter = Counter.builder("price.cache.warmup.loaded")
+                .description("Entries loaded into the caches by the startup warm-up")
+                .tag("type", "price")
+                .register(meterRegistry);
+
+        this.fxRatesLoadedCounter = Counter.builder("price.cache.warmup.loaded")
+                .description("Entries loaded into the caches by the startup warm-up")
+                .tag("type", "fx_rate")
+                .register(meterRegistry);
+
+        this.priceWarmupTimer = Timer.builder("price.cache.warmup.time")
+                .description("Startup warm-up duration")
+                .tag("type", "price")
+                .register(meterRegistry);
+
+        this.fxWarmupTimer = Timer.builder("price.cache.warmup.time")
+                .description("Startup warm-up duration")
+                .tag("type", "fx_rate")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // FX rates are few and also seed the rate matrix, so they load even with warm-up disabled
+        int fxRates = fxWarmupTimer.record(fxRateService::warmCache);
+        fxRatesLoadedCounter.increment(fxRates);
+
+        if (!enabled) {
+            log.info("Price cache warm-up disabled");
+            return;
+        }
+        priceWarmupTimer.record(this::warmPrices);
+    }
+
+    private void warmPrices() {
+        long start = System.nanoTime();
+        List<Long> productIds;
+        try {
+            productIds = priceService.getProductIdsPricedOn(LocalDate.now());
+        } catch (Exception e) {
+            log.warn("Price cache warm-up skipped, could not list today's priced products: {}", e.getMessage());
+            return;
+        }
+        pricesTotal.set(productIds.size());
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<?>> chunks = new ArrayList<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int from = 0; from < productIds.size(); from += chunkSize) {
+                List<Long> chunk = productIds.subList(from, Math.min(from + chunkSize, productIds.size()));
+                chunks.add(executor.submit(() -> warmChunk(chunk, permits)));
+            }
+
+            long deadline = System.nanoTime() + timeout.toNanos();
+            for (Future<?> future : chunks) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            log.warn("Price cache warm-up incomplete after {}s ({} of {} products), continuing startup",
+                    timeout.toSeconds(), pricesDone.get(), pricesTotal.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Price cache warm-up failed: {}", e.getCause().getMessage());
+        } finally {
+            // Don't wait for chunks still running; the cache fills on demand from here
+            executor.shutdownNow();
+        }
+
+        log.info("Price cache warm-up: {} prices for {} products in {} ms",
+                (long) pricesLoadedCounter.count(), productIds.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void warmChunk(List<Long> chunk, Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            pricesLoadedCounter.increment(priceService.warmPrices(chunk));
+        } finally {
+            permits.release();
+            pricesDone.addAndGet(chunk.size());
+        }
+    }
+
+    private double progress() {
+        long total = pricesTotal.get();
+        return total == 0 ? 0.0 : (double) pricesDone.get() / total;
+    }
+}
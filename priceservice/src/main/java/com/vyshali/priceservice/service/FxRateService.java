@@ -2,22 +2,30 @@ package com.vyshali.priceservice.service;
 
 import com.vyshali.fxanalyzer.common.dto.FxRateDto;
 import com.vyshali.fxanalyzer.common.entity.FxRate;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
 import com.vyshali.fxanalyzer.common.exception.FxRateNotAvailableException;
 import com.vyshali.fxanalyzer.common.repository.FxRateRepository;
 import com.vyshali.fxanalyzer.common.util.CurrencyUtil;
+import com.vyshali.fxanalyzer.priceservice.cache.FxMatrixSnapshot;
+import com.vyshali.fxanalyzer.priceservice.cache.FxRateMatrix;
 import com.vyshali.fxanalyzer.priceservice.cache.PriceCacheService;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceOverrideIndex;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceOverrideIndex.ActiveOverride;
+import com.vyshali.fxanalyzer.priceservice.cache.SingleFlight;
+import com.vyshali.fxanalyzer.priceservice.websocket.ConflatingWebSocketPublisher;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -26,9 +34,10 @@ import java.util.stream.Collectors;
  * 
  * Features:
  * - L1/L2 caching
+ * - In-memory rate matrix: inverse and cross rates (via USD, then EUR) without database hits
  * - Automatic inverse rate calculation
  * - Forward rate calculation
- * - WebSocket broadcast
+ * - Conflated WebSocket broadcast
  */
 @Slf4j
 @Service
@@ -36,21 +45,41 @@ public class FxRateService {
 
     private final FxRateRepository fxRateRepository;
     private final PriceCacheService cacheService;
-    private final SimpMessagingTemplate webSocketTemplate;
+    private final FxRateMatrix rateMatrix;
+    private final PriceOverrideIndex overrideIndex;
+    private final ConflatingWebSocketPublisher webSocketPublisher;
+    private final SingleFlight<String, FxRateDto> fxRateLoads;
     
     private final Counter fxRateRequestCounter;
+    private final Counter matrixHitCounter;
+    private final Counter overrideHitCounter;
 
     public FxRateService(FxRateRepository fxRateRepository,
                          PriceCacheService cacheService,
-                         SimpMessagingTemplate webSocketTemplate,
+                         FxRateMatrix rateMatrix,
+                         PriceOverrideIndex overrideIndex,
+                         ConflatingWebSocketPublisher webSocketPublisher,
                          MeterRegistry meterRegistry) {
         this.fxRateRepository = fxRateRepository;
         this.cacheService = cacheService;
-        this.webSocketTemplate = webSocketTemplate;
+        this.rateMatrix = rateMatrix;
+        this.overrideIndex = overrideIndex;
+        this.webSocketPublisher = webSocketPublisher;
+        this.fxRateLoads = new SingleFlight<>("fxRate", meterRegistry);
         
         this.fxRateRequestCounter = Counter.builder("fxrate.requests")
                 .description("Total FX rate requests")
                 .register(meterRegistry);
+        
+        this.matrixHitCounter = Counter.builder("fxrate.matrix.hits")
+                .description("FX rate requests answered by the in-memory rate matrix")
+                .register(meterRegistry);
+        
+        this.overrideHitCounter = Counter.builder("fxrate.override.hits")
+                .description("Account FX rate requests answered by an active override")
+                .register(meterRegistry);
+        
+        cacheService.setFxRateRefresher(this::loadFxRateFromDatabase);
     }
 
     /**
@@ -63,19 +92,90 @@ public class FxRateService {
         // Normalize pair format (EURUSD or EUR/USD -> EURUSD)
         String normalizedPair = currencyPair.replace("/", "").toUpperCase();
         
-        // Try cache first
+        // Try L1 first
+        Optional<FxRateDto> local = cacheService.getLocalFxRate(normalizedPair);
+        if (local.isPresent()) {
+            return local.get();
+        }
+        
+        // Direct, inverse and cross rates straight from the matrix
+        FxRateDto fromMatrix = rateMatrix.resolve(normalizedPair);
+        if (fromMatrix != null) {
+            matrixHitCounter.increment();
+            return fromMatrix;
+        }
+        
+        // One loader per pair; concurrent misses wait for its result
+        return fxRateLoads.execute(normalizedPair, () -> loadFxRate(normalizedPair));
+    }
+
+    /**
+     * FX rate as seen by one account: an active FX_RATE override for the account
+     * (or for all accounts) on the pair or its inverse wins, otherwise the shared rate.
+     */
+    public FxRateDto getFxRateForAccount(Long accountId, String currencyPair) {
+        String normalizedPair = currencyPair.replace("/", "").toUpperCase();
+        String[] currencies = CurrencyUtil.parseCurrencyPair(normalizedPair);
+        LocalDate today = LocalDate.now();
+        
+        Optional<ActiveOverride> direct = overrideIndex.findFxOverride(accountId, normalizedPair, today);
+        if (direct.isPresent()) {
+            overrideHitCounter.increment();
+            return overrideDto(normalizedPair, currencies, direct.get().value(), direct.get());
+        }
+        Optional<ActiveOverride> inverse = overrideIndex.findFxOverride(accountId, currencies[1] + currencies[0], today);
+        if (inverse.isPresent()) {
+            overrideHitCounter.increment();
+            return overrideDto(normalizedPair, currencies, CurrencyUtil.invertRate(inverse.get().value()), inverse.get());
+        }
+        return getFxRate(normalizedPair);
+    }
+
+    private static FxRateDto overrideDto(String pair, String[] currencies, BigDecimal midRate, ActiveOverride override) {
+        return FxRateDto.builder()
+                .currencyPair(pair)
+                .baseCurrency(currencies[0])
+                .quoteCurrency(currencies[1])
+                .rateDate(LocalDate.now())
+                .rateTime(override.updatedAt())
+                .midRate(midRate)
+                .source(PriceSource.OVERRIDE.name())
+                .isStale(false)
+                .build();
+    }
+
+    /**
+     * Load FX rate through L2 and then the database (direct, inverse, then triangulated).
+     */
+    private FxRateDto loadFxRate(String normalizedPair) {
+        // Try cache (L1 may have been filled by a load that just finished, then L2)
         Optional<FxRateDto> cached = cacheService.getFxRate(normalizedPair);
         if (cached.isPresent()) {
             return cached.get();
         }
         
-        // Load from database
+        FxRateDto dto = cacheService.timeFxRateLoad(() -> loadFxRateFromDatabase(normalizedPair));
+        
+        // Derived rates are served by the matrix, which recomputes them when a leg moves;
+        // a cached copy would go stale on the next leg update
+        if (!FxRateMatrix.isDerived(dto)) {
+            cacheService.fillFxRate(normalizedPair, dto);
+        }
+        return dto;
+    }
+
+    /**
+     * Resolve the latest rate from the database (direct pair, inverse, then a cross
+     * through the vehicle currencies). Every quote read feeds the rate matrix.
+     * Also used by the L1 cache to refresh hot entries ahead of expiry.
+     */
+    private FxRateDto loadFxRateFromDatabase(String normalizedPair) {
         LocalDate today = LocalDate.now();
         Optional<FxRate> rate = fxRateRepository.findLatestRate(normalizedPair);
         
         if (rate.isPresent()) {
             FxRateDto dto = mapToDto(rate.get());
-            cacheService.putFxRate(normalizedPair, dto);
+            rateMatrix.update(dto);
             return dto;
         }
         
@@ -84,14 +184,75 @@ public class FxRateService {
         Optional<FxRate> inverseRate = fxRateRepository.findLatestRate(inversePair);
         
         if (inverseRate.isPresent()) {
-            FxRateDto dto = mapToInverseDto(inverseRate.get(), normalizedPair);
-            cacheService.putFxRate(normalizedPair, dto);
-            return dto;
+            rateMatrix.update(mapToDto(inverseRate.get()));
+            return mapToInverseDto(inverseRate.get(), normalizedPair);
+        }
+        
+        // Load the legs through each vehicle currency and let the matrix triangulate
+        String base = normalizedPair.substring(0, 3);
+        String quote = normalizedPair.substring(3, 6);
+        for (String vehicle : rateMatrix.getVehicleCurrencies()) {
+            if (vehicle.equals(base) || vehicle.equals(quote)) {
+                continue;
+            }
+            if (loadLeg(base, vehicle) && loadLeg(vehicle, quote)) {
+                // The legs are the latest the database has; serve the cross even if stale, flagged as such
+                FxRateDto cross = rateMatrix.resolveIncludingStale(normalizedPair);
+                if (cross != null) {
+                    return cross;
+                }
+            }
         }
         
         throw new FxRateNotAvailableException(normalizedPair, today);
     }
 
+    /**
+     * Feed the latest quote for a leg (either orientation) into the matrix.
+     */
+    private boolean loadLeg(String base, String quote) {
+        Optional<FxRate> leg = fxRateRepository.findLatestRate(base + quote)
+                .or(() -> fxRateRepository.findLatestRate(quote + base));
+        leg.ifPresent(r -> rateMatrix.update(mapToDto(r)));
+        return leg.isPresent();
+    }
+
+    /**
+     * Load today's rates into L1 and the rate matrix, then the latest close for
+     * any supported pair still missing from the matrix. Run by CacheWarmer at startup.
+     *
+     * @return number of today's rates loaded
+     */
+    public int warmCache() {
+        try {
+            List<FxRate> todays = fxRateRepository.findActiveRatesByDate(LocalDate.now());
+            Map<String, FxRateDto> byPair = new HashMap<>(todays.size());
+            for (FxRate rate : todays) {
+                FxRateDto dto = mapToDto(rate);
+                byPair.put(dto.getCurrencyPair(), dto);
+                rateMatrix.update(dto);
+            }
+            cacheService.putLocalFxRates(byPair);
+            
+            int fallbacks = 0;
+            for (String pair : rateMatrix.getSupportedPairs()) {
+                if (rateMatrix.resolveIncludingStale(pair) == null) {
+                    Optional<FxRate> latest = fxRateRepository.findLatestRate(pair);
+                    if (latest.isPresent()) {
+                        rateMatrix.update(mapToDto(latest.get()));
+                        fallbacks++;
+                    }
+                }
+            }
+            log.info("Loaded FX rate matrix: {} currencies, {} rates for today, {} from earlier dates",
+                    rateMatrix.getCurrencies().size(), todays.size(), fallbacks);
+            return byPair.size();
+        } catch (Exception e) {
+            log.warn("Failed to load FX rate matrix, rates will be loaded on demand: {}", e.getMessage());
+            return 0;
+        }
+    }
+
     /**
      * Fallback for circuit breaker.
      */
@@ -105,6 +266,13 @@ public class FxRateService {
             return rate;
         }
         
+        // Derived rates are never cached; the matrix may still have a route, however old
+        FxRateDto fromMatrix = rateMatrix.resolveIncludingStale(currencyPair.replace("/", "").toUpperCase());
+        if (fromMatrix != null) {
+            fromMatrix.setIsStale(true);
+            return fromMatrix;
+        }
+        
         throw new FxRateNotAvailableException(currencyPair, LocalDate.now(), e);
     }
 
@@ -121,6 +289,14 @@ public class FxRateService {
         return rate.getMidRate();
     }
 
+    /**
+     * Full mid-rate matrix for all supported currencies, served from memory.
+     * Kept current by updateFxRate through the rate matrix.
+     */
+    public FxMatrixSnapshot getRateMatrixSnapshot() {
+        return rateMatrix.getMidRateSnapshot();
+    }
+
     /**
      * Get all available FX rates for today.
      */
@@ -173,26 +349,40 @@ public class FxRateService {
         rate = fxRateRepository.save(rate);
         FxRateDto dto = mapToDto(rate);
         
-        // Update cache
-        cacheService.putFxRate(currencyPair, dto);
-        
-        // Broadcast via WebSocket
-        broadcastFxRateUpdate(dto);
+        // Cache, rate matrix (recomputes every cross using this pair as a leg) and
+        // broadcast only once the rate is committed; a rollback must not reach replicas or clients
+        TransactionHooks.afterCommit(() -> {
+            cacheService.putFxRate(currencyPair, dto);
+            rateMatrix.update(dto);
+            broadcastFxRateUpdate(dto);
+        });
         
         log.info("Updated FX rate {} = {}", currencyPair, midRate);
         
         return dto;
     }
 
-    private void broadcastFxRateUpdate(FxRateDto dto) {
-        try {
-            webSocketTemplate.convertAndSend("/topic/fx-rates/" + dto.getCurrencyPair(), dto);
-            webSocketTemplate.convertAndSend("/topic/fx-rates/all", dto);
-        } catch (Exception e) {
-            log.warn("Failed to broadcast FX rate via WebSocket: {}", e.getMessage());
+    /**
+     * Apply rates written by a bulk import: today's rates replace the cached
+     * rate, feed the matrix and are broadcast, exactly as updateFxRate would.
+     */
+    public void applyImportedRates(List<FxRateDto> rates) {
+        LocalDate today = LocalDate.now();
+        for (FxRateDto dto : rates) {
+            if (today.equals(dto.getRateDate())) {
+                cacheService.putFxRate(dto.getCurrencyPair(), dto);
+                rateMatrix.update(dto);
+                broadcastFxRateUpdate(dto);
+            }
         }
     }
 
+    private void broadcastFxRateUpdate(FxRateDto dto) {
+        webSocketPublisher.publish("/topic/fx-rates/" + dto.getCurrencyPair(), dto);
+        webSocketPublisher.publishKeyed("/topic/fx-rates/all", dto.getCurrencyPair(), dto);
+        webSocketPublisher.publishBatched("/topic/fx-rates/batch", dto.getCurrencyPair(), dto);
+    }
+
     private FxRateDto mapToDto(FxRate rate) {
         return FxRateDto.builder()
                 .fxRateId(rate.getFxRateId())
@@ -226,7 +416,7 @@ public class FxRateService {
                 .midRate(inverseMid)
                 .bidRate(inverseBid)
                 .askRate(inverseAsk)
-                .source(rate.getSource() + " (inverted)")
+                .source(rate.getSource() + FxRateMatrix.INVERTED_SUFFIX)
                 .isStale(rate.getIsStale())
                 .build();
     }
@@ -0,0 +1,180 @@
+package com.vyshali.priceservice.service;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Multi-row JDBC writes for the ingestion and bulk import paths: one statement
+ * per chunk instead of one round trip per row. Must be called inside a transaction.
+ */
+@Component
+public class PriceBatchWriter {
+
+    private static final String INSERT_PRICES =
+            "INSERT INTO prices (product_id, price_date, price_time, price_value, bid_price, ask_price, " +
+            "source, source_priority, is_stale) VALUES ";
+    private static final String PRICE_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Same replace rule as BestPriceRepository.upsertIfBetter, for many rows at once
+    private static final String UPSERT_BEST_PRICES =
+            "INSERT INTO best_prices (product_id, price_date, price_id, source_priority, price_time) VALUES ";
+    private static final String BEST_ROW = "(?, ?, ?, ?, ?)";
+    private static final String UPSERT_BEST_PRICES_TAIL =
+            " ON CONFLICT (product_id, price_date) DO UPDATE SET " +
+            "price_id = EXCLUDED.price_id, " +
+            "source_priority = EXCLUDED.source_priority, " +
+            "price_time = EXCLUDED.price_time " +
+            "WHERE EXCLUDED.source_priority < best_prices.source_priority " +
+            "OR (EXCLUDED.source_priority = best_prices.source_priority " +
+            "AND (best_prices.price_time IS NULL OR EXCLUDED.price_time >= best_prices.price_time)) " +
+            "RETURNING product_id, price_date";
+
+    // One rate per (pair, date, source); a reload replaces it
+    private static final String UPSERT_FX_RATES =
+            "INSERT INTO fx_rates (currency_pair, base_currency, quote_currency, rate_date, rate_time, mid_rate, " +
+            "bid_rate, ask_rate, forward_points_1m, forward_points_3m, source, is_stale) VALUES ";
+    private static final String FX_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_FX_RATES_TAIL =
+            " ON CONFLICT (currency_pair, rate_date, source) DO UPDATE SET " +
+            "rate_time = EXCLUDED.rate_time, " +
+            "mid_rate = EXCLUDED.mid_rate, " +
+            "bid_rate = EXCLUDED.bid_rate, " +
+            "ask_rate = EXCLUDED.ask_rate, " +
+            "forward_points_1m = EXCLUDED.forward_points_1m, " +
+            "forward_points_3m = EXCLUDED.forward_points_3m, " +
+            "is_stale = EXCLUDED.is_stale " +
+            "RETURNING fx_rate_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+
+    public PriceBatchWriter(JdbcTemplate jdbcTemplate,
+                            @Value("${fxanalyzer.ingest.insert-chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Insert the prices and set each one's generated priceId.
+     */
+    public void insertPrices(List<PriceDto> prices) {
+        for (int from = 0; from < prices.size(); from += chunkSize) {
+            List<PriceDto> chunk = prices.subList(from, Math.min(from + chunkSize, prices.size()));
+            String sql = INSERT_PRICES + rows(PRICE_ROW, chunk.size()) + " RETURNING price_id";
+
+            List<Long> ids = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (PriceDto price : chunk) {
+                    ps.setLong(i++, price.getProductId());
+                    ps.setObject(i++, price.getPriceDate());
+                    ps.setTimestamp(i++, price.getPriceTime() != null ? Timestamp.valueOf(price.getPriceTime()) : null);
+                    ps.setBigDecimal(i++, price.getPrice());
+                    ps.setBigDecimal(i++, price.getBidPrice());
+                    ps.setBigDecimal(i++, price.getAskPrice());
+                    ps.setString(i++, price.getSource());
+                    ps.setInt(i++, price.getSourcePriority());
+                    ps.setBoolean(i++, Boolean.TRUE.equals(price.getIsStale()));
+                }
+                return ps;
+            }, (rs, rowNum) -> rs.getLong(1));
+
+            // PostgreSQL returns the rows of a multi-row VALUES insert in VALUES order
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setPriceId(ids.get(i));
+            }
+        }
+    }
+
+    /**
+     * Offer inserted prices as best prices, at most one per (product, date).
+     *
+     * @return the (product, date) keys whose best price is now the offered one
+     */
+    public Set<BestPriceKey> upsertBestPrices(List<PriceDto> candidates) {
+        // Fixed row order so concurrent batches lock best_prices rows in the same order
+        List<PriceDto> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparing(PriceDto::getProductId).thenComparing(PriceDto::getPriceDate));
+
+        Set<BestPriceKey> won = new HashSet<>();
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            List<PriceDto> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+            String sql = UPSERT_BEST_PRICES + rows(BEST_ROW, chunk.size()) + UPSERT_BEST_PRICES_TAIL;
+
+            won.addAll(jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (PriceDto price : chunk) {
+                    ps.setLong(i++, price.getProductId());
+                    ps.setObject(i++, price.getPriceDate());
+                    ps.setLong(i++, price.getPriceId());
+                    ps.setInt(i++, price.getSourcePriority());
+                    ps.setTimestamp(i++, price.getPriceTime() != null ? Timestamp.valueOf(price.getPriceTime()) : null);
+                }
+                return ps;
+            }, (rs, rowNum) -> new BestPriceKey(rs.getLong(1), rs.getObject(2, LocalDate.class))));
+        }
+        return won;
+    }
+
+    /**
+     * Insert or replace FX rates and set each one's fxRateId.
+     * Rates must be unique per (pair, date, source) within the call.
+     */
+    public void upsertFxRates(List<FxRateDto> rates) {
+        for (int from = 0; from < rates.size(); from += chunkSize) {
+            List<FxRateDto> chunk = rates.subList(from, Math.min(from + chunkSize, rates.size()));
+            String sql = UPSERT_FX_RATES + rows(FX_ROW, chunk.size()) + UPSERT_FX_RATES_TAIL;
+
+            List<Long> ids = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                int i = 1;
+                for (FxRateDto rate : chunk) {
+                    ps.setString(i++, rate.getCurrencyPair());
+                    ps.setString(i++, rate.getBaseCurrency());
+                    ps.setString(i++, rate.getQuoteCurrency());
+                    ps.setObject(i++, rate.getRateDate());
+                    ps.setTimestamp(i++, rate.getRateTime() != null ? Timestamp.valueOf(rate.getRateTime()) : null);
+                    ps.setBigDecimal(i++, rate.getMidRate());
+                    ps.setBigDecimal(i++, rate.getBidRate());
+                    ps.setBigDecimal(i++, rate.getAskRate());
+                    ps.setBigDecimal(i++, rate.getForwardPoints1M());
+                    ps.setBigDecimal(i++, rate.getForwardPoints3M());
+                    ps.setString(i++, rate.getSource());
+                    ps.setBoolean(i++, Boolean.TRUE.equals(rate.getIsStale()));
+                }
+                return ps;
+            }, (rs, rowNum) -> rs.getLong(1));
+
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setFxRateId(ids.get(i));
+            }
+        }
+    }
+
+    private static String rows(String row, int count) {
+        StringBuilder sb = new StringBuilder(count * (row.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(row);
+        }
+        return sb.toString();
+    }
+
+    public record BestPriceKey(long productId, LocalDate priceDate) {
+    }
+}
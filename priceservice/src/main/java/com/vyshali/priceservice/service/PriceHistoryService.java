@@ -0,0 +1,242 @@
+package com.vyshali.priceservice.service;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.exception.ValidationException;
+import com.vyshali.fxanalyzer.common.util.CurrencyUtil;
+import com.vyshali.fxanalyzer.priceservice.dto.HistorySeriesDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Daily price and FX mid history for range and as-of queries.
+ *
+ * price_history and fx_rate_history hold one closing value per product or
+ * pair per day, range-partitioned by year and keyed (id, date), so a year's
+ * series is one index range scan. They are filled from best_prices and
+ * fx_rates by a nightly snapshot and are not touched by deleteOldPrices.
+ *
+ * Today is not in the tables yet; ranges that reach today end with the
+ * current live value instead.
+ */
+@Slf4j
+@Service
+public class PriceHistoryService {
+
+    private static final String SNAPSHOT_PRICES =
+            "INSERT INTO price_history (product_id, price_date, price_value, source) " +
+            "SELECT b.product_id, b.price_date, p.price_value, p.source " +
+            "FROM best_prices b JOIN prices p ON p.price_id = b.price_id " +
+            "WHERE b.price_date BETWEEN ? AND ? " +
+            "ON CONFLICT (product_id, price_date) DO UPDATE SET " +
+            "price_value = EXCLUDED.price_value, source = EXCLUDED.source";
+
+    // Several sources may quote a pair on one day; the latest quote is the close
+    private static final String SNAPSHOT_FX_RATES =
+            "INSERT INTO fx_rate_history (currency_pair, rate_date, mid_rate, source) " +
+            "SELECT DISTINCT ON (currency_pair, rate_date) currency_pair, rate_date, mid_rate, source " +
+            "FROM fx_rates WHERE rate_date BETWEEN ? AND ? " +
+            "ORDER BY currency_pair, rate_date, rate_time DESC NULLS LAST, fx_rate_id DESC " +
+            "ON CONFLICT (currency_pair, rate_date) DO UPDATE SET " +
+            "mid_rate = EXCLUDED.mid_rate, source = EXCLUDED.source";
+
+    private static final String PRICE_RANGE =
+            "SELECT price_date, price_value, source FROM price_history " +
+            "WHERE product_id = ? AND price_date BETWEEN ? AND ? ORDER BY price_date";
+
+    private static final String PRICE_AS_OF =
+            "SELECT price_date, price_value, source FROM price_history " +
+            "WHERE product_id = ? AND price_date <= ? ORDER BY price_date DESC LIMIT 1";
+
+    private static final String FX_RANGE =
+            "SELECT rate_date, mid_rate, source FROM fx_rate_history " +
+            "WHERE currency_pair = ? AND rate_date BETWEEN ? AND ? ORDER BY rate_date";
+
+    private static final String FX_AS_OF =
+            "SELECT rate_date, mid_rate, source FROM fx_rate_history " +
+            "WHERE currency_pair = ? AND rate_date <= ? ORDER BY rate_date DESC LIMIT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceService priceService;
+    private final FxRateService fxRateService;
+    private final int maxRangeDays;
+    private final int snapshotLookbackDays;
+
+    private final Timer rangeTimer;
+    private final Timer snapshotTimer;
+
+    public PriceHistoryService(JdbcTemplate jdbcTemplate,
+                               PriceService priceService,
+                               FxRateService fxRateService,
+                               MeterRegistry meterRegistry,
+                               @Value("${fxanalyzer.history.max-range-days:3660}") int maxRangeDays,
+                               @Value("${fxanalyzer.history.snapshot-lookback-days:5}") int snapshotLookbackDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.priceService = priceService;
+        this.fxRateService = fxRateService;
+        this.maxRangeDays = maxRangeDays;
+        this.snapshotLookbackDays = snapshotLookbackDays;
+
+        this.rangeTimer = Timer.builder("price.history.query.time")
+                .description("History range query duration")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.snapshotTimer = Timer.builder("price.history.snapshot.time")
+                .description("Nightly history snapshot duration")
+                .register(meterRegistry);
+    }
+
+    // ==================== Queries ====================
+
+    public HistorySeriesDto getPriceHistory(Long productId, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1);
+        validateRange(start, end);
+
+        HistorySeriesDto series = rangeTimer.record(() ->
+                query(String.valueOf(productId), PRICE_RANGE, start, end, productId, Date.valueOf(start), Date.valueOf(end)));
+        if (reachesToday(series, end)) {
+            try {
+                PriceDto live = priceService.getPrice(productId);
+                append(series, live.getPriceDate(), live.getPrice(), live.getSource());
+            } catch (Exception e) {
+                log.debug("No live price for product {} to end its history: {}", productId, e.getMessage());
+            }
+        }
+        return series;
+    }
+
+    public HistorySeriesDto getPriceAsOf(Long productId, LocalDate asOf) {
+        LocalDate date = asOf != null ? asOf : LocalDate.now();
+        return query(String.valueOf(productId), PRICE_AS_OF, date, date, productId, Date.valueOf(date));
+    }
+
+    /**
+     * FX mid history; a pair only stored the other way round is served inverted.
+     */
+    public HistorySeriesDto getFxHistory(String currencyPair, LocalDate from, LocalDate to) {
+        String pair = currencyPair.replace("/", "").toUpperCase();
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1);
+        validateRange(start, end);
+
+        HistorySeriesDto series = rangeTimer.record(() -> {
+            HistorySeriesDto direct = query(pair, FX_RANGE, start, end, pair, Date.valueOf(start), Date.valueOf(end));
+            return direct.getDates().isEmpty()
+                    ? inverted(pair, query(pair, FX_RANGE, start, end, inverse(pair), Date.valueOf(start), Date.valueOf(end)))
+                    : direct;
+        });
+        if (reachesToday(series, end)) {
+            try {
+                FxRateDto live = fxRateService.getFxRate(pair);
+                append(series, live.getRateDate(), live.getMidRate(), live.getSource());
+            } catch (Exception e) {
+                log.debug("No live rate for {} to end its history: {}", pair, e.getMessage());
+            }
+        }
+        return series;
+    }
+
+    public HistorySeriesDto getFxAsOf(String currencyPair, LocalDate asOf) {
+        String pair = currencyPair.replace("/", "").toUpperCase();
+        LocalDate date = asOf != null ? asOf : LocalDate.now();
+        HistorySeriesDto direct = query(pair, FX_AS_OF, date, date, pair, Date.valueOf(date));
+        return direct.getDates().isEmpty()
+                ? inverted(pair, query(pair, FX_AS_OF, date, date, inverse(pair), Date.valueOf(date)))
+                : direct;
+    }
+
+    private HistorySeriesDto query(String key, String sql, LocalDate from, LocalDate to, Object... args) {
+        List<LocalDate> dates = new ArrayList<>();
+        List<BigDecimal> values = new ArrayList<>();
+        List<String> sources = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            dates.add(rs.getDate(1).toLocalDate());
+            values.add(rs.getBigDecimal(2));
+            sources.add(rs.getString(3));
+        }, args);
+        return HistorySeriesDto.builder()
+                .key(key)
+                .from(from)
+                .to(to)
+                .dates(dates)
+                .values(values)
+                .sources(sources)
+                .build();
+    }
+
+    private static HistorySeriesDto inverted(String pair, HistorySeriesDto inverse) {
+        inverse.setKey(pair);
+        inverse.setValues(inverse.getValues().stream().map(CurrencyUtil::invertRate).toList());
+        return inverse;
+    }
+
+    private static String inverse(String pair) {
+        String[] currencies = CurrencyUtil.parseCurrencyPair(pair);
+        return currencies[1] + currencies[0];
+    }
+
+    private static boolean reachesToday(HistorySeriesDto series, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        List<LocalDate> dates = series.getDates();
+        return !end.isBefore(today) && (dates.isEmpty() || dates.get(dates.size() - 1).isBefore(today));
+    }
+
+    private static void append(HistorySeriesDto series, LocalDate date, BigDecimal value, String source) {
+        if (date == null || value == null) {
+            return;
+        }
+        List<LocalDate> dates = series.getDates();
+        if (dates.isEmpty() || date.isAfter(dates.get(dates.size() - 1))) {
+            dates.add(date);
+            series.getValues().add(value);
+            series.getSources().add(source);
+        }
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ValidationException("from", "from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > maxRangeDays) {
+            throw new ValidationException("from", "Range is limited to " + maxRangeDays + " days");
+        }
+    }
+
+    // ==================== Snapshot ====================
+
+    /**
+     * Copy the last few days' best prices and closing FX mids into history.
+     * Re-running over recent days picks up late corrections.
+     */
+    @Scheduled(cron = "${fxanalyzer.history.snapshot-cron:0 30 0 * * *}")
+    public void snapshotRecentDays() {
+        LocalDate to = LocalDate.now().minusDays(1);
+        snapshot(to.minusDays(snapshotLookbackDays - 1L), to);
+    }
+
+    public void snapshot(LocalDate from, LocalDate to) {
+        try {
+            snapshotTimer.record(() -> {
+                int prices = jdbcTemplate.update(SNAPSHOT_PRICES, Date.valueOf(from), Date.valueOf(to));
+                int rates = jdbcTemplate.update(SNAPSHOT_FX_RATES, Date.valueOf(from), Date.valueOf(to));
+                log.info("History snapshot {} to {}: {} prices, {} FX rates", from, to, prices, rates);
+            });
+        } catch (Exception e) {
+            log.error("History snapshot {} to {} failed: {}", from, to, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.vyshali.priceservice.service;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
+import com.vyshali.fxanalyzer.common.event.PriceUpdatedEvent;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceBook;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceCacheService;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceStalenessTracker;
+import com.vyshali.fxanalyzer.priceservice.cache.ProductIdentifierIndex;
+import com.vyshali.fxanalyzer.priceservice.cache.ProductIdentifierIndex.ProductRef;
+import com.vyshali.fxanalyzer.priceservice.dto.PriceTickMessage;
+import com.vyshali.fxanalyzer.priceservice.event.PricePublication;
+import com.vyshali.fxanalyzer.priceservice.service.PriceBatchWriter.BestPriceKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch ingestion of upstream price ticks (Filter, RCP, MSPA).
+ *
+ * Per batch:
+ * 1. Resolve identifiers from the in-memory ProductIdentifierIndex
+ * 2. Apply the price hierarchy in memory: latest tick per (product, date, priority),
+ *    then the best of those per (product, date)
+ * 3. One transaction: multi-row insert of every tick, multi-row best_prices upsert
+ *    of the per-product candidates (the database still has the final say)
+ * 4. After commit: one batched cache write and one PricePublication for the
+ *    products whose best price changed and was not already outranked in the
+ *    cache by a batch that committed after this one
+ *
+ * Ticks that cannot be used (missing fields, unknown product) are counted and skipped.
+ */
+@Slf4j
+@Service
+public class PriceIngestionService {
+
+    private final ProductIdentifierIndex identifierIndex;
+    private final PriceBatchWriter batchWriter;
+    private final PriceCacheService cacheService;
+    private final PriceBook priceBook;
+    private final PriceStalenessTracker stalenessTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // Metrics
+    private final Counter acceptedCounter;
+    private final Counter invalidCounter;
+    private final Counter unknownProductCounter;
+    private final Counter bestPriceChangedCounter;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    public PriceIngestionService(ProductIdentifierIndex identifierIndex,
+                                 PriceBatchWriter batchWriter,
+                                 PriceCacheService cacheService,
+                                 PriceBook priceBook,
+                                 PriceStalenessTracker stalenessTracker,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.identifierIndex = identifierIndex;
+        this.batchWriter = batchWriter;
+        this.cacheService = cacheService;
+        this.priceBook = priceBook;
+        this.stalenessTracker = stalenessTracker;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.acceptedCounter = Counter.builder("price.ingest.ticks")
+                .description("Upstream price ticks by outcome")
+                .tag("outcome", "accepted")
+                .register(meterRegistry);
+
+        this.invalidCounter = Counter.builder("price.ingest.ticks")
+                .description("Upstream price ticks by outcome")
+                .tag("outcome", "invalid")
+                .register(meterRegistry);
+
+        this.unknownProductCounter = Counter.builder("price.ingest.ticks")
+                .description("Upstream price ticks by outcome")
+                .tag("outcome", "unknown_product")
+                .register(meterRegistry);
+
+        this.bestPriceChangedCounter = Counter.builder("price.ingest.best.changed")
+                .description("Best prices replaced by ingested ticks")
+                .register(meterRegistry);
+
+        this.batchTimer = Timer.builder("price.ingest.batch.time")
+                .description("Time to ingest one batch of ticks, including the database writes")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.batchSizeSummary = DistributionSummary.builder("price.ingest.batch.size")
+                .description("Ticks per ingested batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ingest a batch of ticks. Each tick's source must already be set.
+     */
+    public IngestResult ingest(List<PriceTickMessage> ticks) {
+        if (ticks.isEmpty()) {
+            return IngestResult.EMPTY;
+        }
+        batchSizeSummary.record(ticks.size());
+        return batchTimer.record(() -> doIngest(ticks));
+    }
+
+    private IngestResult doIngest(List<PriceTickMessage> ticks) {
+        LocalDate today = LocalDate.now();
+        LocalDateTime receivedAt = LocalDateTime.now();
+
+        // 1. Resolve products
+        Set<String> keys = new HashSet<>();
+        for (PriceTickMessage tick : ticks) {
+            if (isValid(tick)) {
+                keys.add(ProductIdentifierIndex.key(tick.getIdentifierType(), tick.getIdentifier()));
+            }
+        }
+        Map<String, ProductRef> products = identifierIndex.resolveAll(keys);
+
+        List<PriceDto> rows = new ArrayList<>(ticks.size());
+        int invalid = 0;
+        int unknown = 0;
+        for (PriceTickMessage tick : ticks) {
+            if (!isValid(tick)) {
+                invalid++;
+                continue;
+            }
+            ProductRef product = products.get(ProductIdentifierIndex.key(tick.getIdentifierType(), tick.getIdentifier()));
+            if (product == null) {
+                unknown++;
+                continue;
+            }
+            rows.add(toDto(tick, product, today, receivedAt));
+        }
+        invalidCounter.increment(invalid);
+        unknownProductCounter.increment(unknown);
+        if (rows.isEmpty()) {
+            return new IngestResult(0, invalid, unknown, 0);
+        }
+
+        // 2. Hierarchy in memory
+        Map<LevelKey, PriceDto> latestPerLevel = new LinkedHashMap<>();
+        for (PriceDto row : rows) {
+            latestPerLevel.merge(new LevelKey(row.getProductId(), row.getPriceDate(), row.getSourcePriority()),
+                    row, (current, incoming) -> isBefore(incoming, current) ? current : incoming);
+        }
+        Map<BestPriceKey, PriceDto> candidates = new HashMap<>();
+        for (PriceDto price : latestPerLevel.values()) {
+            candidates.merge(new BestPriceKey(price.getProductId(), price.getPriceDate()), price,
+                    (current, incoming) -> beats(incoming, current) ? incoming : current);
+        }
+
+        // 3. Write
+        Set<BestPriceKey> changed = transactionTemplate.execute(status -> {
+            batchWriter.insertPrices(rows);
+            return batchWriter.upsertBestPrices(List.copyOf(candidates.values()));
+        });
+        acceptedCounter.increment(rows.size());
+        bestPriceChangedCounter.increment(changed.size());
+
+        // 4. Caches and events (committed)
+        publish(today, latestPerLevel, candidates, changed);
+
+        log.debug("Ingested {} ticks ({} invalid, {} unknown product), {} best prices changed",
+                rows.size(), invalid, unknown, changed.size());
+        return new IngestResult(rows.size(), invalid, unknown, changed.size());
+    }
+
+    private void publish(LocalDate today, Map<LevelKey, PriceDto> latestPerLevel,
+                         Map<BestPriceKey, PriceDto> candidates, Set<BestPriceKey> changed) {
+        Map<Long, PriceDto> newBest = new HashMap<>();
+        List<PriceUpdatedEvent> events = new ArrayList<>(changed.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (BestPriceKey key : changed) {
+            PriceDto best = candidates.get(key);
+            BigDecimal previousPrice = null;
+            if (today.equals(key.priceDate())) {
+                // Only today's best is cached; read the previous one before it is replaced
+                previousPrice = cacheService.getLocalPrice(key.productId()).map(PriceDto::getPrice).orElse(null);
+                newBest.put(key.productId(), best);
+            }
+            events.add(PriceUpdatedEvent.builder()
+                    .productId(best.getProductId())
+                    .identifier(best.getIdentifier())
+                    .ticker(best.getTicker())
+                    .price(best.getPrice())
+                    .previousPrice(previousPrice)
+                    .source(best.getSource())
+                    .updatedAt(now)
+                    .isStale(best.getIsStale())
+                    .build());
+        }
+
+        // Lower-priority ticks that did not become best still go into their price book slot
+        for (PriceDto price : latestPerLevel.values()) {
+            if (today.equals(price.getPriceDate()) && newBest.get(price.getProductId()) != price) {
+                priceBook.onPriceWritten(price.getProductId(), price);
+            }
+        }
+
+        // Consumers of other topics may have committed a better price for the same product meanwhile
+        Map<Long, PriceDto> cached = cacheService.putWrittenPrices(newBest);
+        cached.values().forEach(stalenessTracker::onBestPrice);
+        if (!events.isEmpty()) {
+            eventPublisher.publishEvent(new PricePublication(List.copyOf(cached.values()), events, true));
+        }
+    }
+
+    private static boolean isValid(PriceTickMessage tick) {
+        return tick != null
+                && tick.getIdentifierType() != null
+                && tick.getIdentifier() != null
+                && tick.getSource() != null
+                && tick.getPrice() != null
+                && tick.getPrice().signum() > 0;
+    }
+
+    private static PriceDto toDto(PriceTickMessage tick, ProductRef product, LocalDate today, LocalDateTime receivedAt) {
+        PriceSource source = PriceSource.fromString(tick.getSource());
+        return PriceDto.builder()
+                .productId(product.productId())
+                .identifier(product.identifier())
+                .ticker(product.ticker())
+                .securityDescription(product.securityDescription())
+                .currency(product.currency())
+                .priceDate(tick.getPriceDate() != null ? tick.getPriceDate() : today)
+                .priceTime(tick.getPriceTime() != null ? tick.getPriceTime() : receivedAt)
+                .price(tick.getPrice())
+                .bidPrice(tick.getBidPrice())
+                .askPrice(tick.getAskPrice())
+                .source(source.name())
+                .sourcePriority(source.getPriority())
+                .isStale(false)
+                .build();
+    }
+
+    /**
+     * Same rule as the best_prices upsert: lower priority wins, then the later price time.
+     */
+    private static boolean beats(PriceDto incoming, PriceDto current) {
+        int byPriority = Integer.compare(incoming.getSourcePriority(), current.getSourcePriority());
+        return byPriority < 0 || (byPriority == 0 && !isBefore(incoming, current));
+    }
+
+    private static boolean isBefore(PriceDto a, PriceDto b) {
+        return a.getPriceTime().isBefore(b.getPriceTime());
+    }
+
+    /**
+     * Outcome of one ingested batch.
+     */
+    public record IngestResult(int written, int invalid, int unknownProduct, int bestPricesChanged) {
+        public static final IngestResult EMPTY = new IngestResult(0, 0, 0, 0);
+    }
+
+    private record LevelKey(long productId, LocalDate priceDate, int priority) {
+    }
+}
@@ -1,28 +1,41 @@
 package com.vyshali.priceservice.service;
 
 import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.common.entity.BestPrice;
 import com.vyshali.fxanalyzer.common.entity.Price;
 import com.vyshali.fxanalyzer.common.entity.Product;
+import com.vyshali.fxanalyzer.common.enums.PriceSource;
 import com.vyshali.fxanalyzer.common.event.PriceUpdatedEvent;
 import com.vyshali.fxanalyzer.common.exception.EntityNotFoundException;
 import com.vyshali.fxanalyzer.common.exception.PriceNotAvailableException;
+import com.vyshali.fxanalyzer.common.repository.BestPriceRepository;
 import com.vyshali.fxanalyzer.common.repository.PriceRepository;
 import com.vyshali.fxanalyzer.common.repository.ProductRepository;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceBook;
 import com.vyshali.fxanalyzer.priceservice.cache.PriceCacheService;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceOverrideIndex;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceOverrideIndex.ActiveOverride;
+import com.vyshali.fxanalyzer.priceservice.cache.PriceStalenessTracker;
+import com.vyshali.fxanalyzer.priceservice.cache.SingleFlight;
+import com.vyshali.fxanalyzer.priceservice.event.PricePublication;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -30,43 +43,76 @@ import java.util.stream.Collectors;
  * Price Service with hierarchy: OVERRIDE (1) > REALTIME (2) > RCP_SNAP (3) > MSPA (4)
  * 
  * Features:
- * - Two-level caching (L1 Caffeine + L2 Redis)
+ * - Maintained best-price table: reads are a single-row lookup, writes replace by priority
+ * - Primitive-keyed price book in front of two-level caching (L1 Caffeine + L2 Redis)
  * - Circuit breaker for upstream services
- * - WebSocket broadcast for real-time updates
- * - Kafka events for downstream consumers
- * - Staleness detection
+ * - WebSocket broadcast and Kafka events published after commit, off the write path
+ * - In-memory staleness tracking of REALTIME best prices
  */
 @Slf4j
 @Service
 public class PriceService {
 
+    /** Max product ids per IN query on the batch path (keeps bind parameter count sane). */
+    private static final int BATCH_QUERY_CHUNK_SIZE = 1_000;
+
+    /** Upper bounds of the batch-size buckets used to tag batch latency. */
+    private static final int[] BATCH_SIZE_BUCKETS = {10, 100, 1_000, 5_000};
+
     private final PriceRepository priceRepository;
+    private final BestPriceRepository bestPriceRepository;
     private final ProductRepository productRepository;
     private final PriceCacheService cacheService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final SimpMessagingTemplate webSocketTemplate;
+    private final PriceBook priceBook;
+    private final PriceStalenessTracker stalenessTracker;
+    private final PriceOverrideIndex overrideIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<Long, PriceDto> priceLoads;
     
     // Metrics
     private final Counter priceRequestCounter;
+    private final Counter priceBookHitCounter;
+    private final Counter overrideHitCounter;
     private final Counter stalePriceCounter;
     private final Timer priceLookupTimer;
+    private final Timer[] batchLookupTimers;
+    private final DistributionSummary batchSizeSummary;
 
     public PriceService(PriceRepository priceRepository,
+                        BestPriceRepository bestPriceRepository,
                         ProductRepository productRepository,
                         PriceCacheService cacheService,
-                        KafkaTemplate<String, Object> kafkaTemplate,
-                        SimpMessagingTemplate webSocketTemplate,
+                        PriceBook priceBook,
+                        PriceStalenessTracker stalenessTracker,
+                        PriceOverrideIndex overrideIndex,
+                        ApplicationEventPublisher eventPublisher,
                         MeterRegistry meterRegistry) {
         this.priceRepository = priceRepository;
+        this.bestPriceRepository = bestPriceRepository;
         this.productRepository = productRepository;
         this.cacheService = cacheService;
-        this.kafkaTemplate = kafkaTemplate;
-        this.webSocketTemplate = webSocketTemplate;
+        this.priceBook = priceBook;
+        this.stalenessTracker = stalenessTracker;
+        this.overrideIndex = overrideIndex;
+        this.eventPublisher = eventPublisher;
+        this.priceLoads = new SingleFlight<>("price", meterRegistry);
         
         this.priceRequestCounter = Counter.builder("price.requests")
                 .description("Total price requests")
                 .register(meterRegistry);
         
+        this.priceBookHitCounter = Counter.builder("price.book.hits")
+                .description("Price requests answered by the in-process price book")
+                .register(meterRegistry);
+        
+        this.overrideHitCounter = Counter.builder("price.override.hits")
+                .description("Account price requests answered by an active override")
+                .register(meterRegistry);
+        
+        Gauge.builder("price.book.size", priceBook, PriceBook::size)
+                .description("Products held in the in-process price book")
+                .register(meterRegistry);
+        
         this.stalePriceCounter = Counter.builder("price.stale")
                 .description("Stale prices returned")
                 .register(meterRegistry);
@@ -74,6 +120,26 @@ public class PriceService {
         this.priceLookupTimer = Timer.builder("price.lookup.time")
                 .description("Price lookup duration")
                 .register(meterRegistry);
+        
+        // One timer per batch-size bucket so latency can be plotted against batch size
+        this.batchLookupTimers = new Timer[BATCH_SIZE_BUCKETS.length + 1];
+        for (int i = 0; i <= BATCH_SIZE_BUCKETS.length; i++) {
+            String bucket = i < BATCH_SIZE_BUCKETS.length
+                    ? "le" + BATCH_SIZE_BUCKETS[i]
+                    : "gt" + BATCH_SIZE_BUCKETS[BATCH_SIZE_BUCKETS.length - 1];
+            this.batchLookupTimers[i] = Timer.builder("price.batch.lookup.time")
+                    .description("Batch price lookup duration by batch size")
+                    .tag("batchSize", bucket)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+        
+        this.batchSizeSummary = DistributionSummary.builder("price.batch.size")
+                .description("Number of products per batch price request")
+                .register(meterRegistry);
+        
+        cacheService.setPriceRefresher(this::loadPriceFromDatabase);
+        stalenessTracker.setStaleListener(this::markStale);
     }
 
     /**
@@ -84,38 +150,105 @@ public class PriceService {
     public PriceDto getPrice(Long productId) {
         priceRequestCounter.increment();
         
+        // Price book first: no key building, boxing or Optional on the hottest path
+        PriceDto booked = priceBook.getBestPrice(productId);
+        if (booked != null) {
+            priceBookHitCounter.increment();
+            return booked;
+        }
+        
         return priceLookupTimer.record(() -> {
-            // Try cache first
-            Optional<PriceDto> cached = cacheService.getPrice(productId);
-            if (cached.isPresent()) {
-                return cached.get();
-            }
-            
-            // Load from database using hierarchy
-            LocalDate today = LocalDate.now();
-            List<Price> prices = priceRepository.findPricesByProductAndDateOrderByPriority(productId, today);
-            
-            if (prices.isEmpty()) {
-                throw new PriceNotAvailableException(String.valueOf(productId), today);
-            }
-            
-            // Get best price (first in priority order)
-            Price bestPrice = prices.get(0);
-            PriceDto dto = mapToDto(bestPrice);
-            
-            // Check staleness
-            if (Boolean.TRUE.equals(bestPrice.getIsStale())) {
-                stalePriceCounter.increment();
-                log.warn("Returning stale price for product {}", productId);
+            // Try L1 first
+            Optional<PriceDto> local = cacheService.getLocalPrice(productId);
+            if (local.isPresent()) {
+                return local.get();
             }
             
-            // Cache the result
-            cacheService.putPrice(productId, dto);
-            
-            return dto;
+            // One loader per product; concurrent misses wait for its result
+            return priceLoads.execute(productId, () -> loadPrice(productId));
         });
     }
 
+    /**
+     * Best price as seen by one account: an active OVERRIDE for the account (or
+     * for all accounts) from the override index wins, otherwise the shared best price.
+     */
+    public PriceDto getPriceForAccount(Long accountId, Long productId) {
+        Optional<ActiveOverride> override = overrideIndex.findPriceOverride(accountId, productId, LocalDate.now());
+        if (override.isEmpty()) {
+            return getPrice(productId);
+        }
+        overrideHitCounter.increment();
+        
+        // Product details from the cached best price; the product row only when there is none
+        PriceDto.PriceDtoBuilder builder;
+        try {
+            builder = getPrice(productId).toBuilder().priceId(null).bidPrice(null).askPrice(null);
+        } catch (RuntimeException e) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new EntityNotFoundException("Product", productId));
+            builder = PriceDto.builder()
+                    .productId(productId)
+                    .identifier(product.getIdentifier())
+                    .ticker(product.getTicker())
+                    .securityDescription(product.getSecurityDescription())
+                    .currency(product.getIssueCurrency());
+        }
+        
+        ActiveOverride active = override.get();
+        return builder
+                .priceDate(LocalDate.now())
+                .priceTime(active.updatedAt())
+                .price(active.value())
+                .source(PriceSource.OVERRIDE.name())
+                .sourcePriority(PriceSource.OVERRIDE.getPriority())
+                .isStale(false)
+                .build();
+    }
+
+    /**
+     * Load price through L2 and then the database hierarchy, filling the cache.
+     */
+    private PriceDto loadPrice(Long productId) {
+        // Try cache (L1 may have been filled by a load that just finished, then L2)
+        Optional<PriceDto> cached = cacheService.getPrice(productId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
+        PriceDto dto = cacheService.timePriceLoad(() -> loadPriceFromDatabase(productId));
+        
+        // Cache the result; a read changes nothing, so other replicas are not told
+        cacheService.fillPrice(productId, dto);
+        
+        return dto;
+    }
+
+    /**
+     * Resolve the best price from the maintained best-price table (single-row lookup).
+     * Also used by the L1 cache to refresh hot entries ahead of expiry.
+     */
+    private PriceDto loadPriceFromDatabase(Long productId) {
+        LocalDate today = LocalDate.now();
+        Price bestPrice = bestPriceRepository.findBestPrice(productId, today)
+                .map(BestPrice::getPrice)
+                .orElseThrow(() -> new PriceNotAvailableException(String.valueOf(productId), today));
+        
+        // Check staleness
+        if (Boolean.TRUE.equals(bestPrice.getIsStale())) {
+            stalePriceCounter.increment();
+            log.warn("Returning stale price for product {}", productId);
+        }
+        
+        PriceDto dto = mapToDto(bestPrice);
+        flagIfStale(dto);
+        
+        // Full hierarchy seen - the price book can answer for this product from now on
+        priceBook.seed(productId, dto);
+        
+        return dto;
+    }
+
     /**
      * Fallback when circuit breaker is open.
      */
@@ -135,22 +268,130 @@ public class PriceService {
 
     /**
      * Get prices for multiple products.
+     * Batch path: bulk L1 -> one Redis MGET -> one best-price query per chunk -> bulk cache fill.
+     * Products without a price today are omitted from the result.
+     * The database load shares the single-product circuit breaker.
      */
+    @CircuitBreaker(name = "priceService", fallbackMethod = "getPricesFallback")
     public List<PriceDto> getPrices(List<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return List.of();
+        }
+        
+        priceRequestCounter.increment(productIds.size());
+        batchSizeSummary.record(productIds.size());
+        
+        return batchTimerFor(productIds.size()).record(() -> {
+            List<Long> distinctIds = productIds.stream()
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .collect(Collectors.toList());
+            
+            // Try cache first (L1 + L2 in bulk)
+            Map<Long, PriceDto> resolved = new HashMap<>(cacheService.getPrices(distinctIds));
+            
+            List<Long> missing = distinctIds.stream()
+                    .filter(id -> !resolved.containsKey(id))
+                    .collect(Collectors.toList());
+            
+            if (!missing.isEmpty()) {
+                // Load leftovers from database and write them back to both tiers in one go
+                Map<Long, PriceDto> loaded = loadBestPrices(missing, LocalDate.now());
+                cacheService.putPrices(loaded);
+                resolved.putAll(loaded);
+                
+                if (loaded.size() < missing.size()) {
+                    log.debug("No price available for {} of {} requested products",
+                            missing.size() - loaded.size(), distinctIds.size());
+                }
+            }
+            
+            return productIds.stream()
+                    .filter(Objects::nonNull)
+                    .map(resolved::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Fallback when circuit breaker is open: whatever the cache holds, flagged stale.
+     */
+    public List<PriceDto> getPricesFallback(List<Long> productIds, Exception e) {
+        if (productIds == null || productIds.isEmpty()) {
+            return List.of();
+        }
+        log.warn("Price service fallback triggered for {} products: {}", productIds.size(), e.getMessage());
+        
+        Map<Long, PriceDto> cached = cacheService.getPrices(productIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList()));
+        
+        // Copies: the cached entries themselves stay as they are
         return productIds.stream()
-                .map(this::getPriceSafe)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+                .filter(Objects::nonNull)
+                .map(cached::get)
+                .filter(Objects::nonNull)
+                .map(price -> price.toBuilder().isStale(true).build())
                 .collect(Collectors.toList());
     }
 
-    private Optional<PriceDto> getPriceSafe(Long productId) {
+    /**
+     * Products with at least one price row on the given date.
+     */
+    public List<Long> getProductIdsPricedOn(LocalDate priceDate) {
+        return priceRepository.findProductIdsWithPricesOnDate(priceDate);
+    }
+
+    /**
+     * Load today's best prices into the price book, L1 and L2 (startup warm-up).
+     * Redis may have been flushed or have evicted them while this replica was down.
+     *
+     * @return number of prices loaded
+     */
+    public int warmPrices(List<Long> productIds) {
+        Map<Long, PriceDto> loaded;
         try {
-            return Optional.of(getPrice(productId));
+            loaded = loadBestPrices(productIds, LocalDate.now());
         } catch (Exception e) {
-            log.warn("Failed to get price for product {}: {}", productId, e.getMessage());
-            return Optional.empty();
+            log.warn("Failed to warm prices for batch of {} products: {}", productIds.size(), e.getMessage());
+            return 0;
+        }
+        cacheService.putPrices(loaded);
+        return loaded.size();
+    }
+
+    /**
+     * Load the best price per product with one best-price table query per chunk of ids.
+     * A failed query propagates, so the circuit breaker around the caller sees it.
+     */
+    private Map<Long, PriceDto> loadBestPrices(List<Long> productIds, LocalDate priceDate) {
+        Map<Long, PriceDto> result = new HashMap<>(productIds.size());
+        
+        for (int from = 0; from < productIds.size(); from += BATCH_QUERY_CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + BATCH_QUERY_CHUNK_SIZE, productIds.size()));
+            for (BestPrice best : bestPriceRepository.findBestPrices(chunk, priceDate)) {
+                Price price = best.getPrice();
+                if (Boolean.TRUE.equals(price.getIsStale())) {
+                    stalePriceCounter.increment();
+                }
+                PriceDto dto = mapToDto(price);
+                flagIfStale(dto);
+                priceBook.seed(dto.getProductId(), dto);
+                result.put(dto.getProductId(), dto);
+            }
         }
+        return result;
+    }
+
+    private Timer batchTimerFor(int batchSize) {
+        for (int i = 0; i < BATCH_SIZE_BUCKETS.length; i++) {
+            if (batchSize <= BATCH_SIZE_BUCKETS[i]) {
+                return batchLookupTimers[i];
+            }
+        }
+        return batchLookupTimers[BATCH_SIZE_BUCKETS.length];
     }
 
     /**
@@ -173,9 +414,10 @@ public class PriceService {
         
         LocalDate today = LocalDate.now();
         
-        // Get existing price to compare
-        Optional<Price> existingPrice = priceRepository.findBestPrice(productId, today);
-        BigDecimal previousPrice = existingPrice.map(Price::getPriceValue).orElse(null);
+        // Current best price to compare (single-row lookup)
+        BigDecimal previousPrice = bestPriceRepository.findBestPrice(productId, today)
+                .map(best -> best.getPrice().getPriceValue())
+                .orElse(null);
         
         // Create or update price
         Price price = Price.builder()
@@ -191,11 +433,24 @@ public class PriceService {
         price = priceRepository.save(price);
         PriceDto dto = mapToDto(price);
         
-        // Update cache
-        cacheService.putPrice(productId, dto);
+        // Replace the best price only if this one wins on priority (or is a newer tick of the same priority)
+        boolean isBest = bestPriceRepository.upsertIfBetter(productId, today, price.getPriceId(),
+                price.getSourcePriority(), price.getPriceTime()) > 0;
+        
+        // Caches only see the price once it is committed; a rollback leaves them untouched
+        TransactionHooks.afterCommit(() -> {
+            if (isBest) {
+                if (cacheService.putPrice(productId, dto)) {
+                    stalenessTracker.onBestPrice(dto);
+                }
+            } else {
+                // A better price is still in force - keep the cached best, just record the lower-priority tick
+                priceBook.onPriceWritten(productId, dto);
+            }
+        });
         
-        // Publish events
-        publishPriceUpdate(product, dto, previousPrice);
+        // Broadcast once the transaction commits (see PriceEventPublisher)
+        publishPriceUpdate(product, dto, previousPrice, isBest);
         
         log.info("Updated price for {} to {} from {}", product.getTicker(), priceValue, source);
         
@@ -213,18 +468,38 @@ public class PriceService {
     }
 
     /**
-     * Get all stale prices.
+     * Get all stale prices (stale set from the in-memory tracker, prices through the cache).
      */
     public List<PriceDto> getStalePrices() {
-        return priceRepository.findStalePrices(LocalDate.now()).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return getPrices(List.copyOf(stalenessTracker.getStaleProductIds()));
     }
 
     /**
-     * Publish price update via WebSocket and Kafka.
+     * Track a freshly loaded best price; flag it if its REALTIME price is already past the threshold.
      */
-    private void publishPriceUpdate(Product product, PriceDto dto, BigDecimal previousPrice) {
+    private void flagIfStale(PriceDto dto) {
+        stalenessTracker.onBestPrice(dto);
+        if (!Boolean.TRUE.equals(dto.getIsStale()) && stalenessTracker.isStale(dto.getProductId())) {
+            dto.setIsStale(true);
+        }
+    }
+
+    /**
+     * Called by the staleness tracker: re-cache the affected prices flagged stale.
+     */
+    private void markStale(List<Long> productIds) {
+        Map<Long, PriceDto> flagged = new HashMap<>(productIds.size());
+        for (Long productId : productIds) {
+            cacheService.getLocalPrice(productId)
+                    .ifPresent(price -> flagged.put(productId, price.toBuilder().isStale(true).build()));
+        }
+        cacheService.putWrittenPrices(flagged);
+    }
+
+    /**
+     * Hand the update to PriceEventPublisher; nothing is sent until the transaction commits.
+     */
+    private void publishPriceUpdate(Product product, PriceDto dto, BigDecimal previousPrice, boolean isBest) {
         PriceUpdatedEvent event = PriceUpdatedEvent.builder()
                 .productId(product.getProductId())
                 .identifier(product.getIdentifier())
@@ -236,20 +511,7 @@ public class PriceService {
                 .isStale(dto.getIsStale())
                 .build();
         
-        // WebSocket broadcast
-        try {
-            webSocketTemplate.convertAndSend("/topic/prices/" + product.getProductId(), dto);
-            webSocketTemplate.convertAndSend("/topic/prices/all", dto);
-        } catch (Exception e) {
-            log.warn("Failed to broadcast price via WebSocket: {}", e.getMessage());
-        }
-        
-        // Kafka publish
-        try {
-            kafkaTemplate.send(PriceUpdatedEvent.TOPIC, product.getTicker(), event);
-        } catch (Exception e) {
-            log.warn("Failed to publish price to Kafka: {}", e.getMessage());
-        }
+        eventPublisher.publishEvent(PricePublication.of(dto, event, isBest));
     }
 
     private PriceDto mapToDto(Price price) {
@@ -1,63 +1,42 @@
 package com.vyshali.priceservice.service;
 
-import io.micrometer.core.instrument.Gauge;
-import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Scheduled job to detect and mark stale prices.
- * 
- * Runs every minute to check for prices that haven't been updated
- * within the staleness threshold.
+ * Scheduled job to persist staleness of previous days' prices.
+ *
+ * Intraday staleness (and the price.stale.count gauge) is tracked in memory
+ * by PriceStalenessTracker; this only flags REALTIME rows from earlier days
+ * in the database, which can change just once a day.
  */
 @Slf4j
 @Component
 public class PriceStalenessChecker {
 
     private final PriceService priceService;
-    
-    @Value("${fxanalyzer.price.staleness-threshold-minutes:30}")
-    private int stalenessThresholdMinutes;
-    
-    private final AtomicInteger stalePriceCount = new AtomicInteger(0);
 
-    public PriceStalenessChecker(PriceService priceService, MeterRegistry meterRegistry) {
+    public PriceStalenessChecker(PriceService priceService) {
         this.priceService = priceService;
-        
-        // Register gauge for stale price count
-        Gauge.builder("price.stale.count", stalePriceCount, AtomicInteger::get)
-                .description("Current count of stale prices")
-                .register(meterRegistry);
     }
 
     /**
-     * Check for stale prices every minute.
+     * Mark earlier days' REALTIME prices stale, shortly after midnight.
      */
-    @Scheduled(fixedRateString = "${fxanalyzer.price.staleness-check-interval-ms:60000}")
-    public void checkForStalePrices() {
-        log.debug("Running price staleness check");
-        
+    @Scheduled(cron = "${fxanalyzer.price.staleness-mark-cron:0 5 0 * * *}")
+    public void markPreviousDaysStale() {
+        log.debug("Marking previous days' realtime prices stale");
+
         try {
-            LocalDate cutoffDate = LocalDate.now().minusDays(1);
-            int markedStale = priceService.markPricesAsStale(cutoffDate);
-            
+            int markedStale = priceService.markPricesAsStale(LocalDate.now().minusDays(1));
             if (markedStale > 0) {
-                log.warn("Marked {} prices as stale", markedStale);
-                stalePriceCount.set(markedStale);
+                log.info("Marked {} previous-day prices as stale", markedStale);
             }
-            
-            // Update gauge with current stale count
-            int currentStaleCount = priceService.getStalePrices().size();
-            stalePriceCount.set(currentStaleCount);
-            
         } catch (Exception e) {
-            log.error("Error during staleness check: {}", e.getMessage(), e);
+            log.error("Error marking previous-day prices stale: {}", e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,31 @@
+package com.vyshali.priceservice.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Side effects that must not outlive a rollback: cache writes, replica sync
+ * and broadcasts run only once the surrounding transaction commits.
+ */
+final class TransactionHooks {
+
+    private TransactionHooks() {
+        // Utility class - no instantiation
+    }
+
+    /**
+     * Run the action after the current transaction commits, or right away if there is none.
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
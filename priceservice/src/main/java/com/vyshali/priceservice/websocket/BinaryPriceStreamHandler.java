@@ -0,0 +1,291 @@
+package com.vyshali.priceservice.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.fxanalyzer.priceservice.service.PriceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary, delta-encoded price stream at /ws/prices/binary (see PriceStreamCodec for the wire format).
+ *
+ * Client commands are JSON text messages:
+ * - {"op":"subscribe","productIds":[...]}   - snapshot of those products, then deltas
+ * - {"op":"unsubscribe","productIds":[...]}
+ * - {"op":"resync"}                          - full snapshot with reset, e.g. after a sequence gap
+ *
+ * Updates are conflated per connection (latest value per product) and sent as
+ * one delta frame per flush (plus a non-reset snapshot frame for products
+ * the client holds nothing for yet). A connection whose send buffer fills up
+ * has its oldest buffered frames dropped; the client sees the sequence gap
+ * and asks for a resync. A connection where a single send blocks longer than
+ * send-time-limit-ms is closed (SESSION_NOT_RELIABLE) and has to reconnect.
+ */
+@Slf4j
+@Component
+public class BinaryPriceStreamHandler extends AbstractWebSocketHandler {
+
+    private final ObjectMapper objectMapper;
+    private final PriceService priceService;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+
+    private final Map<String, StreamSession> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<StreamSession>> subscribers = new ConcurrentHashMap<>();
+
+    private final Counter snapshotBytesCounter;
+    private final Counter deltaBytesCounter;
+    private final Counter resyncCounter;
+    private final Counter conflatedCounter;
+
+    public BinaryPriceStreamHandler(ObjectMapper objectMapper,
+                                    PriceService priceService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${fxanalyzer.websocket.binary.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                                    @Value("${fxanalyzer.websocket.binary.send-buffer-size-limit:524288}") int sendBufferSizeLimit) {
+        this.objectMapper = objectMapper;
+        this.priceService = priceService;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+
+        this.snapshotBytesCounter = Counter.builder("websocket.binary.bytes")
+                .description("Bytes sent on the binary price stream")
+                .tag("frame", "snapshot")
+                .register(meterRegistry);
+
+        this.deltaBytesCounter = Counter.builder("websocket.binary.bytes")
+                .description("Bytes sent on the binary price stream")
+                .tag("frame", "delta")
+                .register(meterRegistry);
+
+        this.resyncCounter = Counter.builder("websocket.binary.resyncs")
+                .description("Resync requests from binary stream clients")
+                .register(meterRegistry);
+
+        this.conflatedCounter = Counter.builder("websocket.binary.conflated")
+                .description("Price updates replaced by a newer one before being sent to a connection")
+                .register(meterRegistry);
+
+        Gauge.builder("websocket.binary.sessions", sessions, Map::size)
+                .description("Open binary price stream connections")
+                .register(meterRegistry);
+    }
+
+    // ==================== Connection lifecycle ====================
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs,
+                sendBufferSizeLimit, ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+        sessions.put(session.getId(), new StreamSession(decorated));
+        log.debug("Binary price stream connected: {}", session.getId());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        unregister(session.getId());
+        log.debug("Binary price stream closed: {} ({})", session.getId(), status);
+    }
+
+    private void unregister(String sessionId) {
+        StreamSession stream = sessions.remove(sessionId);
+        if (stream != null) {
+            stream.closed = true;
+            stream.subscriptions.forEach(productId -> unsubscribe(stream, productId));
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("Binary price stream transport error on {}: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        StreamSession stream = sessions.get(session.getId());
+        if (stream == null) {
+            return;
+        }
+        StreamCommand command;
+        try {
+            command = objectMapper.readValue(message.getPayload(), StreamCommand.class);
+        } catch (JsonProcessingException e) {
+            log.debug("Ignoring malformed binary stream command from {}: {}", session.getId(), e.getMessage());
+            return;
+        }
+        List<Long> productIds = command.productIds() != null ? command.productIds() : List.of();
+
+        switch (command.op() == null ? "" : command.op()) {
+            case "subscribe" -> {
+                List<Long> added = new ArrayList<>();
+                for (Long productId : productIds) {
+                    if (productId != null && stream.subscriptions.add(productId)) {
+                        subscribers.compute(productId, (id, set) -> {
+                            Set<StreamSession> streams = set != null ? set : ConcurrentHashMap.newKeySet();
+                            streams.add(stream);
+                            return streams;
+                        });
+                        added.add(productId);
+                    }
+                }
+                sendSnapshot(stream, added, false);
+            }
+            case "unsubscribe" -> productIds.forEach(productId -> {
+                if (stream.subscriptions.remove(productId)) {
+                    unsubscribe(stream, productId);
+                }
+            });
+            case "resync" -> {
+                resyncCounter.increment();
+                sendSnapshot(stream, List.copyOf(stream.subscriptions), true);
+            }
+            default -> log.debug("Ignoring unknown binary stream command '{}' from {}", command.op(), session.getId());
+        }
+    }
+
+    private void unsubscribe(StreamSession stream, Long productId) {
+        subscribers.computeIfPresent(productId, (id, set) -> {
+            set.remove(stream);
+            return set.isEmpty() ? null : set;
+        });
+        stream.pending.remove(productId);
+        synchronized (stream) {
+            stream.lastSent.remove(productId);
+        }
+    }
+
+    // ==================== Updates ====================
+
+    /**
+     * Queue a price for every connection subscribed to the product; never blocks on I/O.
+     */
+    public void onPriceUpdate(PriceDto price) {
+        if (price == null || price.getProductId() == null) {
+            return;
+        }
+        Set<StreamSession> streams = subscribers.get(price.getProductId());
+        if (streams == null) {
+            return;
+        }
+        for (StreamSession stream : streams) {
+            if (stream.pending.put(price.getProductId(), price) != null) {
+                conflatedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * One delta frame per connection with pending updates. Products the client has
+     * not been sent yet (their snapshot had no price) go out as full records in a
+     * non-reset snapshot frame instead, so they arrive with their static fields.
+     */
+    @Scheduled(fixedDelayString = "${fxanalyzer.websocket.conflation.flush-interval-ms:100}")
+    public void flush() {
+        for (StreamSession stream : sessions.values()) {
+            if (stream.pending.isEmpty()) {
+                continue;
+            }
+            synchronized (stream) {
+                List<PriceDto[]> changes = new ArrayList<>(stream.pending.size());
+                List<PriceDto> firstSeen = new ArrayList<>();
+                for (Long productId : stream.pending.keySet()) {
+                    PriceDto current = stream.pending.remove(productId);
+                    if (current != null && stream.subscriptions.contains(productId)) {
+                        PriceDto previous = stream.lastSent.put(productId, current);
+                        if (previous == null) {
+                            firstSeen.add(current);
+                        } else {
+                            changes.add(new PriceDto[] {previous, current});
+                        }
+                    }
+                }
+                if (!firstSeen.isEmpty()) {
+                    byte[] records = PriceStreamCodec.encodeSnapshot(++stream.sequence, false, firstSeen);
+                    send(stream, records);
+                    snapshotBytesCounter.increment(records.length);
+                }
+                byte[] frame = PriceStreamCodec.encodeDelta(stream.sequence + 1, changes);
+                if (frame != null) {
+                    stream.sequence++;
+                    send(stream, frame);
+                    deltaBytesCounter.increment(frame.length);
+                }
+            }
+        }
+    }
+
+    private void sendSnapshot(StreamSession stream, List<Long> productIds, boolean reset) {
+        List<PriceDto> prices = productIds.isEmpty() ? List.of() : priceService.getPrices(productIds);
+
+        synchronized (stream) {
+            if (reset) {
+                stream.lastSent.clear();
+            }
+            // Updates still pending are diffed against the snapshot on the next flush
+            prices.forEach(price -> stream.lastSent.put(price.getProductId(), price));
+            byte[] frame = PriceStreamCodec.encodeSnapshot(++stream.sequence, reset, prices);
+            send(stream, frame);
+            snapshotBytesCounter.increment(frame.length);
+        }
+    }
+
+    private void send(StreamSession stream, byte[] frame) {
+        if (stream.closed) {
+            return;
+        }
+        try {
+            stream.session.sendMessage(new BinaryMessage(frame));
+        } catch (SessionLimitExceededException e) {
+            // The decorator drops every later send on this session, so it would never see another frame
+            log.warn("Closing binary price stream {}: {}", stream.session.getId(), e.getMessage());
+            unregister(stream.session.getId());
+            try {
+                stream.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ex) {
+                log.debug("Failed to close binary price stream {}: {}", stream.session.getId(), ex.getMessage());
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Failed to send binary price frame to {}: {}", stream.session.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Per-connection state. sequence and lastSent are guarded by the instance lock.
+     */
+    private static final class StreamSession {
+        final WebSocketSession session;
+        final Set<Long> subscriptions = ConcurrentHashMap.newKeySet();
+        final Map<Long, PriceDto> pending = new ConcurrentHashMap<>();
+        final Map<Long, PriceDto> lastSent = new HashMap<>();
+        long sequence;
+        volatile boolean closed;
+
+        StreamSession(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    private record StreamCommand(String op, List<Long> productIds) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.vyshali.priceservice.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conflating WebSocket fan-out.
+ *
+ * Updating threads only drop the latest value into a per-destination buffer
+ * and return; a scheduled flush sends what is pending. Within a destination
+ * the latest value per key wins, so a burst of ticks for one product becomes
+ * a single message. Each destination is sent at most max-rate-per-destination
+ * times per second.
+ *
+ * Single-value destinations (/topic/prices/{id}) receive the latest payload.
+ * Keyed destinations (/topic/prices/all) receive the latest payload per key,
+ * one frame per key, so their messages keep the single-DTO shape whether or
+ * not conflation is enabled. Batched destinations (/topic/prices/batch)
+ * receive one frame per flush: a JSON array with the latest payload per key.
+ *
+ * The simple broker fans each message out to every subscriber of the
+ * destination, so every subscriber sees the same conflated, rate-limited stream.
+ */
+@Slf4j
+@Component
+public class ConflatingWebSocketPublisher {
+
+    private final SimpMessagingTemplate webSocketTemplate;
+    private final boolean enabled;
+    private final long minIntervalNanos;
+
+    private final Map<String, PendingDestination> destinations = new ConcurrentHashMap<>();
+
+    private final Counter publishedCounter;
+    private final Counter conflatedCounter;
+    private final Counter droppedCounter;
+    private final Counter framesCounter;
+
+    public ConflatingWebSocketPublisher(SimpMessagingTemplate webSocketTemplate,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${fxanalyzer.websocket.conflation.enabled:true}") boolean enabled,
+                                        @Value("${fxanalyzer.websocket.conflation.max-rate-per-destination:4}") int maxRatePerDestination) {
+        this.webSocketTemplate = webSocketTemplate;
+        this.enabled = enabled;
+        this.minIntervalNanos = 1_000_000_000L / Math.max(1, maxRatePerDestination);
+
+        this.publishedCounter = Counter.builder("websocket.updates.published")
+                .description("Updates handed to the WebSocket publisher")
+                .register(meterRegistry);
+
+        this.conflatedCounter = Counter.builder("websocket.updates.conflated")
+                .description("Updates replaced by a newer value before they were sent")
+                .register(meterRegistry);
+
+        this.droppedCounter = Counter.builder("websocket.updates.dropped")
+                .description("Updates lost because their frame could not be sent")
+                .register(meterRegistry);
+
+        this.framesCounter = Counter.builder("websocket.frames.sent")
+                .description("WebSocket frames sent after conflation")
+                .register(meterRegistry);
+
+        Gauge.builder("websocket.updates.pending", destinations,
+                        d -> d.values().stream().mapToInt(p -> p.values.size()).sum())
+                .description("Updates waiting for the next flush")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish to a single-value destination: subscribers get the latest payload.
+     */
+    public void publish(String destination, Object payload) {
+        offer(destination, Mode.LATEST, destination, payload);
+    }
+
+    /**
+     * Publish to a keyed destination: subscribers get the latest payload of each key.
+     */
+    public void publishKeyed(String destination, Object key, Object payload) {
+        offer(destination, Mode.KEYED, key, payload);
+    }
+
+    /**
+     * Publish to a batched destination: subscribers get a list with the latest payload per key.
+     */
+    public void publishBatched(String destination, Object key, Object payload) {
+        offer(destination, Mode.BATCHED, key, payload);
+    }
+
+    private void offer(String destination, Mode mode, Object key, Object payload) {
+        publishedCounter.increment();
+        if (!enabled) {
+            // Conflation off: one message per update, in the destination's usual shape
+            send(destination, mode == Mode.BATCHED ? List.of(payload) : payload, 1);
+            return;
+        }
+        PendingDestination pending = destinations.computeIfAbsent(destination,
+                d -> new PendingDestination(mode, System.nanoTime() - minIntervalNanos));
+        if (pending.values.put(key, payload) != null) {
+            conflatedCounter.increment();
+        }
+    }
+
+    /**
+     * Send pending updates for every destination whose rate limit allows it.
+     */
+    @Scheduled(fixedDelayString = "${fxanalyzer.websocket.conflation.flush-interval-ms:100}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        destinations.forEach((destination, pending) -> {
+            if (pending.values.isEmpty() || now - pending.lastSentNanos < minIntervalNanos) {
+                return;
+            }
+            List<Object> drained = pending.drain();
+            if (drained.isEmpty()) {
+                return;
+            }
+            pending.lastSentNanos = now;
+            switch (pending.mode) {
+                case LATEST -> send(destination, drained.get(drained.size() - 1), drained.size());
+                case KEYED -> drained.forEach(payload -> send(destination, payload, 1));
+                case BATCHED -> send(destination, drained, drained.size());
+            }
+        });
+    }
+
+    private void send(String destination, Object payload, int updates) {
+        try {
+            webSocketTemplate.convertAndSend(destination, payload);
+            framesCounter.increment();
+        } catch (Exception e) {
+            droppedCounter.increment(updates);
+            log.warn("Failed to broadcast {} update(s) to {}: {}", updates, destination, e.getMessage());
+        }
+    }
+
+    private enum Mode { LATEST, KEYED, BATCHED }
+
+    private static final class PendingDestination {
+        final Mode mode;
+        final Map<Object, Object> values = new ConcurrentHashMap<>();
+        volatile long lastSentNanos;
+
+        PendingDestination(Mode mode, long lastSentNanos) {
+            this.mode = mode;
+            this.lastSentNanos = lastSentNanos;
+        }
+
+        /**
+         * Take each key's value exactly once; a value put after its key was taken goes into the next frame.
+         */
+        List<Object> drain() {
+            List<Object> drained = new ArrayList<>(values.size());
+            for (Object key : values.keySet()) {
+                Object value = values.remove(key);
+                if (value != null) {
+                    drained.add(value);
+                }
+            }
+            return drained;
+        }
+    }
+}
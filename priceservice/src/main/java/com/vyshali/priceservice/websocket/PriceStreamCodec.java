@@ -0,0 +1,242 @@
+package com.vyshali.priceservice.websocket;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Wire format of the binary price stream (/ws/prices/binary).
+ *
+ * Every frame: type (u8), sequence (i64, big-endian), then the body.
+ * Sequence numbers are per connection and increase by one per frame; a client
+ * that sees a gap sends {"op":"resync"} and gets a fresh full snapshot.
+ *
+ * SNAPSHOT body: flags (u8, bit 0 = reset: drop all held state first), count,
+ * then per product: productId, static mask + strings (identifier, ticker,
+ * description, currency), field mask + fields.
+ *
+ * DELTA body: count, then per product: productId, field mask + changed fields.
+ *
+ * Field mask bits, in encoding order: price, bid, ask, priceTime,
+ * source (+ priority), stale, priceDate; bit 7 means a cleared-fields mask
+ * (same bits) follows, for fields that became null.
+ *
+ * Integers are varints (signed ones zig-zag), decimals are scale + unscaled
+ * value, priceTime is epoch milliseconds of the local date-time, priceDate
+ * is epoch day. Strings are UTF-8 with a varint length.
+ */
+public final class PriceStreamCodec {
+
+    public static final byte FRAME_SNAPSHOT = 1;
+    public static final byte FRAME_DELTA = 2;
+
+    public static final byte SNAPSHOT_RESET = 1;
+
+    static final int F_PRICE = 1;
+    static final int F_BID = 1 << 1;
+    static final int F_ASK = 1 << 2;
+    static final int F_TIME = 1 << 3;
+    static final int F_SOURCE = 1 << 4;
+    static final int F_STALE = 1 << 5;
+    static final int F_DATE = 1 << 6;
+    static final int F_CLEARED = 1 << 7;
+
+    private static final int S_IDENTIFIER = 1;
+    private static final int S_TICKER = 1 << 1;
+    private static final int S_DESCRIPTION = 1 << 2;
+    private static final int S_CURRENCY = 1 << 3;
+
+    private PriceStreamCodec() {
+        // Utility class - no instantiation
+    }
+
+    public static byte[] encodeSnapshot(long sequence, boolean reset, Collection<PriceDto> prices) {
+        Writer out = new Writer(64 + prices.size() * 64);
+        out.writeByte(FRAME_SNAPSHOT);
+        out.writeLong(sequence);
+        out.writeByte(reset ? SNAPSHOT_RESET : 0);
+        out.writeVarLong(prices.size());
+        for (PriceDto p : prices) {
+            out.writeVarLong(p.getProductId());
+
+            int statics = (p.getIdentifier() != null ? S_IDENTIFIER : 0)
+                    | (p.getTicker() != null ? S_TICKER : 0)
+                    | (p.getSecurityDescription() != null ? S_DESCRIPTION : 0)
+                    | (p.getCurrency() != null ? S_CURRENCY : 0);
+            out.writeByte(statics);
+            if (p.getIdentifier() != null) out.writeString(p.getIdentifier());
+            if (p.getTicker() != null) out.writeString(p.getTicker());
+            if (p.getSecurityDescription() != null) out.writeString(p.getSecurityDescription());
+            if (p.getCurrency() != null) out.writeString(p.getCurrency());
+
+            writeFields(out, null, p);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Delta frame for the given (previous, current) pairs; products with no changed field are left out.
+     *
+     * @return the frame, or null if nothing changed
+     */
+    public static byte[] encodeDelta(long sequence, Collection<PriceDto[]> changes) {
+        Writer body = new Writer(16 + changes.size() * 24);
+        int count = 0;
+        for (PriceDto[] change : changes) {
+            PriceDto previous = change[0];
+            PriceDto current = change[1];
+            int mark = body.position();
+            body.writeVarLong(current.getProductId());
+            if (writeFields(body, previous, current)) {
+                count++;
+            } else {
+                body.reset(mark);
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        Writer out = new Writer(16 + body.position());
+        out.writeByte(FRAME_DELTA);
+        out.writeLong(sequence);
+        out.writeVarLong(count);
+        out.writeBytes(body.buf, body.position());
+        return out.toByteArray();
+    }
+
+    /**
+     * Write the field mask and the fields that differ from previous (all non-null ones if previous is null).
+     *
+     * @return true if anything was written besides an empty mask
+     */
+    private static boolean writeFields(Writer out, PriceDto previous, PriceDto current) {
+        int changed = 0;
+        int cleared = 0;
+
+        int[] bits = {F_PRICE, F_BID, F_ASK, F_TIME, F_SOURCE, F_STALE, F_DATE};
+        Object[] now = values(current);
+        Object[] before = previous != null ? values(previous) : new Object[now.length];
+        for (int i = 0; i < bits.length; i++) {
+            if (!same(before[i], now[i])) {
+                if (now[i] == null) {
+                    cleared |= bits[i];
+                } else {
+                    changed |= bits[i];
+                }
+            }
+        }
+        if (changed == 0 && cleared == 0) {
+            out.writeByte(0);
+            return false;
+        }
+
+        out.writeByte(changed | (cleared != 0 ? F_CLEARED : 0));
+        if ((changed & F_PRICE) != 0) out.writeDecimal(current.getPrice());
+        if ((changed & F_BID) != 0) out.writeDecimal(current.getBidPrice());
+        if ((changed & F_ASK) != 0) out.writeDecimal(current.getAskPrice());
+        if ((changed & F_TIME) != 0) out.writeSignedLong(epochMillis(current.getPriceTime()));
+        if ((changed & F_SOURCE) != 0) {
+            out.writeString(current.getSource());
+            out.writeSignedLong(current.getSourcePriority() != null ? current.getSourcePriority() : 0);
+        }
+        if ((changed & F_STALE) != 0) out.writeByte(Boolean.TRUE.equals(current.getIsStale()) ? 1 : 0);
+        if ((changed & F_DATE) != 0) out.writeSignedLong(current.getPriceDate().toEpochDay());
+        if (cleared != 0) out.writeByte(cleared);
+        return true;
+    }
+
+    private static Object[] values(PriceDto p) {
+        return new Object[] {
+                p.getPrice(), p.getBidPrice(), p.getAskPrice(), p.getPriceTime(),
+                p.getSource(), p.getIsStale(), p.getPriceDate()
+        };
+    }
+
+    private static boolean same(Object a, Object b) {
+        if (a instanceof BigDecimal x && b instanceof BigDecimal y) {
+            return x.compareTo(y) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toLocalDate().toEpochDay() * 86_400_000L + time.toLocalTime().toNanoOfDay() / 1_000_000L;
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int initialCapacity) {
+            this.buf = new byte[initialCapacity];
+        }
+
+        int position() {
+            return pos;
+        }
+
+        void reset(int position) {
+            pos = position;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes, int length) {
+            ensure(length);
+            System.arraycopy(bytes, 0, buf, pos, length);
+            pos += length;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeSignedLong(long v) {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, bytes.length);
+        }
+
+        void writeDecimal(BigDecimal d) {
+            if (d.unscaledValue().bitLength() >= 64) {
+                d = d.stripTrailingZeros();
+            }
+            writeSignedLong(d.scale());
+            writeSignedLong(d.unscaledValue().longValueExact());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+}
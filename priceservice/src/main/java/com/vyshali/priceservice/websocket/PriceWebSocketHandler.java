@@ -20,6 +20,7 @@ import org.springframework.stereotype.Controller;
  * - /topic/prices/all - subscribe to all price updates
  * - /topic/fx-rates/{currencyPair} - subscribe to specific FX rate
  * - /topic/fx-rates/all - subscribe to all FX rate updates
+ * - /topic/prices/batch, /topic/fx-rates/batch - all updates, a JSON array per message
  * 
  * Request endpoints:
  * - /app/price/{productId} - request current price
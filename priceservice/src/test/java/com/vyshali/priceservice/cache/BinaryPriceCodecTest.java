@@ -0,0 +1,158 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryPriceCodecTest {
+
+    @Test
+    void priceRoundTripsEveryField() {
+        PriceDto price = PriceDto.builder()
+                .priceId(Long.MAX_VALUE)
+                .productId(42L)
+                .identifier("US0378331005")
+                .ticker("AAPL")
+                .securityDescription("Société Générale – ordinary shares")
+                .priceDate(LocalDate.of(2026, 10, 16))
+                .priceTime(LocalDateTime.of(2026, 10, 16, 9, 30, 15, 123_456_789))
+                .price(new BigDecimal("187.12345678"))
+                .bidPrice(new BigDecimal("187.10"))
+                .askPrice(new BigDecimal("187.15"))
+                .source("REALTIME")
+                .sourcePriority(2)
+                .isStale(true)
+                .currency("USD")
+                .build();
+
+        byte[] bytes = BinaryPriceCodec.encode(price);
+
+        assertThat(BinaryPriceCodec.isBinary(bytes)).isTrue();
+        assertThat(bytes[2]).isEqualTo(BinaryPriceCodec.TYPE_PRICE);
+        assertThat(BinaryPriceCodec.decode(bytes)).isEqualTo(price);
+    }
+
+    @Test
+    void fxRateRoundTripsEveryField() {
+        FxRateDto rate = FxRateDto.builder()
+                .fxRateId(Long.MIN_VALUE)
+                .currencyPair("EURUSD")
+                .baseCurrency("EUR")
+                .quoteCurrency("USD")
+                .rateDate(LocalDate.of(2026, 10, 16))
+                .rateTime(LocalDateTime.of(2026, 10, 16, 23, 59, 59, 999_999_999))
+                .midRate(new BigDecimal("1.08765432"))
+                .bidRate(new BigDecimal("1.0876"))
+                .askRate(new BigDecimal("1.0877"))
+                .forwardPoints1M(new BigDecimal("-0.00123"))
+                .forwardPoints3M(new BigDecimal("0.0041"))
+                .source("BLOOMBERG")
+                .isStale(false)
+                .build();
+
+        byte[] bytes = BinaryPriceCodec.encode(rate);
+
+        assertThat(bytes[2]).isEqualTo(BinaryPriceCodec.TYPE_FX_RATE);
+        assertThat(BinaryPriceCodec.decode(bytes)).isEqualTo(rate);
+    }
+
+    @Test
+    void absentFieldsDecodeAsNull() {
+        assertThat(BinaryPriceCodec.decode(BinaryPriceCodec.encode(new PriceDto()))).isEqualTo(new PriceDto());
+        assertThat(BinaryPriceCodec.decode(BinaryPriceCodec.encode(new FxRateDto()))).isEqualTo(new FxRateDto());
+
+        PriceDto sparse = PriceDto.builder().productId(7L).currency("GBP").build();
+        assertThat(BinaryPriceCodec.decode(BinaryPriceCodec.encode(sparse))).isEqualTo(sparse);
+    }
+
+    @Test
+    void emptyStringsAndZeroesAreNotMistakenForAbsent() {
+        PriceDto price = PriceDto.builder()
+                .productId(0L)
+                .ticker("")
+                .price(BigDecimal.ZERO)
+                .sourcePriority(0)
+                .isStale(false)
+                .build();
+
+        assertThat(BinaryPriceCodec.decode(BinaryPriceCodec.encode(price))).isEqualTo(price);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0", "-1", "-0.00000001", "123456.7890", "-987654321.123456789",
+            "1E+5", "-2.5E-30", "0.000000000000000000000000000001",
+            "9223372036854775807", "-9223372036854775808",
+            "9223372036854775808", "-123456789012345678901234567890.123456789"
+    })
+    void decimalsKeepValueAndScale(String value) {
+        BigDecimal decimal = new BigDecimal(value);
+        PriceDto price = PriceDto.builder().price(decimal).bidPrice(decimal.negate()).build();
+
+        PriceDto decoded = (PriceDto) BinaryPriceCodec.decode(BinaryPriceCodec.encode(price));
+
+        assertThat(decoded.getPrice()).isEqualTo(decimal);
+        assertThat(decoded.getPrice().scale()).isEqualTo(decimal.scale());
+        assertThat(decoded.getBidPrice()).isEqualTo(decimal.negate());
+    }
+
+    @Test
+    void decimalsBeyondLongRangeRoundTrip() {
+        BigDecimal huge = new BigDecimal(BigInteger.TWO.pow(200).negate(), 40);
+        FxRateDto rate = FxRateDto.builder().midRate(huge).forwardPoints3M(huge.negate()).build();
+
+        assertThat(BinaryPriceCodec.decode(BinaryPriceCodec.encode(rate))).isEqualTo(rate);
+    }
+
+    @Test
+    void datesBeforeTheEpochRoundTrip() {
+        PriceDto price = PriceDto.builder()
+                .priceDate(LocalDate.of(1901, 1, 1))
+                .priceTime(LocalDateTime.of(1969, 12, 31, 0, 0))
+                .build();
+
+        assertThat(BinaryPriceCodec.decode(BinaryPriceCodec.encode(price))).isEqualTo(price);
+    }
+
+    @Test
+    void jsonIsNeverTakenForBinary() {
+        assertThat(BinaryPriceCodec.isBinary("{\"productId\":1}".getBytes())).isFalse();
+        assertThat(BinaryPriceCodec.isBinary("[\"com.x.PriceDto\",{}]".getBytes())).isFalse();
+        assertThat(BinaryPriceCodec.isBinary(new byte[] {BinaryPriceCodec.MAGIC})).isFalse();
+        assertThat(BinaryPriceCodec.isBinary(null)).isFalse();
+    }
+
+    @Test
+    void rejectsUnknownVersionAndType() {
+        byte[] bytes = BinaryPriceCodec.encode(new PriceDto());
+
+        byte[] newerVersion = bytes.clone();
+        newerVersion[1] = BinaryPriceCodec.VERSION + 1;
+        assertThatThrownBy(() -> BinaryPriceCodec.decode(newerVersion))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+
+        byte[] unknownType = bytes.clone();
+        unknownType[2] = 9;
+        assertThatThrownBy(() -> BinaryPriceCodec.decode(unknownType))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("type");
+    }
+
+    @Test
+    void rejectsUnsupportedValues() {
+        assertThat(BinaryPriceCodec.supports("EURUSD")).isFalse();
+        assertThatThrownBy(() -> BinaryPriceCodec.encode("EURUSD"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
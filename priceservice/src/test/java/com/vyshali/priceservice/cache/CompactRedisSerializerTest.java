@@ -0,0 +1,144 @@
+package com.vyshali.priceservice.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import com.vyshali.priceservice.cache.CompactRedisSerializer.WriteFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactRedisSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = jsonSerializer();
+
+    private final CompactRedisSerializer binaryWriter = new CompactRedisSerializer(json, WriteFormat.BINARY, true);
+    private final CompactRedisSerializer jsonWriter = new CompactRedisSerializer(json, WriteFormat.JSON, true);
+    private final CompactRedisSerializer binaryOnly = new CompactRedisSerializer(json, WriteFormat.BINARY, false);
+
+    @Test
+    void binaryFormatWritesCodecPayloadsAndReadsThemBack() {
+        byte[] priceBytes = binaryWriter.serialize(price());
+        byte[] rateBytes = binaryWriter.serialize(fxRate());
+
+        assertThat(BinaryPriceCodec.isBinary(priceBytes)).isTrue();
+        assertThat(BinaryPriceCodec.isBinary(rateBytes)).isTrue();
+        assertThat(binaryWriter.deserialize(priceBytes)).isEqualTo(price());
+        assertThat(binaryWriter.deserialize(rateBytes)).isEqualTo(fxRate());
+    }
+
+    @Test
+    void binaryPayloadIsSmallerThanJson() {
+        assertThat(binaryWriter.serialize(price()).length).isLessThan(jsonWriter.serialize(price()).length);
+    }
+
+    @Test
+    void jsonFormatWritesJsonAndReadsItBack() {
+        byte[] priceBytes = jsonWriter.serialize(price());
+        byte[] rateBytes = jsonWriter.serialize(fxRate());
+
+        assertThat(BinaryPriceCodec.isBinary(priceBytes)).isFalse();
+        assertThat(jsonWriter.deserialize(priceBytes)).isEqualTo(price());
+        assertThat(jsonWriter.deserialize(rateBytes)).isEqualTo(fxRate());
+    }
+
+    @Test
+    void eitherFormatReadsWhatTheOtherWrote() {
+        // Replicas on both sides of the write-format switch share Redis during a rollout
+        assertThat(binaryWriter.deserialize(jsonWriter.serialize(price()))).isEqualTo(price());
+        assertThat(jsonWriter.deserialize(binaryWriter.serialize(fxRate()))).isEqualTo(fxRate());
+    }
+
+    @Test
+    void legacyJsonPricesAreDroppedOnceJsonReadsAreOff() {
+        assertThat(binaryOnly.deserialize(jsonWriter.serialize(price()))).isNull();
+        assertThat(binaryOnly.deserialize(jsonWriter.serialize(fxRate()))).isNull();
+        assertThat(binaryOnly.deserialize(binaryWriter.serialize(price()))).isEqualTo(price());
+    }
+
+    @Test
+    void otherValuesStayJsonInEitherFormat() {
+        byte[] bytes = binaryOnly.serialize("warm");
+
+        assertThat(BinaryPriceCodec.isBinary(bytes)).isFalse();
+        assertThat(binaryOnly.deserialize(bytes)).isEqualTo("warm");
+    }
+
+    @Test
+    void nullAndEmptyPayloads() {
+        assertThat(binaryWriter.serialize(null)).isEmpty();
+        assertThat(binaryWriter.deserialize(null)).isNull();
+        assertThat(binaryWriter.deserialize(new byte[0])).isNull();
+    }
+
+    @Test
+    void corruptBinaryPayloadFailsAsSerializationException() {
+        byte[] truncated = {BinaryPriceCodec.MAGIC, BinaryPriceCodec.VERSION, BinaryPriceCodec.TYPE_PRICE, (byte) 0xFF};
+
+        assertThatThrownBy(() -> binaryWriter.deserialize(truncated))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    private static PriceDto price() {
+        return PriceDto.builder()
+                .priceId(1001L)
+                .productId(42L)
+                .identifier("US0378331005")
+                .ticker("AAPL")
+                .securityDescription("Apple Inc")
+                .priceDate(LocalDate.of(2026, 10, 16))
+                .priceTime(LocalDateTime.of(2026, 10, 16, 9, 30, 15, 123_000_000))
+                .price(new BigDecimal("-187.12345678"))
+                .bidPrice(new BigDecimal("187.10"))
+                .askPrice(null)
+                .source("REALTIME")
+                .sourcePriority(2)
+                .isStale(false)
+                .currency("USD")
+                .build();
+    }
+
+    private static FxRateDto fxRate() {
+        return FxRateDto.builder()
+                .fxRateId(7L)
+                .currencyPair("USDJPY")
+                .baseCurrency("USD")
+                .quoteCurrency("JPY")
+                .rateDate(LocalDate.of(2026, 10, 16))
+                .rateTime(LocalDateTime.of(2026, 10, 16, 16, 0))
+                .midRate(new BigDecimal("151.234500"))
+                .bidRate(new BigDecimal("151.2340"))
+                .askRate(new BigDecimal("151.2350"))
+                .forwardPoints1M(new BigDecimal("-0.412"))
+                .forwardPoints3M(null)
+                .source("REUTERS")
+                .isStale(true)
+                .build();
+    }
+
+    /**
+     * Configured as in CacheConfig.
+     */
+    private static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
+}
@@ -0,0 +1,233 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.FxRateDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FxRateMatrixTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private final FxRateMatrix matrix = new FxRateMatrix(
+            List.of("EUR/USD", "USDJPY", "GBPUSD", "USDCHF"), List.of("USD", "EUR"), Duration.ofMinutes(5));
+
+    @Test
+    void directQuoteResolvesAsReceived() {
+        matrix.update(rate("EURUSD", "1.10000000", "1.09990000", "1.10010000", now));
+
+        FxRateDto eurUsd = matrix.resolve("EURUSD");
+
+        assertThat(eurUsd.getMidRate()).isEqualByComparingTo("1.1");
+        assertThat(eurUsd.getBidRate()).isEqualByComparingTo("1.0999");
+        assertThat(eurUsd.getSource()).isEqualTo("FEED");
+        assertThat(eurUsd.getBaseCurrency()).isEqualTo("EUR");
+        assertThat(eurUsd.getQuoteCurrency()).isEqualTo("USD");
+        assertThat(FxRateMatrix.isDerived(eurUsd)).isFalse();
+    }
+
+    @Test
+    void inverseSwapsBidAndAsk() {
+        matrix.update(rate("EURUSD", "1.25000000", "1.24000000", "1.26000000", now));
+
+        FxRateDto usdEur = matrix.resolve("USDEUR");
+
+        assertThat(usdEur.getMidRate()).isEqualByComparingTo("0.8");
+        // Selling EUR at the EURUSD bid is buying USDEUR at the inverted ask
+        assertThat(usdEur.getBidRate()).isEqualByComparingTo("0.79365079");
+        assertThat(usdEur.getAskRate()).isEqualByComparingTo("0.80645161");
+        assertThat(usdEur.getSource()).isEqualTo("FEED" + FxRateMatrix.INVERTED_SUFFIX);
+        assertThat(FxRateMatrix.isDerived(usdEur)).isTrue();
+    }
+
+    @Test
+    void crossIsTriangulatedThroughTheVehicle() {
+        matrix.update(rate("EURUSD", "1.10000000", "1.09000000", "1.11000000", now.minusMinutes(2)));
+        matrix.update(rate("USDJPY", "150.00000000", "149.00000000", "151.00000000", now.minusMinutes(1)));
+
+        FxRateDto eurJpy = matrix.resolve("EURJPY");
+
+        assertThat(eurJpy.getMidRate()).isEqualTo(new BigDecimal("165.00000000"));
+        assertThat(eurJpy.getBidRate()).isEqualTo(new BigDecimal("162.41000000"));
+        assertThat(eurJpy.getAskRate()).isEqualTo(new BigDecimal("167.61000000"));
+        assertThat(eurJpy.getSource()).isEqualTo("TRIANGULATED (via USD)");
+        // A cross is only as fresh as its older leg
+        assertThat(eurJpy.getRateTime()).isEqualTo(now.minusMinutes(2));
+        assertThat(FxRateMatrix.isDerived(eurJpy)).isTrue();
+
+        FxRateDto jpyEur = matrix.resolve("JPYEUR");
+        assertThat(jpyEur.getMidRate()).isEqualByComparingTo("0.00606061");
+        assertThat(jpyEur.getSource()).isEqualTo("TRIANGULATED (via USD)");
+    }
+
+    @Test
+    void firstVehicleWithBothLegsIsUsed() {
+        matrix.update(rate("GBPUSD", "1.25000000", now));
+        matrix.update(rate("USDCHF", "0.90000000", now));
+        matrix.update(rate("EURGBP", "0.85000000", now));
+        matrix.update(rate("EURCHF", "0.95000000", now));
+
+        assertThat(matrix.resolve("GBPCHF").getSource()).isEqualTo("TRIANGULATED (via USD)");
+        assertThat(matrix.resolve("GBPCHF").getMidRate()).isEqualByComparingTo("1.125");
+    }
+
+    @Test
+    void laterVehicleIsUsedWhenTheFirstHasNoLegs() {
+        matrix.update(rate("EURGBP", "0.80000000", now));
+        matrix.update(rate("EURCHF", "0.96000000", now));
+
+        FxRateDto gbpChf = matrix.resolve("GBPCHF");
+
+        assertThat(gbpChf.getSource()).isEqualTo("TRIANGULATED (via EUR)");
+        assertThat(gbpChf.getMidRate()).isEqualByComparingTo("1.2");
+    }
+
+    @Test
+    void directQuoteWinsOverTriangulation() {
+        matrix.update(rate("EURUSD", "1.10000000", now));
+        matrix.update(rate("USDJPY", "150.00000000", now));
+        matrix.update(rate("EURJPY", "164.50000000", now));
+
+        assertThat(matrix.resolve("EURJPY").getMidRate()).isEqualByComparingTo("164.5");
+        assertThat(matrix.resolve("EURJPY").getSource()).isEqualTo("FEED");
+    }
+
+    @Test
+    void newLegReachesEveryCrossBuiltOnIt() {
+        matrix.update(rate("EURUSD", "1.10000000", now));
+        matrix.update(rate("GBPUSD", "1.25000000", now));
+        matrix.update(rate("USDJPY", "150.00000000", now));
+
+        matrix.update(rate("USDJPY", "152.00000000", now.plusSeconds(1)));
+
+        assertThat(matrix.resolve("EURJPY").getMidRate()).isEqualByComparingTo("167.2");
+        assertThat(matrix.resolve("GBPJPY").getMidRate()).isEqualByComparingTo("190");
+        assertThat(matrix.resolve("EURGBP").getMidRate()).isEqualByComparingTo("0.88");
+    }
+
+    @Test
+    void olderAndDerivedRatesAreIgnored() {
+        matrix.update(rate("EURUSD", "1.10000000", now));
+        long version = matrix.getVersion();
+
+        matrix.update(rate("EURUSD", "1.00000000", now.minusSeconds(1)));
+        FxRateDto derived = rate("EURUSD", "2.00000000", now.plusSeconds(1));
+        derived.setSource("FEED" + FxRateMatrix.INVERTED_SUFFIX);
+        matrix.update(derived);
+        matrix.update(rate("EURUSD", "0", now.plusSeconds(1)));
+        matrix.update(rate("USDUSD", "1.00000000", now));
+        matrix.update(null);
+
+        assertThat(matrix.resolve("EURUSD").getMidRate()).isEqualByComparingTo("1.1");
+        assertThat(matrix.getVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void staleQuotesAreOnlyServedFlagged() {
+        matrix.update(rate("EURUSD", "1.10000000", now.minusMinutes(10)));
+        matrix.update(rate("USDJPY", "150.00000000", now));
+
+        assertThat(matrix.resolve("EURUSD")).isNull();
+        assertThat(matrix.resolve("EURJPY")).isNull();
+        assertThat(matrix.resolve("USDJPY")).isNotNull();
+
+        assertThat(matrix.resolveIncludingStale("EURUSD").getIsStale()).isTrue();
+        assertThat(matrix.resolveIncludingStale("EURJPY").getIsStale()).isTrue();
+        assertThat(matrix.resolveIncludingStale("USDJPY").getIsStale()).isFalse();
+    }
+
+    @Test
+    void staleFlagFromTheSourceCarriesIntoCrosses() {
+        FxRateDto flagged = rate("EURUSD", "1.10000000", now);
+        flagged.setIsStale(true);
+        matrix.update(flagged);
+        matrix.update(rate("USDJPY", "150.00000000", now));
+
+        assertThat(matrix.resolve("EURJPY")).isNull();
+        assertThat(matrix.resolveIncludingStale("EURJPY").getIsStale()).isTrue();
+    }
+
+    @Test
+    void quoteWithoutTimeIsStaleFromTheNextDay() {
+        FxRateDto today = rate("EURUSD", "1.10000000", null);
+        FxRateDto yesterday = rate("USDJPY", "150.00000000", null);
+        yesterday.setRateDate(LocalDate.now().minusDays(1));
+        matrix.update(today);
+        matrix.update(yesterday);
+
+        assertThat(matrix.resolve("EURUSD")).isNotNull();
+        assertThat(matrix.resolve("USDJPY")).isNull();
+    }
+
+    @Test
+    void unknownCurrencyGrowsTheMatrix() {
+        matrix.update(rate("EURUSD", "1.10000000", now));
+
+        matrix.update(rate("USDSEK", "10.00000000", now));
+
+        assertThat(matrix.getCurrencies()).contains("SEK");
+        assertThat(matrix.resolve("EURSEK").getMidRate()).isEqualByComparingTo("11");
+        assertThat(matrix.resolve("SEKEUR").getMidRate()).isEqualByComparingTo("0.09090909");
+    }
+
+    @Test
+    void pairsWithoutRouteOrMalformedResolveToNull() {
+        matrix.update(rate("EURUSD", "1.10000000", now));
+
+        assertThat(matrix.resolve("GBPJPY")).isNull();
+        assertThat(matrix.resolve("EUREUR")).isNull();
+        assertThat(matrix.resolve("XXXYYY")).isNull();
+        assertThat(matrix.resolve("EUR")).isNull();
+        assertThat(matrix.resolve(null)).isNull();
+    }
+
+    @Test
+    void midRateSnapshotIsBuiltOncePerVersion() {
+        matrix.update(rate("EURUSD", "1.10000000", now.minusMinutes(3)));
+        matrix.update(rate("USDJPY", "150.00000000", now.minusMinutes(1)));
+
+        FxMatrixSnapshot first = matrix.getMidRateSnapshot();
+        assertThat(matrix.getMidRateSnapshot()).isSameAs(first);
+
+        List<String> currencies = first.getCurrencies();
+        int n = currencies.size();
+        int eur = currencies.indexOf("EUR");
+        int jpy = currencies.indexOf("JPY");
+        int chf = currencies.indexOf("CHF");
+        assertThat(first.getMidRates().get(eur * n + eur)).isEqualTo(BigDecimal.ONE);
+        assertThat(first.getMidRates().get(eur * n + jpy)).isEqualByComparingTo("165");
+        assertThat(first.getMidRates().get(eur * n + chf)).isNull();
+        // Every rate in the matrix is at least as fresh as asOf
+        assertThat(first.getAsOf()).isEqualTo(now.minusMinutes(3));
+
+        matrix.update(rate("USDJPY", "151.00000000", now));
+        FxMatrixSnapshot second = matrix.getMidRateSnapshot();
+
+        assertThat(second.getVersion()).isGreaterThan(first.getVersion());
+        assertThat(second.getMidRates().get(eur * n + jpy)).isEqualByComparingTo("166.1");
+        assertThat(first.getMidRates().get(eur * n + jpy)).isEqualByComparingTo("165");
+    }
+
+    private FxRateDto rate(String pair, String mid, LocalDateTime time) {
+        return rate(pair, mid, null, null, time);
+    }
+
+    private FxRateDto rate(String pair, String mid, String bid, String ask, LocalDateTime time) {
+        return FxRateDto.builder()
+                .currencyPair(pair)
+                .rateDate(LocalDate.now())
+                .rateTime(time)
+                .midRate(new BigDecimal(mid))
+                .bidRate(bid != null ? new BigDecimal(bid) : null)
+                .askRate(ask != null ? new BigDecimal(ask) : null)
+                .source("FEED")
+                .isStale(false)
+                .build();
+    }
+}
@@ -0,0 +1,190 @@
+package com.vyshali.priceservice.cache;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceBookTest {
+
+    private static final int OVERRIDE = 1;
+    private static final int REALTIME = 2;
+    private static final int RCP_SNAP = 3;
+
+    private final PriceBook book = new PriceBook(true, 0, price -> Duration.ofMinutes(5));
+
+    @Test
+    void answersOnlyForSeededProducts() {
+        book.seed(1L, price(1L, REALTIME, "10.00", 0));
+
+        assertThat(book.getBestPrice(1L).getPrice()).isEqualByComparingTo("10.00");
+        assertThat(book.getBestPrice(2L)).isNull();
+        assertThat(book.getBestPrice((Long) null)).isNull();
+        assertThat(book.size()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresWritesForProductsNeverSeeded() {
+        book.onPriceWritten(1L, price(1L, OVERRIDE, "10.00", 0));
+
+        assertThat(book.getBestPrice(1L)).isNull();
+        assertThat(book.size()).isZero();
+    }
+
+    @Test
+    void higherPriorityWriteBecomesBestAndLowerOneDoesNot() {
+        book.seed(1L, price(1L, REALTIME, "10.00", 0));
+
+        book.onPriceWritten(1L, price(1L, RCP_SNAP, "9.00", 1));
+        assertThat(book.getBestPrice(1L).getPrice()).isEqualByComparingTo("10.00");
+
+        book.onPriceWritten(1L, price(1L, OVERRIDE, "11.00", 2));
+        assertThat(book.getBestPrice(1L).getPrice()).isEqualByComparingTo("11.00");
+    }
+
+    @Test
+    void olderTickNeverReplacesNewerOneInTheSameSlot() {
+        book.seed(1L, price(1L, REALTIME, "10.00", 10));
+
+        book.onPriceWritten(1L, price(1L, REALTIME, "9.00", 5));
+
+        assertThat(book.getBestPrice(1L).getPrice()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void seedClearsHigherPrioritySlots() {
+        book.seed(1L, price(1L, REALTIME, "10.00", 0));
+        book.onPriceWritten(1L, price(1L, OVERRIDE, "11.00", 1));
+
+        // A full load found REALTIME to be the best, so the override is gone
+        book.seed(1L, price(1L, REALTIME, "12.00", 2));
+
+        assertThat(book.getBestPrice(1L).getPrice()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void priceForAnotherDayDropsTheProduct() {
+        book.seed(1L, price(1L, REALTIME, "10.00", 0));
+
+        book.onPriceWritten(1L, price(1L, REALTIME, "11.00", 1).toBuilder()
+                .priceDate(LocalDate.now().minusDays(1))
+                .build());
+
+        assertThat(book.getBestPrice(1L)).isNull();
+        assertThat(book.size()).isZero();
+    }
+
+    @Test
+    void entryIsNotServedPastItsLifetime() {
+        PriceBook expiring = new PriceBook(true, 0,
+                price -> price.getSourcePriority() == OVERRIDE ? Duration.ofMinutes(5) : Duration.ofMillis(-1));
+
+        expiring.seed(1L, price(1L, REALTIME, "10.00", 0));
+        expiring.seed(2L, price(2L, OVERRIDE, "11.00", 0));
+
+        assertThat(expiring.getBestPrice(1L)).isNull();
+        assertThat(expiring.getBestPrice(2L)).isNotNull();
+    }
+
+    @Test
+    void disabledBookNeverAnswers() {
+        PriceBook disabled = new PriceBook(false, 0, price -> Duration.ofMinutes(5));
+
+        disabled.seed(1L, price(1L, REALTIME, "10.00", 0));
+
+        assertThat(disabled.getBestPrice(1L)).isNull();
+    }
+
+    @Test
+    void removedSlotsAreReusedWithoutLosingOtherProducts() {
+        for (long id = 1; id <= 500; id++) {
+            book.seed(id, price(id, REALTIME, "1.00", 0));
+        }
+        // Churn through many more products than the table holds, leaving tombstones behind
+        for (long id = 501; id <= 50_000; id++) {
+            book.seed(id, price(id, REALTIME, "2.00", 0));
+            book.remove(id);
+        }
+
+        assertThat(book.size()).isEqualTo(500);
+        for (long id = 1; id <= 500; id++) {
+            assertThat(book.getBestPrice(id)).as("product %d", id).isNotNull();
+        }
+        assertThat(book.getBestPrice(50_000L)).isNull();
+    }
+
+    @Test
+    void resizeKeepsEveryProductAndItsSlots() {
+        for (long id = 1; id <= 5_000; id++) {
+            book.seed(id, price(id, REALTIME, "1.00", 0));
+        }
+        book.onPriceWritten(42L, price(42L, OVERRIDE, "3.00", 1));
+
+        assertThat(book.size()).isEqualTo(5_000);
+        for (long id = 1; id <= 5_000; id++) {
+            assertThat(book.getBestPrice(id).getProductId()).isEqualTo(id);
+        }
+        assertThat(book.getBestPrice(42L).getPrice()).isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void clearEmptiesTheBook() {
+        book.seed(1L, price(1L, REALTIME, "10.00", 0));
+
+        book.clear();
+
+        assertThat(book.getBestPrice(1L)).isNull();
+        assertThat(book.size()).isZero();
+    }
+
+    @Test
+    void readerNeverSeesAnotherProductsPriceWhileSlotsAreReused() throws InterruptedException {
+        PriceBook small = new PriceBook(true, 0, price -> Duration.ofMinutes(5));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<PriceDto> wrong = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            long id = 1;
+            while (running.get()) {
+                small.seed(id, price(id, REALTIME, "1.00", 0));
+                small.remove(id);
+                id = id % 2_000 + 1;
+            }
+        });
+        Thread reader = new Thread(() -> {
+            long id = 1;
+            while (running.get()) {
+                PriceDto price = small.getBestPrice(id);
+                if (price != null && price.getProductId() != id) {
+                    wrong.compareAndSet(null, price);
+                }
+                id = id % 2_000 + 1;
+            }
+        });
+        writer.start();
+        reader.start();
+        Thread.sleep(300);
+        running.set(false);
+        writer.join();
+        reader.join();
+
+        assertThat(wrong.get()).isNull();
+    }
+
+    private static PriceDto price(long productId, int priority, String value, int secondsAfterOpen) {
+        return PriceDto.builder()
+                .productId(productId)
+                .priceDate(LocalDate.now())
+                .priceTime(LocalDate.now().atTime(9, 30).plusSeconds(secondsAfterOpen))
+                .price(new BigDecimal(value))
+                .sourcePriority(priority)
+                .isStale(false)
+                .build();
+    }
+}
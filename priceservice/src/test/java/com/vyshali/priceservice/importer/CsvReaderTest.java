@@ -0,0 +1,126 @@
+package com.vyshali.priceservice.importer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTest {
+
+    @Test
+    void quotedFieldKeepsItsCommas() throws IOException {
+        CsvReader.Row row = firstRow("identifier,description,price\nAAPL,\"Apple, Inc.\",187.12\n");
+
+        assertThat(row.get("description")).isEqualTo("Apple, Inc.");
+        assertThat(row.get("price")).isEqualTo("187.12");
+    }
+
+    @Test
+    void doubledQuoteIsALiteralQuote() throws IOException {
+        CsvReader.Row row = firstRow("identifier,description\nX,\"The \"\"Big\"\" Fund, Class A\"\n");
+
+        assertThat(row.get("description")).isEqualTo("The \"Big\" Fund, Class A");
+    }
+
+    @Test
+    void quotedFieldMadeOfQuotesOnly() throws IOException {
+        CsvReader.Row row = firstRow("a,b\n\"\"\"\"\"\",x\n");
+
+        assertThat(row.get("a")).isEqualTo("\"\"");
+        assertThat(row.get("b")).isEqualTo("x");
+    }
+
+    @Test
+    void emptyFieldsAreNullQuotedOrNot() throws IOException {
+        CsvReader.Row row = firstRow("a,b,c,d\n,\"\",  ,\"  \"\n");
+
+        assertThat(row.get("a")).isNull();
+        assertThat(row.get("b")).isNull();
+        assertThat(row.get("c")).isNull();
+        assertThat(row.get("d")).isNull();
+    }
+
+    @Test
+    void fieldsAreTrimmed() throws IOException {
+        CsvReader.Row row = firstRow("a,b\n  1.5 , \" EUR \" \n");
+
+        assertThat(row.get("a")).isEqualTo("1.5");
+        assertThat(row.get("b")).isEqualTo("EUR");
+    }
+
+    @Test
+    void quoteCannotSpanLines() throws IOException {
+        try (CsvReader csv = csv("a,b\n\"open,1\n2,3\n")) {
+            // The unterminated quote runs to the end of its line only
+            CsvReader.Row first = csv.next();
+            assertThat(first.get("a")).isEqualTo("open,1");
+            assertThat(first.get("b")).isNull();
+
+            CsvReader.Row second = csv.next();
+            assertThat(second.get("a")).isEqualTo("2");
+            assertThat(second.get("b")).isEqualTo("3");
+        }
+    }
+
+    @Test
+    void headerIsCaseInsensitiveTrimmedAndMayBeQuoted() throws IOException {
+        try (CsvReader csv = csv("\uFEFF Product_ID ,\"Price, Local\",CURRENCY\n1,2,USD\n")) {
+            assertThat(csv.hasColumn("product_id")).isTrue();
+            assertThat(csv.hasColumn("price, local")).isTrue();
+            assertThat(csv.hasColumn("missing")).isFalse();
+
+            CsvReader.Row row = csv.next();
+            assertThat(row.get("product_id")).isEqualTo("1");
+            assertThat(row.get("price, local")).isEqualTo("2");
+            assertThat(row.get("currency")).isEqualTo("USD");
+        }
+    }
+
+    @Test
+    void shortAndLongRows() throws IOException {
+        try (CsvReader csv = csv("a,b,c\n1\n1,2,3,4\n")) {
+            CsvReader.Row shortRow = csv.next();
+            assertThat(shortRow.get("a")).isEqualTo("1");
+            assertThat(shortRow.get("c")).isNull();
+
+            CsvReader.Row longRow = csv.next();
+            assertThat(longRow.get("c")).isEqualTo("3");
+            assertThat(longRow.get("missing")).isNull();
+        }
+    }
+
+    @Test
+    void blankLinesAreSkippedButCountedInLineNumbers() throws IOException {
+        try (CsvReader csv = csv("a\r\n1\r\n\r\n   \r\n2\r\n")) {
+            CsvReader.Row first = csv.next();
+            assertThat(first.get("a")).isEqualTo("1");
+            assertThat(first.getLineNumber()).isEqualTo(2L);
+
+            CsvReader.Row second = csv.next();
+            assertThat(second.get("a")).isEqualTo("2");
+            assertThat(second.getLineNumber()).isEqualTo(5L);
+
+            assertThat(csv.next()).isNull();
+        }
+    }
+
+    @Test
+    void emptyInputHasNoHeader() {
+        assertThatThrownBy(() -> csv(""))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("no header");
+    }
+
+    private static CsvReader.Row firstRow(String content) throws IOException {
+        try (CsvReader csv = csv(content)) {
+            return csv.next();
+        }
+    }
+
+    private static CsvReader csv(String content) throws IOException {
+        return new CsvReader(new StringReader(content));
+    }
+}
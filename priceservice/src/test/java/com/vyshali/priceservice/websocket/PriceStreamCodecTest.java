@@ -0,0 +1,305 @@
+package com.vyshali.priceservice.websocket;
+
+import com.vyshali.fxanalyzer.common.dto.PriceDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceStreamCodecTest {
+
+    private final Client client = new Client();
+
+    @Test
+    void snapshotCarriesEveryField() {
+        PriceDto apple = price(1L, "187.12").toBuilder()
+                .identifier("US0378331005")
+                .ticker("AAPL")
+                .securityDescription("Société Générale – ordinary shares")
+                .currency("EUR")
+                .bidPrice(new BigDecimal("187.10"))
+                .askPrice(new BigDecimal("-0.00000001"))
+                .isStale(true)
+                .build();
+        PriceDto bare = PriceDto.builder().productId(2L).build();
+
+        client.apply(PriceStreamCodec.encodeSnapshot(5L, true, List.of(apple, bare)));
+
+        assertThat(client.lastType).isEqualTo(PriceStreamCodec.FRAME_SNAPSHOT);
+        assertThat(client.lastSequence).isEqualTo(5L);
+        assertThat(client.prices).containsOnlyKeys(1L, 2L);
+        assertThat(client.prices.get(1L)).isEqualTo(apple);
+        assertThat(client.prices.get(2L)).isEqualTo(bare);
+    }
+
+    @Test
+    void sequenceIsWrittenBigEndian() {
+        byte[] frame = PriceStreamCodec.encodeSnapshot(0x0102030405060708L, false, List.of());
+
+        assertThat(Arrays.copyOf(frame, 11)).containsExactly(
+                new byte[] {PriceStreamCodec.FRAME_SNAPSHOT, 1, 2, 3, 4, 5, 6, 7, 8, 0, 0});
+    }
+
+    @Test
+    void resetSnapshotDropsHeldProducts() {
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(price(1L, "10"), price(2L, "20"))));
+
+        client.apply(PriceStreamCodec.encodeSnapshot(2L, false, List.of(price(3L, "30"))));
+        assertThat(client.prices).containsOnlyKeys(1L, 2L, 3L);
+
+        client.apply(PriceStreamCodec.encodeSnapshot(3L, true, List.of(price(2L, "21"))));
+        assertThat(client.prices).containsOnlyKeys(2L);
+    }
+
+    @Test
+    void deltaCarriesOnlyChangedFields() {
+        PriceDto before = price(1L, "100.00");
+        PriceDto after = before.toBuilder().price(new BigDecimal("100.25")).build();
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(before)));
+
+        byte[] delta = PriceStreamCodec.encodeDelta(2L, changes(before, after));
+        client.apply(delta);
+
+        assertThat(client.lastType).isEqualTo(PriceStreamCodec.FRAME_DELTA);
+        assertThat(client.prices.get(1L)).isEqualTo(after);
+        // type, sequence, count, productId, mask, then the price alone: scale, 3-byte unscaled value
+        assertThat(delta).hasSize(1 + 8 + 1 + 1 + 1 + 1 + 3);
+    }
+
+    @Test
+    void deltaWithSourceChangeCarriesThePriority() {
+        PriceDto before = price(1L, "100.00");
+        PriceDto after = before.toBuilder().source("OVERRIDE").sourcePriority(1).build();
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(before)));
+
+        client.apply(PriceStreamCodec.encodeDelta(2L, changes(before, after)));
+
+        assertThat(client.prices.get(1L).getSource()).isEqualTo("OVERRIDE");
+        assertThat(client.prices.get(1L).getSourcePriority()).isEqualTo(1);
+    }
+
+    @Test
+    void deltaClearsFieldsThatBecameNull() {
+        PriceDto before = price(1L, "100.00").toBuilder()
+                .bidPrice(new BigDecimal("99.90"))
+                .askPrice(new BigDecimal("100.10"))
+                .build();
+        PriceDto after = before.toBuilder().bidPrice(null).askPrice(null).price(new BigDecimal("100.05")).build();
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(before)));
+
+        client.apply(PriceStreamCodec.encodeDelta(2L, changes(before, after)));
+
+        assertThat(client.prices.get(1L)).isEqualTo(after);
+    }
+
+    @Test
+    void unchangedProductsAreLeftOutOfTheDelta() {
+        PriceDto same = price(1L, "50.00");
+        PriceDto before = price(2L, "60.00");
+        PriceDto after = before.toBuilder().isStale(true).build();
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(same, before)));
+
+        client.apply(PriceStreamCodec.encodeDelta(2L, changes(same, same, before, after)));
+
+        assertThat(client.lastDeltaCount).isEqualTo(1);
+        assertThat(client.prices.get(2L)).isEqualTo(after);
+        assertThat(client.prices.get(1L)).isEqualTo(same);
+    }
+
+    @Test
+    void deltaWithNothingChangedIsNotSent() {
+        PriceDto before = price(1L, "1.50");
+        // Only the scale differs: the client would display the same value
+        PriceDto after = before.toBuilder().price(new BigDecimal("1.5")).build();
+
+        assertThat(PriceStreamCodec.encodeDelta(2L, changes(before, after))).isNull();
+        assertThat(PriceStreamCodec.encodeDelta(2L, List.of())).isNull();
+    }
+
+    @Test
+    void decimalsKeepTheirValue() {
+        BigDecimal negative = new BigDecimal("-987654321.123456789");
+        BigDecimal largeScale = new BigDecimal("0.000000000000000000000000000001");
+        // Unscaled value needs more than 64 bits until its trailing zeros are stripped
+        BigDecimal wide = new BigDecimal("12345.6000000000000000000000000000");
+        PriceDto price = price(1L, "0").toBuilder().price(negative).bidPrice(largeScale).askPrice(wide).build();
+
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(price)));
+
+        PriceDto decoded = client.prices.get(1L);
+        assertThat(decoded.getPrice()).isEqualTo(negative);
+        assertThat(decoded.getBidPrice()).isEqualTo(largeScale);
+        assertThat(decoded.getAskPrice()).isEqualByComparingTo(wide);
+    }
+
+    @Test
+    void decimalTooWideForTheWireFails() {
+        PriceDto price = price(1L, "0").toBuilder()
+                .price(new BigDecimal(BigInteger.TWO.pow(70).add(BigInteger.ONE)))
+                .build();
+
+        assertThatThrownBy(() -> PriceStreamCodec.encodeSnapshot(1L, true, List.of(price)))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void priceTimeTravelsAtMillisecondPrecision() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 16, 9, 30, 15, 123_456_789);
+        LocalDateTime beforeEpoch = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000);
+        PriceDto recent = price(1L, "1").toBuilder().priceTime(time).build();
+        PriceDto old = price(2L, "1").toBuilder().priceTime(beforeEpoch).priceDate(beforeEpoch.toLocalDate()).build();
+
+        client.apply(PriceStreamCodec.encodeSnapshot(1L, true, List.of(recent, old)));
+
+        assertThat(client.prices.get(1L).getPriceTime()).isEqualTo(time.truncatedTo(ChronoUnit.MILLIS));
+        assertThat(client.prices.get(2L)).isEqualTo(old);
+    }
+
+    private static List<PriceDto[]> changes(PriceDto... pairs) {
+        List<PriceDto[]> changes = new ArrayList<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            changes.add(new PriceDto[] {pairs[i], pairs[i + 1]});
+        }
+        return changes;
+    }
+
+    private static PriceDto price(long productId, String value) {
+        return PriceDto.builder()
+                .productId(productId)
+                .priceDate(LocalDate.of(2026, 10, 16))
+                .priceTime(LocalDateTime.of(2026, 10, 16, 9, 30, 0, 250_000_000))
+                .price(new BigDecimal(value))
+                .source("REALTIME")
+                .sourcePriority(2)
+                .isStale(false)
+                .build();
+    }
+
+    /**
+     * Minimal stream client: decodes frames as described in PriceStreamCodec and keeps the state they build up.
+     */
+    private static final class Client {
+
+        final Map<Long, PriceDto> prices = new HashMap<>();
+        byte lastType;
+        long lastSequence;
+        int lastDeltaCount;
+
+        private byte[] buf;
+        private int pos;
+
+        void apply(byte[] frame) {
+            buf = frame;
+            pos = 0;
+            lastType = (byte) readByte();
+            lastSequence = readLong();
+            if (lastType == PriceStreamCodec.FRAME_SNAPSHOT) {
+                if ((readByte() & PriceStreamCodec.SNAPSHOT_RESET) != 0) {
+                    prices.clear();
+                }
+                long count = readVarLong();
+                for (long n = 0; n < count; n++) {
+                    long productId = readVarLong();
+                    int statics = readByte();
+                    PriceDto.PriceDtoBuilder price = PriceDto.builder().productId(productId);
+                    if ((statics & 1) != 0) price.identifier(readString());
+                    if ((statics & 1 << 1) != 0) price.ticker(readString());
+                    if ((statics & 1 << 2) != 0) price.securityDescription(readString());
+                    if ((statics & 1 << 3) != 0) price.currency(readString());
+                    PriceDto decoded = price.build();
+                    readFields(decoded);
+                    prices.put(productId, decoded);
+                }
+            } else {
+                lastDeltaCount = (int) readVarLong();
+                for (int n = 0; n < lastDeltaCount; n++) {
+                    long productId = readVarLong();
+                    PriceDto decoded = prices.get(productId).toBuilder().build();
+                    readFields(decoded);
+                    prices.put(productId, decoded);
+                }
+            }
+            assertThat(pos).as("bytes left in frame").isEqualTo(frame.length);
+        }
+
+        private void readFields(PriceDto p) {
+            int mask = readByte();
+            if ((mask & PriceStreamCodec.F_PRICE) != 0) p.setPrice(readDecimal());
+            if ((mask & PriceStreamCodec.F_BID) != 0) p.setBidPrice(readDecimal());
+            if ((mask & PriceStreamCodec.F_ASK) != 0) p.setAskPrice(readDecimal());
+            if ((mask & PriceStreamCodec.F_TIME) != 0) {
+                long millis = readSignedLong();
+                p.setPriceTime(LocalDate.ofEpochDay(Math.floorDiv(millis, 86_400_000L)).atStartOfDay()
+                        .plus(Math.floorMod(millis, 86_400_000L), ChronoUnit.MILLIS));
+            }
+            if ((mask & PriceStreamCodec.F_SOURCE) != 0) {
+                p.setSource(readString());
+                p.setSourcePriority((int) readSignedLong());
+            }
+            if ((mask & PriceStreamCodec.F_STALE) != 0) p.setIsStale(readByte() != 0);
+            if ((mask & PriceStreamCodec.F_DATE) != 0) p.setPriceDate(LocalDate.ofEpochDay(readSignedLong()));
+            if ((mask & PriceStreamCodec.F_CLEARED) != 0) {
+                int cleared = readByte();
+                if ((cleared & PriceStreamCodec.F_PRICE) != 0) p.setPrice(null);
+                if ((cleared & PriceStreamCodec.F_BID) != 0) p.setBidPrice(null);
+                if ((cleared & PriceStreamCodec.F_ASK) != 0) p.setAskPrice(null);
+                if ((cleared & PriceStreamCodec.F_TIME) != 0) p.setPriceTime(null);
+                if ((cleared & PriceStreamCodec.F_SOURCE) != 0) p.setSource(null);
+                if ((cleared & PriceStreamCodec.F_STALE) != 0) p.setIsStale(null);
+                if ((cleared & PriceStreamCodec.F_DATE) != 0) p.setPriceDate(null);
+            }
+        }
+
+        private int readByte() {
+            return buf[pos++] & 0xFF;
+        }
+
+        private long readLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = v << 8 | readByte();
+            }
+            return v;
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+        }
+
+        private long readSignedLong() {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        private BigDecimal readDecimal() {
+            int scale = (int) readSignedLong();
+            return BigDecimal.valueOf(readSignedLong(), scale);
+        }
+    }
+}